@@ -0,0 +1,48 @@
+#!/usr/bin/env bash
+# JVM 版とネイティブ版のイメージについて、起動時間・メモリ・スループットを比較する。
+# docker compose で mysql / rabbitmq を起動した状態で backend ディレクトリから実行する。
+#
+#   docker build -t task-manager-jvm .
+#   docker build --target native -t task-manager-native .
+#   ./scripts/compare-jvm-native.sh
+#
+# スループットの計測には ab（apache2-utils）を使う。
+set -euo pipefail
+
+NETWORK=${NETWORK:-task-manager-spring-boot_default}
+REQUESTS=${REQUESTS:-5000}
+CONCURRENCY=${CONCURRENCY:-20}
+PORT=18080
+
+measure() {
+    local image=$1
+    local name=bench-$RANDOM
+    local start end ready_ms rss token rps
+
+    start=$(date +%s%N)
+    docker run -d --rm --name "$name" --network "$NETWORK" -p $PORT:8080 \
+        -e SPRING_DATASOURCE_URL="jdbc:mysql://mysql:3306/taskdb?useSSL=false&serverTimezone=Asia/Tokyo&allowPublicKeyRetrieval=true" \
+        -e SPRING_DATASOURCE_USERNAME=root -e SPRING_DATASOURCE_PASSWORD=rootpass \
+        -e LOGGING_LEVEL_ROOT=WARN -e LOGGING_LEVEL_COM_EXAMPLE_TASKMANAGER=INFO \
+        "$image" > /dev/null
+    until curl -sf "http://localhost:$PORT/actuator/health/readiness" > /dev/null; do
+        sleep 0.05
+    done
+    end=$(date +%s%N)
+    ready_ms=$(( (end - start) / 1000000 ))
+
+    token=$(curl -sf -H 'Content-Type: application/json' \
+        -d '{"username":"testuser","password":"testpass"}' \
+        "http://localhost:$PORT/api/auth/login" | sed -E 's/.*"token":"([^"]+)".*/\1/')
+    rps=$(ab -q -n "$REQUESTS" -c "$CONCURRENCY" -H "Authorization: Bearer $token" \
+        "http://localhost:$PORT/api/tasks" | awk '/Requests per second/ {print $4}')
+    rss=$(docker stats --no-stream --format '{{.MemUsage}}' "$name" | awk '{print $1}')
+
+    docker stop "$name" > /dev/null
+    printf '| %s | %s ms | %s | %s req/s |\n' "$image" "$ready_ms" "$rss" "$rps"
+}
+
+echo '| image | time to ready | memory after load | GET /api/tasks |'
+echo '|---|---|---|---|'
+measure task-manager-jvm
+measure task-manager-native
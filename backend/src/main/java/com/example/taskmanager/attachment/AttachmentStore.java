@@ -0,0 +1,146 @@
+package com.example.taskmanager.attachment;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 添付ファイルの本体を、内容の SHA-256 を名前にしてローカルのディレクトリへ保存する。
+ *
+ * <p>同じ内容は1つのファイルを共有する。受信中は tmp に書き、ハッシュが決まってから objects へ rename する。
+ * どの行からも参照されなくなったファイルは {@link #deleteUnreferenced} で消す。
+ */
+@Component
+public class AttachmentStore {
+
+    public record StoredObject(String sha256, long size) {}
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path objectsDir;
+    private final Path tmpDir;
+
+    public AttachmentStore(@Value("${app.attachments.dir:data/attachments}") Path dir) {
+        this.objectsDir = dir.resolve("objects");
+        this.tmpDir = dir.resolve("tmp");
+        try {
+            Files.createDirectories(objectsDir);
+            Files.createDirectories(tmpDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * in を最後まで読んで保存する。maxSize を超えた時点で読むのをやめ、{@link AttachmentTooLargeException} を投げる。
+     */
+    public StoredObject store(InputStream in, long maxSize) throws IOException {
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(tmpDir, "upload-", ".part");
+        try {
+            long size = 0;
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    size += n;
+                    if (size > maxSize) {
+                        throw new AttachmentTooLargeException(maxSize);
+                    }
+                    digest.update(buffer, 0, n);
+                    wrapped.clear().limit(n);
+                    while (wrapped.hasRemaining()) {
+                        out.write(wrapped);
+                    }
+                }
+                // rename の前にディスクへ書き出す（rename だけ残って中身が空になるのを防ぐ）
+                out.force(false);
+            }
+
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            Path target = path(sha256);
+            if (Files.exists(target)) {
+                // 同じ内容が既にある。掃除の猶予を数え直すよう更新時刻を進める
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            } else {
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new StoredObject(sha256, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 本体のパス。objects/ab/cd/abcd... の形で、1つのディレクトリにファイルが集まりすぎないようにする。
+     */
+    public Path path(String sha256) {
+        if (sha256 == null || !SHA256.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("Invalid sha256: " + sha256);
+        }
+        return objectsDir.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+
+    /**
+     * referenced に含まれず、更新時刻が olderThan より前の本体を消す。書きかけのまま残った tmp のファイルも消す。
+     * 保存直後でまだ行が INSERT されていないファイルを消さないよう、olderThan には猶予を持たせる。
+     */
+    public int deleteUnreferenced(Set<String> referenced, Instant olderThan) throws IOException {
+        int deleted = 0;
+        for (Path file : listFiles(objectsDir)) {
+            if (!referenced.contains(file.getFileName().toString()) && isOlder(file, olderThan)) {
+                deleted += Files.deleteIfExists(file) ? 1 : 0;
+            }
+        }
+        for (Path file : listFiles(tmpDir)) {
+            if (isOlder(file, olderThan)) {
+                Files.deleteIfExists(file);
+            }
+        }
+        return deleted;
+    }
+
+    private static List<Path> listFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    private static boolean isOlder(Path file, Instant olderThan) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(olderThan);
+        } catch (IOException e) {
+            // 別のスレッドが消した
+            return false;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.taskmanager.attachment;
+
+public class AttachmentTooLargeException extends RuntimeException {
+
+    public AttachmentTooLargeException(long maxSize) {
+        super("Attachment exceeds " + maxSize + " bytes");
+    }
+}
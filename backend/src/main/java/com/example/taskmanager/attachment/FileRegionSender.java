@@ -0,0 +1,66 @@
+package com.example.taskmanager.attachment;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ファイルの一部分をレスポンスの本文として送る。
+ *
+ * <p>コネクタが sendfile に対応していれば、ファイル名と範囲をリクエスト属性で渡し、
+ * コンテナがカーネルからソケットへ直接送る（ヒープにもユーザー空間のバッファにも読み込まない）。
+ * 対応していなければ {@link FileChannel#transferTo} で出力ストリームへ流す。
+ */
+public final class FileRegionSender {
+
+    static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private FileRegionSender() {
+    }
+
+    /**
+     * file の start から length バイトを送る。Content-Length はここで設定する。
+     */
+    public static void send(HttpServletRequest request, HttpServletResponse response,
+                            Path file, long start, long length) throws IOException {
+        response.setContentLengthLong(length);
+        if (length == 0 || "HEAD".equals(request.getMethod())) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Tomcat は正規化済みの絶対パスしか受け付けない
+            request.setAttribute(SENDFILE_FILENAME, file.toRealPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            transfer(channel, start, length, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    /**
+     * channel の start から length バイトを out へ送る。out がソケットならカーネル内でコピーされる。
+     */
+    public static void transfer(FileChannel channel, long start, long length, WritableByteChannel out) throws IOException {
+        long position = start;
+        long end = start + length;
+        while (position < end) {
+            long n = channel.transferTo(position, end - position, out);
+            if (n <= 0) {
+                throw new EOFException("File ended at " + position + " before " + end);
+            }
+            position += n;
+        }
+    }
+}
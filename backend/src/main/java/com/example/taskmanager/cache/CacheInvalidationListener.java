@@ -0,0 +1,34 @@
+package com.example.taskmanager.cache;
+
+import com.example.taskmanager.model.Tag;
+import com.example.taskmanager.model.Task;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Task / Tag の変更を検知して、他ノードの二次キャッシュ無効化を依頼する JPA エンティティリスナー。
+ */
+public class CacheInvalidationListener {
+
+    // EntityManagerFactory の生成中に作られるため、循環参照を避けて遅延取得する
+    private final ObjectProvider<ClusterCacheInvalidator> invalidator;
+
+    @Autowired
+    public CacheInvalidationListener(ObjectProvider<ClusterCacheInvalidator> invalidator) {
+        this.invalidator = invalidator;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof Task task) {
+            invalidator.getObject().broadcast(Task.class, task.getId());
+        } else if (entity instanceof Tag tag) {
+            invalidator.getObject().broadcast(Tag.class, tag.getId());
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.taskmanager.cache;
+
+import com.example.taskmanager.model.Tag;
+import com.example.taskmanager.model.Task;
+import com.example.taskmanager.readmodel.TaskChangedEvent;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * 二次キャッシュのノード間無効化。
+ * 変更はコミット後に RabbitMQ の fanout exchange で全ノードへ通知し、受信側は該当エントリを追い出す。
+ * メッセージ形式: {@code <送信元ノードID>|<エンティティ名>|<ID（カンマ区切りで複数可） または *>}
+ *
+ * <p>自ノードの変更も他ノードからの通知も、コミット後に {@link TaskChangedEvent} として自ノードへ流す（読み取りモデル用）。
+ */
+@Component
+public class ClusterCacheInvalidator {
+
+    public static final String EXCHANGE = "cacheInvalidation";
+    private static final String TASK_TAGS_ROLE = Task.class.getName() + ".tags";
+    private static final String ALL = "*";
+    private static final int IDS_PER_MESSAGE = 500;
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterCacheInvalidator.class);
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final EntityManagerFactory entityManagerFactory;
+    private final RabbitTemplate rabbitTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.cache.cluster-invalidation.enabled:true}")
+    private boolean enabled;
+
+    public ClusterCacheInvalidator(EntityManagerFactory entityManagerFactory, RabbitTemplate rabbitTemplate,
+                                   ApplicationEventPublisher eventPublisher) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.rabbitTemplate = rabbitTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * JPA を経由しない（ネイティブ SQL などの）更新の後に呼ぶ。自ノードのキャッシュも追い出す。
+     * id が null の場合はその型のリージョン全体を無効化する。
+     *
+     * <p>トランザクション中なら、すぐに追い出したうえでコミット後にもう一度追い出す。
+     * コミット前に同じノードの別のリクエストが古い行を読んでキャッシュに戻しても、それが残らないようにするため。
+     */
+    public void invalidate(Class<?> type, Long id) {
+        List<Long> ids = id != null ? List.of(id) : null;
+        evictLocally(type.getSimpleName(), ids);
+        evictAgainAfterCommit(type.getSimpleName(), ids);
+        broadcast(type, id);
+    }
+
+    /**
+     * 一括更新の後に呼ぶ。通知は {@code IDS_PER_MESSAGE} 件ずつ1つのメッセージにまとめる。
+     */
+    public void invalidateAll(Class<?> type, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        evictLocally(type.getSimpleName(), ids);
+        evictAgainAfterCommit(type.getSimpleName(), ids);
+        List<TaskChangedEvent> events = ids.stream()
+                .map(id -> toEvent(type.getSimpleName(), id, false))
+                .filter(Objects::nonNull)
+                .toList();
+        List<String> messages = new ArrayList<>();
+        if (enabled) {
+            List<Long> list = List.copyOf(ids);
+            for (int from = 0; from < list.size(); from += IDS_PER_MESSAGE) {
+                String joined = list.subList(from, Math.min(list.size(), from + IDS_PER_MESSAGE)).stream()
+                        .map(String::valueOf)
+                        .collect(Collectors.joining(","));
+                messages.add(nodeId + "|" + type.getSimpleName() + "|" + joined);
+            }
+        }
+        afterCommit(() -> {
+            events.forEach(eventPublisher::publishEvent);
+            messages.forEach(this::send);
+        });
+    }
+
+    /**
+     * 他ノードへ無効化を通知する。自ノードのキャッシュは Hibernate が更新済みである前提。
+     */
+    public void broadcast(Class<?> type, Long id) {
+        TaskChangedEvent event = toEvent(type.getSimpleName(), id, false);
+        String message = enabled ? nodeId + "|" + type.getSimpleName() + "|" + (id != null ? id : ALL) : null;
+        if (event == null && message == null) {
+            return;
+        }
+        afterCommit(() -> {
+            if (event != null) {
+                eventPublisher.publishEvent(event);
+            }
+            if (message != null) {
+                send(message);
+            }
+        });
+    }
+
+    private void evictAgainAfterCommit(String entity, Collection<Long> ids) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            afterCommit(() -> evictLocally(entity, ids));
+        }
+    }
+
+    private static void afterCommit(Runnable afterCommit) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    afterCommit.run();
+                }
+            });
+        } else {
+            afterCommit.run();
+        }
+    }
+
+    @RabbitListener(queues = "#{cacheInvalidationQueue.name}", containerFactory = "cacheInvalidationContainerFactory")
+    public void receive(String message) {
+        String[] parts = message.split("\\|");
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        if (ALL.equals(parts[2])) {
+            evictLocally(parts[1], null);
+            publish(toEvent(parts[1], null, true));
+            return;
+        }
+        List<Long> ids = Arrays.stream(parts[2].split(",")).map(Long::valueOf).toList();
+        evictLocally(parts[1], ids);
+        ids.forEach(id -> publish(toEvent(parts[1], id, true)));
+    }
+
+    private void publish(TaskChangedEvent event) {
+        if (event != null) {
+            eventPublisher.publishEvent(event);
+        }
+    }
+
+    private void send(String message) {
+        try {
+            rabbitTemplate.convertAndSend(EXCHANGE, "", message);
+        } catch (AmqpException e) {
+            // 通知に失敗しても各リージョンの TTL で最終的には整合する
+            logger.warn("Failed to broadcast cache invalidation {}", message, e);
+        }
+    }
+
+    private static TaskChangedEvent toEvent(String entity, Long id, boolean remote) {
+        if (Task.class.getSimpleName().equals(entity)) {
+            return new TaskChangedEvent(TaskChangedEvent.Kind.TASK, id, remote);
+        } else if (Tag.class.getSimpleName().equals(entity)) {
+            return new TaskChangedEvent(TaskChangedEvent.Kind.TAG, id, remote);
+        }
+        return null;
+    }
+
+    // ids が null ならリージョン全体
+    private void evictLocally(String entity, Collection<Long> ids) {
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        if (Task.class.getSimpleName().equals(entity)) {
+            if (ids != null) {
+                for (Long id : ids) {
+                    cache.evictEntityData(Task.class, id);
+                    cache.evictCollectionData(TASK_TAGS_ROLE, id);
+                }
+            } else {
+                cache.evictEntityData(Task.class);
+                cache.evictCollectionData(TASK_TAGS_ROLE);
+            }
+        } else if (Tag.class.getSimpleName().equals(entity)) {
+            if (ids != null) {
+                ids.forEach(id -> cache.evictEntityData(Tag.class, id));
+            } else {
+                cache.evictEntityData(Tag.class);
+            }
+            // タグの削除は Task.tags コレクションにも影響する
+            cache.evictCollectionData(TASK_TAGS_ROLE);
+        }
+        cache.evictQueryRegions();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.taskmanager.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * バルクヘッドの設定。routes は上から順に評価し、最初にマッチしたグループを使う。
+ * methods を省略したルートはすべてのメソッドにマッチする。
+ */
+@ConfigurationProperties(prefix = "app.bulkhead")
+public class BulkheadProperties {
+
+    private boolean enabled = true;
+    private Map<String, Group> groups = new LinkedHashMap<>();
+    private List<Route> routes = new ArrayList<>();
+
+    public static class Group {
+        private int maxConcurrent = 10;
+        private Duration maxWait = Duration.ofMillis(100);
+        private Duration timeout = Duration.ofSeconds(10);
+
+        public int getMaxConcurrent() { return maxConcurrent; }
+        public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+
+        public Duration getMaxWait() { return maxWait; }
+        public void setMaxWait(Duration maxWait) { this.maxWait = maxWait; }
+
+        public Duration getTimeout() { return timeout; }
+        public void setTimeout(Duration timeout) { this.timeout = timeout; }
+    }
+
+    public static class Route {
+        private String pattern;
+        private List<String> methods = new ArrayList<>();
+        private String group;
+
+        public String getPattern() { return pattern; }
+        public void setPattern(String pattern) { this.pattern = pattern; }
+
+        public List<String> getMethods() { return methods; }
+        public void setMethods(List<String> methods) { this.methods = methods; }
+
+        public String getGroup() { return group; }
+        public void setGroup(String group) { this.group = group; }
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Map<String, Group> getGroups() { return groups; }
+    public void setGroups(Map<String, Group> groups) { this.groups = groups; }
+
+    public List<Route> getRoutes() { return routes; }
+    public void setRoutes(List<Route> routes) { this.routes = routes; }
+}
@@ -0,0 +1,81 @@
+package com.example.taskmanager.config;
+
+import com.example.taskmanager.datasource.ReadWriteRoutingDataSource;
+import com.example.taskmanager.datasource.ReadYourWritesTracker;
+import com.example.taskmanager.datasource.ReplicaHealthMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * app.datasource.replica.urls が設定されている場合のみ、読み書き分離の DataSource を構成する。
+ * シャーディング（{@link ShardingConfig}）とは併用しない。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "urls")
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "false", matchIfMissing = true)
+public class DataSourceRoutingConfig {
+
+    @Value("${app.datasource.replica.urls}")
+    private List<String> replicaUrls;
+
+    @Value("${app.datasource.replica.username:${spring.datasource.username}}")
+    private String replicaUsername;
+
+    @Value("${app.datasource.replica.password:${spring.datasource.password}}")
+    private String replicaPassword;
+
+    @Value("${app.datasource.replica.max-lag-seconds:5}")
+    private long maxLagSeconds;
+
+    @Value("${app.datasource.sticky-window-ms:3000}")
+    private long stickyWindowMs;
+
+    @Bean
+    public ReplicaHealthMonitor replicaHealthMonitor(DataSourceProperties properties) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + i);
+            replica.setJdbcUrl(replicaUrls.get(i).trim());
+            replica.setUsername(replicaUsername);
+            replica.setPassword(replicaPassword);
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setReadOnly(true);
+            replica.setConnectionTimeout(2000);
+            replica.setInitializationFailTimeout(-1);
+            replicas.put(replica.getPoolName(), replica);
+        }
+        ReplicaHealthMonitor monitor = new ReplicaHealthMonitor(replicas, maxLagSeconds);
+        monitor.checkReplicas();
+        return monitor;
+    }
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker() {
+        return new ReadYourWritesTracker(stickyWindowMs);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties,
+                                 ReplicaHealthMonitor replicaHealthMonitor,
+                                 ReadYourWritesTracker readYourWritesTracker) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName("primary");
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(
+                primary, replicaHealthMonitor.replicas(), replicaHealthMonitor, readYourWritesTracker));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.taskmanager.config;
+
+import com.example.taskmanager.cache.CacheInvalidationListener;
+import com.example.taskmanager.dto.TagDTO;
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.dto.UserDTO;
+import com.example.taskmanager.model.Tag;
+import com.example.taskmanager.model.Task;
+import com.example.taskmanager.model.User;
+import com.example.taskmanager.sharding.OwnerIdResolver;
+import com.example.taskmanager.sharding.OwnerStampListener;
+import org.springframework.amqp.core.Queue;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import java.sql.Connection;
+import java.util.stream.Stream;
+
+/**
+ * GraalVM ネイティブイメージ用のリフレクション・リソースのヒント。
+ * Spring AOT が自動で検出できない、名前で読み込まれるクラスや JSON で入出力するクラスを登録する。
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    // jjwt-impl / jjwt-jackson は runtime スコープなのでクラス名で指定する
+    static final String[] JJWT_TYPES = {
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParser",
+            "io.jsonwebtoken.impl.compression.DefaultCompressionCodecResolver",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer",
+    };
+
+    static final String[] CACHE_TYPES = {
+            "org.hibernate.cache.jcache.internal.JCacheRegionFactory",
+            "org.ehcache.jsr107.EhcacheCachingProvider",
+    };
+
+    private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // REST の入出力に使うエンティティと DTO
+        bindingRegistrar.registerReflectionHints(hints.reflection(),
+                Task.class, Tag.class, User.class, TaskDTO.class, TagDTO.class, UserDTO.class);
+
+        Stream.concat(Stream.of(JJWT_TYPES), Stream.of(CACHE_TYPES)).forEach(type ->
+                hints.reflection().registerType(TypeReference.of(type),
+                        MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS));
+        hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+
+        // Hibernate が SpringBeanContainer 経由で生成するエンティティリスナーとフィルターのパラメーター
+        Stream.of(CacheInvalidationListener.class, OwnerStampListener.class, OwnerIdResolver.class).forEach(type ->
+                hints.reflection().registerType(type,
+                        MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS));
+
+        // @RabbitListener(queues = "#{cacheInvalidationQueue.name}") の SpEL 評価
+        hints.reflection().registerType(Queue.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+
+        // DeadlineDataSource が接続を包む JDK プロキシ
+        hints.proxies().registerJdkProxy(Connection.class);
+
+        hints.resources().registerPattern("ehcache.xml");
+        hints.resources().registerPattern("ehcache-core.xsd");
+        hints.resources().registerPattern("ehcache-107-ext.xsd");
+    }
+}
@@ -1,14 +1,113 @@
 package com.example.taskmanager.config;
 
+import com.example.taskmanager.cache.ClusterCacheInvalidator;
+import com.example.taskmanager.resilience.AmqpBulkheadAdvice;
+import com.example.taskmanager.security.TokenRevocationService;
+import com.example.taskmanager.service.TaskWriteBehindService;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class RabbitConfig {
 
+    // @RabbitListener の既定のファクトリー。コンシューマーを "amqp" バルクヘッドに通す
+    @Bean
+    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            AmqpBulkheadAdvice amqpBulkheadAdvice) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAdviceChain(amqpBulkheadAdvice);
+        return factory;
+    }
+
+    // キャッシュ無効化の受信は軽く、遅れると古いキャッシュが残るのでバルクヘッドに通さない（トークンの失効通知も同じ）
+    @Bean
+    public SimpleRabbitListenerContainerFactory cacheInvalidationContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        return factory;
+    }
+
     @Bean
     public Queue todoQueue() {
         return new Queue("todoQueue", false);
     }
+
+    // 二次キャッシュ無効化の通知用。ノードごとに使い捨てのキューを bind する
+    @Bean
+    public FanoutExchange cacheInvalidationExchange() {
+        return new FanoutExchange(ClusterCacheInvalidator.EXCHANGE, false, false);
+    }
+
+    @Bean
+    public Queue cacheInvalidationQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding cacheInvalidationBinding(Queue cacheInvalidationQueue, FanoutExchange cacheInvalidationExchange) {
+        return BindingBuilder.bind(cacheInvalidationQueue).to(cacheInvalidationExchange);
+    }
+
+    // JWT の失効の通知用。ノードごとに使い捨てのキューを bind する
+    @Bean
+    public FanoutExchange tokenRevocationExchange() {
+        return new FanoutExchange(TokenRevocationService.EXCHANGE, false, false);
+    }
+
+    @Bean
+    public Queue tokenRevocationQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding tokenRevocationBinding(Queue tokenRevocationQueue, FanoutExchange tokenRevocationExchange) {
+        return BindingBuilder.bind(tokenRevocationQueue).to(tokenRevocationExchange);
+    }
+
+    // タスク更新の write-behind 用。永続キューで、順序を保つためコンシューマーはクラスタ全体で1つだけ
+    @Bean
+    @ConditionalOnProperty(name = "app.write-behind.enabled", havingValue = "true")
+    public Queue taskWriteQueue() {
+        return QueueBuilder.durable(TaskWriteBehindService.QUEUE)
+                .singleActiveConsumer()
+                .build();
+    }
+
+    // batch-size 件たまるか、flush-interval-ms の間次のメッセージが来なければまとめて渡す
+    @Bean
+    @ConditionalOnProperty(name = "app.write-behind.enabled", havingValue = "true")
+    public SimpleRabbitListenerContainerFactory taskWriteContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            AmqpBulkheadAdvice amqpBulkheadAdvice,
+            @Value("${app.write-behind.batch-size:200}") int batchSize,
+            @Value("${app.write-behind.flush-interval-ms:200}") long flushIntervalMs) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setPrefetchCount(batchSize);
+        factory.setReceiveTimeout(flushIntervalMs);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        factory.setAdviceChain(amqpBulkheadAdvice);
+        return factory;
+    }
 }
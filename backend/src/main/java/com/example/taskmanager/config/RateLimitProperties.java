@@ -0,0 +1,46 @@
+package com.example.taskmanager.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * レート制限の設定。rules は上から順に評価し、最初にマッチしたものを使う。
+ */
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+    private int maxKeys = 100_000;
+    private int stripes = 16;
+    private List<Rule> rules = new ArrayList<>();
+
+    public static class Rule {
+        private String pattern;
+        private long capacity;
+        private Duration period;
+
+        public String getPattern() { return pattern; }
+        public void setPattern(String pattern) { this.pattern = pattern; }
+
+        public long getCapacity() { return capacity; }
+        public void setCapacity(long capacity) { this.capacity = capacity; }
+
+        public Duration getPeriod() { return period; }
+        public void setPeriod(Duration period) { this.period = period; }
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getMaxKeys() { return maxKeys; }
+    public void setMaxKeys(int maxKeys) { this.maxKeys = maxKeys; }
+
+    public int getStripes() { return stripes; }
+    public void setStripes(int stripes) { this.stripes = stripes; }
+
+    public List<Rule> getRules() { return rules; }
+    public void setRules(List<Rule> rules) { this.rules = rules; }
+}
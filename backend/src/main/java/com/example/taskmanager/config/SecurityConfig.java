@@ -1,13 +1,23 @@
 package com.example.taskmanager.config;
 
+import com.example.taskmanager.resilience.BulkheadFilter;
+import com.example.taskmanager.resilience.BulkheadRegistry;
 import com.example.taskmanager.security.JwtAuthenticationFilter;
 import com.example.taskmanager.security.JwtService;
+import com.example.taskmanager.security.RateLimitFilter;
+import com.example.taskmanager.security.RateLimitPolicy;
+import com.example.taskmanager.security.TokenRevocationService;
 import com.example.taskmanager.security.UserDetailsServiceImpl;
+import com.example.taskmanager.sharding.ShardContextFilter;
+import com.example.taskmanager.sharding.ShardDirectory;
 
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
@@ -18,14 +28,29 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.security.config.Customizer;
 
 @Configuration
+@EnableConfigurationProperties({RateLimitProperties.class, BulkheadProperties.class})
 public class SecurityConfig {
 
     private final JwtService jwtService;
     private final UserDetailsServiceImpl userDetailsService;
+    private final RateLimitPolicy rateLimitPolicy;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final ShardDirectory shardDirectory;
+    private final TokenRevocationService tokenRevocationService;
 
-    public SecurityConfig(JwtService jwtService, UserDetailsServiceImpl userDetailsService) {
+    // シャードの移動など管理用 API（/api/admin/**）を使えるユーザー
+    @Value("${app.admin.usernames:}")
+    private List<String> adminUsernames;
+
+    public SecurityConfig(JwtService jwtService, UserDetailsServiceImpl userDetailsService,
+                          RateLimitPolicy rateLimitPolicy, BulkheadRegistry bulkheadRegistry,
+                          ShardDirectory shardDirectory, TokenRevocationService tokenRevocationService) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.rateLimitPolicy = rateLimitPolicy;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.shardDirectory = shardDirectory;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Bean
@@ -36,9 +61,16 @@ public class SecurityConfig {
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/auth/**").permitAll()
+                        .requestMatchers("/actuator/health/**").permitAll()
+                        .requestMatchers("/api/admin/**").access((authentication, context) ->
+                                new AuthorizationDecision(adminUsernames.contains(authentication.get().getName())))
                         .anyRequest().authenticated())
-                .addFilterBefore(new JwtAuthenticationFilter(jwtService, userDetailsService),
-                        UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(new JwtAuthenticationFilter(jwtService, userDetailsService, tokenRevocationService),
+                        UsernamePasswordAuthenticationFilter.class)
+                // 認証でのユーザーの読み込み（DB）もバルクヘッドの枠と期限の内側で行う
+                .addFilterBefore(new BulkheadFilter(bulkheadRegistry), JwtAuthenticationFilter.class)
+                .addFilterAfter(new RateLimitFilter(rateLimitPolicy), JwtAuthenticationFilter.class)
+                .addFilterAfter(new ShardContextFilter(shardDirectory), RateLimitFilter.class);
 
         return http.build();
     }
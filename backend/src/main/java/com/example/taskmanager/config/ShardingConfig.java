@@ -0,0 +1,135 @@
+package com.example.taskmanager.config;
+
+import com.example.taskmanager.datasource.ShardRoutingDataSource;
+import com.example.taskmanager.sharding.ShardContext;
+import com.example.taskmanager.sharding.ShardDirectory;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * app.sharding.enabled=true の場合、spring.datasource をシャード 0、app.sharding.urls を 1 以降とする
+ * シャーディングの DataSource を構成する。
+ *
+ * <p>ID がシャードをまたいで重複しないよう、シャード k の接続は auto_increment_increment = シャード数、
+ * auto_increment_offset = k + 1 で採番する。
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    // ユーザーごとのデータで、AUTO_INCREMENT の ID を持つ表
+    private static final List<String> ID_TABLES = List.of("tasks", "tags", "task_series", "attachments");
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardingConfig.class);
+
+    @Value("${app.sharding.urls}")
+    private List<String> shardUrls;
+
+    @Value("${app.sharding.username:${spring.datasource.username}}")
+    private String shardUsername;
+
+    @Value("${app.sharding.password:${spring.datasource.password}}")
+    private String shardPassword;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int maximumPoolSize;
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties) {
+        int count = shardUrls.size() + 1;
+        List<DataSource> shards = new ArrayList<>(count);
+        HikariDataSource first = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        shards.add(configure(first, 0, count));
+        for (int i = 1; i < count; i++) {
+            HikariDataSource shard = new HikariDataSource();
+            shard.setJdbcUrl(shardUrls.get(i - 1).trim());
+            shard.setUsername(shardUsername);
+            shard.setPassword(shardPassword);
+            shard.setDriverClassName(properties.determineDriverClassName());
+            shards.add(configure(shard, i, count));
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    /**
+     * シャード 0 は Spring Boot の Flyway が移行するので、残りのシャードを同じ設定で移行し、採番をそろえる。
+     * シャード数が変わっていれば、既存のユーザーを今いるシャードに固定する。
+     */
+    @Bean
+    public FlywayMigrationStrategy shardedFlywayMigrationStrategy(DataSource dataSource) {
+        return flyway -> {
+            flyway.migrate();
+            ShardRoutingDataSource shards = unwrap(dataSource);
+            for (int i = 1; i < shards.size(); i++) {
+                Flyway.configure()
+                        .configuration(flyway.getConfiguration())
+                        .dataSource(shards.shard(i))
+                        .load()
+                        .migrate();
+            }
+            alignAutoIncrement(shards);
+            ShardDirectory.pinExistingUsers(shards.shard(ShardContext.DIRECTORY), shards.size());
+        };
+    }
+
+    private HikariDataSource configure(HikariDataSource shard, int index, int count) {
+        shard.setPoolName("shard-" + index);
+        shard.setMaximumPoolSize(maximumPoolSize);
+        shard.setConnectionInitSql("SET SESSION auto_increment_increment = " + count
+                + ", auto_increment_offset = " + (index + 1));
+        return shard;
+    }
+
+    // シャード数を変えると余りの割り当てが変わり、以前に採番した ID と衝突しうる。
+    // 起動のたびに各表の次の値を全シャードの最大値より後ろへ進めておけば、以降の ID は既存のものと重ならない
+    private static void alignAutoIncrement(ShardRoutingDataSource shards) {
+        for (String table : ID_TABLES) {
+            String maxSql = table.equals("tasks")
+                    ? "SELECT GREATEST((SELECT COALESCE(MAX(id), 0) FROM tasks), (SELECT COALESCE(MAX(id), 0) FROM tasks_archive))"
+                    : "SELECT COALESCE(MAX(id), 0) FROM " + table;
+            long max = 0;
+            for (int i = 0; i < shards.size(); i++) {
+                Long shardMax = new JdbcTemplate(shards.shard(i)).queryForObject(maxSql, Long.class);
+                max = Math.max(max, shardMax != null ? shardMax : 0);
+            }
+            for (int i = 0; i < shards.size(); i++) {
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(shards.shard(i));
+                // 統計のキャッシュで古い（小さい）値が返っても、余計な ALTER が1回走るだけ
+                Long next = jdbcTemplate.queryForObject(
+                        "SELECT AUTO_INCREMENT FROM information_schema.TABLES "
+                                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?",
+                        Long.class, table);
+                if (next == null || next <= max) {
+                    jdbcTemplate.execute("ALTER TABLE " + table + " AUTO_INCREMENT = " + (max + 1));
+                    logger.info("Advanced {} AUTO_INCREMENT on shard {} to {}", table, i, max + 1);
+                }
+            }
+        }
+    }
+
+    private static ShardRoutingDataSource unwrap(DataSource dataSource) {
+        try {
+            return dataSource.unwrap(ShardRoutingDataSource.class);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Sharded DataSource expected", e);
+        }
+    }
+}
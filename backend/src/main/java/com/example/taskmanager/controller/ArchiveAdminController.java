@@ -0,0 +1,30 @@
+package com.example.taskmanager.controller;
+
+import com.example.taskmanager.service.TaskArchiver;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// app.admin.usernames のユーザーだけが使える（SecurityConfig）
+@RestController
+@RequestMapping("/api/admin/archive")
+public class ArchiveAdminController {
+
+    private final TaskArchiver archiver;
+
+    public ArchiveAdminController(ObjectProvider<TaskArchiver> archiver) {
+        this.archiver = archiver.getIfAvailable();
+    }
+
+    // 受け付けたら完了を待たずに 202 を返す。結果は GET /api/archive/report で確認する
+    @PostMapping("/run")
+    public ResponseEntity<Void> run() {
+        if (archiver == null) {
+            return ResponseEntity.notFound().build();
+        }
+        archiver.requestRun();
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.taskmanager.controller;
+
+import com.example.taskmanager.service.TaskArchiver;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// 手動実行は ArchiveAdminController（/api/admin/archive/run）
+@RestController
+@RequestMapping("/api/archive")
+public class ArchiveController {
+
+    private final TaskArchiver archiver;
+
+    public ArchiveController(ObjectProvider<TaskArchiver> archiver) {
+        this.archiver = archiver.getIfAvailable();
+    }
+
+    // 直近のアーカイブ実行の結果（移動件数、バッチ所要時間、一覧クエリの前後の時間）
+    @GetMapping("/report")
+    public ResponseEntity<TaskArchiver.Report> getLastReport() {
+        if (archiver == null || archiver.getLastReport() == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(archiver.getLastReport());
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.taskmanager.controller;
+
+import com.example.taskmanager.attachment.AttachmentTooLargeException;
+import com.example.taskmanager.attachment.FileRegionSender;
+import com.example.taskmanager.model.Attachment;
+import com.example.taskmanager.service.AttachmentService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * タスクの添付ファイル。アップロードはリクエスト本文がそのままファイルの中身になる（multipart ではない）。
+ * ダウンロードは Range（1つの範囲）と ETag に対応する。
+ */
+@CrossOrigin(origins = "http://localhost:3000")
+@RestController
+@RequestMapping("/api/tasks/{taskId}/attachments")
+public class AttachmentController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentController.class);
+    private static final int MAX_FILENAME_LENGTH = 255;
+
+    private final AttachmentService attachmentService;
+
+    public AttachmentController(AttachmentService attachmentService) {
+        this.attachmentService = attachmentService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<Attachment>> listAttachments(@PathVariable Long taskId) {
+        return attachmentService.list(taskId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // フォームとして送られると、コンテナがパラメーターを読むときに本文を消費してしまうので受け付けない
+    @PostMapping(consumes = {"!" + MediaType.APPLICATION_FORM_URLENCODED_VALUE, "!" + MediaType.MULTIPART_FORM_DATA_VALUE})
+    public ResponseEntity<Attachment> uploadAttachment(@PathVariable Long taskId,
+                                                       @RequestParam String filename,
+                                                       HttpServletRequest request) throws IOException {
+        String name = StringUtils.getFilename(StringUtils.cleanPath(filename));
+        if (!StringUtils.hasText(name) || name.length() > MAX_FILENAME_LENGTH) {
+            return ResponseEntity.badRequest().build();
+        }
+        String contentType = request.getContentType() != null
+                ? request.getContentType()
+                : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+
+        Optional<Attachment> saved = attachmentService.upload(taskId, name, contentType, request.getInputStream());
+        if (saved.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Attachment attachment = saved.get();
+        return ResponseEntity.created(URI.create("/api/tasks/" + taskId + "/attachments/" + attachment.getId()))
+                .body(attachment);
+    }
+
+    @GetMapping("/{id}")
+    public void downloadAttachment(@PathVariable Long taskId,
+                                   @PathVariable Long id,
+                                   HttpServletRequest request,
+                                   HttpServletResponse response) throws IOException {
+        Optional<Attachment> found = attachmentService.find(taskId, id);
+        if (found.isEmpty()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        Attachment attachment = found.get();
+        Path file = attachmentService.path(attachment);
+        if (!Files.isRegularFile(file)) {
+            logger.warn("Attachment {} has no stored content {}", attachment.getId(), attachment.getSha256());
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        // 中身のハッシュなので、同じ ETag なら内容は変わらない
+        String etag = "\"" + attachment.getSha256() + "\"";
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=31536000, immutable");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(attachment.getFilename(), StandardCharsets.UTF_8).build().toString());
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setContentType(attachment.getContentType());
+
+        long length = attachment.getSize();
+        long start = 0;
+        long count = length;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(range);
+                // 複数の範囲は multipart/byteranges を組み立てず、全体を返す
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    long end = ranges.get(0).getRangeEnd(length);
+                    count = end - start + 1;
+                    response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+        }
+        FileRegionSender.send(request, response, file, start, count);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteAttachment(@PathVariable Long taskId, @PathVariable Long id) {
+        if (!attachmentService.delete(taskId, id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    @ExceptionHandler(AttachmentTooLargeException.class)
+    public ResponseEntity<String> handleTooLarge(AttachmentTooLargeException e) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
+    }
+}
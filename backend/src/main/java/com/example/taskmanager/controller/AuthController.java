@@ -5,6 +5,9 @@ import com.example.taskmanager.model.User;
 import com.example.taskmanager.repository.UserRepository;
 import com.example.taskmanager.security.CustomUserDetails;
 import com.example.taskmanager.security.JwtService;
+import com.example.taskmanager.security.TokenRevocationService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -25,6 +28,9 @@ public class AuthController {
     @Autowired
     private JwtService JwtService;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
     @PostMapping("/signup")
@@ -56,7 +62,8 @@ public class AuthController {
         }
 
         String token = authHeader.substring(7); // "Bearer " を除去
-        boolean isValid = JwtService.isTokenValid(token);
+        boolean isValid = JwtService.isTokenValid(token)
+                && !tokenRevocationService.isRevoked(JwtService.extractClaims(token));
 
         if (isValid) {
             return ResponseEntity.ok("Token is valid");
@@ -64,4 +71,41 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Token is invalid or expired");
         }
     }
+
+    // 提示されたトークンを失効させる（失効済みでも 204）
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+        Claims claims = parseBearer(authHeader);
+        if (claims == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Token is invalid or expired");
+        }
+        try {
+            tokenRevocationService.revoke(claims);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Token has no id; use /api/auth/logout-all");
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    // そのユーザーにこれまで発行したトークンをすべて失効させる
+    @PostMapping("/logout-all")
+    public ResponseEntity<?> logoutAll(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+        Claims claims = parseBearer(authHeader);
+        if (claims == null || tokenRevocationService.isRevoked(claims)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Token is invalid or expired");
+        }
+        tokenRevocationService.revokeAll(claims.getSubject());
+        return ResponseEntity.noContent().build();
+    }
+
+    private Claims parseBearer(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            return JwtService.extractClaims(authHeader.substring(7));
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,47 @@
+package com.example.taskmanager.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheStatisticsController {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public CacheStatisticsController(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    // 二次キャッシュのリージョンごとのヒット/ミス数
+    @GetMapping("/stats")
+    public Map<String, Map<String, Long>> getStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            result.put(region, toMap(statistics.getCacheRegionStatistics(region)));
+        }
+        result.put("default-query-results-region", toMap(
+                statistics.getQueryRegionStatistics("default-query-results-region")));
+        return result;
+    }
+
+    private static Map<String, Long> toMap(CacheRegionStatistics region) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        if (region != null) {
+            counts.put("hits", region.getHitCount());
+            counts.put("misses", region.getMissCount());
+            counts.put("puts", region.getPutCount());
+            counts.put("elementsInMemory", region.getElementCountInMemory());
+        }
+        return counts;
+    }
+}
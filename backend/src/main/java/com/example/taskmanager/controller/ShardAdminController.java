@@ -0,0 +1,59 @@
+package com.example.taskmanager.controller;
+
+import com.example.taskmanager.sharding.ShardDirectory;
+import com.example.taskmanager.sharding.ShardMover;
+import com.example.taskmanager.sharding.ShardStatistics;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+// app.admin.usernames のユーザーだけが使える（SecurityConfig）
+@RestController
+@RequestMapping("/api/admin/shards")
+public class ShardAdminController {
+
+    private final ShardDirectory directory;
+    private final ShardStatistics statistics;
+    private final ShardMover mover;
+
+    public ShardAdminController(ShardDirectory directory, ShardStatistics statistics, ShardMover mover) {
+        this.directory = directory;
+        this.statistics = statistics;
+        this.mover = mover;
+    }
+
+    // シャードごとの件数
+    @GetMapping
+    public List<ShardStatistics.Stats> getStats() {
+        return statistics.collect();
+    }
+
+    @GetMapping("/users/{userId}")
+    public ShardDirectory.Assignment getAssignment(@PathVariable long userId) {
+        return directory.assignment(userId);
+    }
+
+    // 完了まで応答しない（app.sharding.move-settle の2倍 + コピーの時間）
+    @PostMapping("/users/{userId}/move")
+    public ShardMover.Report moveUser(@PathVariable long userId, @RequestParam int shard) {
+        return mover.move(userId, shard);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleBadShard(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<String> handleMoveFailure(IllegalStateException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+}
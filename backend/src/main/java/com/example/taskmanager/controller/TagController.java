@@ -1,9 +1,18 @@
 package com.example.taskmanager.controller;
 
+import com.example.taskmanager.dto.HistoryDTO;
+import com.example.taskmanager.dto.TagBulkResultDTO;
 import com.example.taskmanager.dto.TagDTO;
+import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.history.HistoryEvent;
+import com.example.taskmanager.history.HistoryLog;
+import com.example.taskmanager.mapper.HistoryMapper;
 import com.example.taskmanager.model.Tag;
 import com.example.taskmanager.service.TagService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -12,31 +21,100 @@ import java.util.List;
 @RequestMapping("/api/tags")
 public class TagController {
 
+    private static final int MAX_TASK_IDS = 10_000;
+
     @Autowired
     private TagService tagService;
 
+    @Autowired
+    private HistoryLog historyLog;
+
     @GetMapping
     public List<TagDTO> getAllTags() {
         return tagService.getAllTags();
     }
 
+    // タグ選択の補完。使われているタスク数の多い順
+    @GetMapping("/suggest")
+    public List<TagDTO> suggestTags(@RequestParam String prefix, @RequestParam(defaultValue = "10") int limit) {
+        return tagService.suggestTags(prefix, Math.min(limit, 50));
+    }
+
     @GetMapping("/{id}")
     public Tag getTagById(@PathVariable Long id) {
         return tagService.getTagById(id).orElse(null);
     }
 
+    // 同じ名前（大文字小文字・前後の空白を無視）のタグがあればそれを返す
     @PostMapping
-    public Tag createTag(@RequestBody Tag tag) {
-        return tagService.createTag(tag);
+    public ResponseEntity<Tag> createTag(@RequestBody Tag tag) {
+        if (Tag.normalize(tag.getName()).isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(tagService.createTag(tag));
     }
 
     @PutMapping("/{id}")
-    public Tag updateTag(@PathVariable Long id, @RequestBody Tag tag) {
-        return tagService.updateTag(id, tag);
+    public ResponseEntity<Tag> updateTag(@PathVariable Long id, @RequestBody Tag tag) {
+        if (Tag.normalize(tag.getName()).isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(tagService.updateTag(id, tag));
     }
 
+    // タスクとの関連もまとめて消し、消した行数を返す
     @DeleteMapping("/{id}")
-    public void deleteTag(@PathVariable Long id) {
-        tagService.deleteTag(id);
+    public ResponseEntity<TagBulkResultDTO> deleteTag(@PathVariable Long id) {
+        return okOrNotFound(tagService.deleteTag(id));
+    }
+
+    // 条件に合う自分のタスクへまとめてタグを付ける。タスクの数によらず SQL は数回
+    @PostMapping("/{id}/assign")
+    public ResponseEntity<TagBulkResultDTO> assignTag(@PathVariable Long id, @RequestBody TaskFilterDTO filter) {
+        if (!isValid(filter)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return okOrNotFound(tagService.assignTag(id, filter));
+    }
+
+    @PostMapping("/{id}/unassign")
+    public ResponseEntity<TagBulkResultDTO> unassignTag(@PathVariable Long id, @RequestBody TaskFilterDTO filter) {
+        if (!isValid(filter)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return okOrNotFound(tagService.unassignTag(id, filter));
+    }
+
+    // id のタグを into のタグへまとめて、id を消す
+    @PostMapping("/{id}/merge")
+    public ResponseEntity<TagBulkResultDTO> mergeTag(@PathVariable Long id, @RequestParam Long into) {
+        if (id.equals(into)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return okOrNotFound(tagService.mergeTag(id, into));
+    }
+
+    @GetMapping("/{id}/history")
+    public ResponseEntity<List<HistoryDTO>> getHistory(@PathVariable Long id,
+                                                       @RequestParam(defaultValue = "50") int limit) {
+        if (tagService.getTagById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(historyLog.history(HistoryEvent.EntityType.TAG, id, Math.min(limit, 1000)).stream()
+                .map(HistoryMapper::toDTO)
+                .toList());
+    }
+
+    private boolean isValid(TaskFilterDTO filter) {
+        return filter.taskIds == null || filter.taskIds.size() <= MAX_TASK_IDS;
+    }
+
+    private static ResponseEntity<TagBulkResultDTO> okOrNotFound(TagBulkResultDTO result) {
+        return result != null ? ResponseEntity.ok(result) : ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<String> handleDuplicateName(DataIntegrityViolationException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("Tag name already exists");
     }
 }
@@ -8,24 +8,44 @@ import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.taskmanager.dto.HistoryDTO;
 import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.dto.TaskMoveDTO;
+import com.example.taskmanager.dto.TaskPageDTO;
+import com.example.taskmanager.history.HistoryEvent;
+import com.example.taskmanager.history.HistoryLog;
+import com.example.taskmanager.mapper.HistoryMapper;
 import com.example.taskmanager.mapper.TaskMapper;
 import com.example.taskmanager.model.Task;
-import com.example.taskmanager.repository.TagRepository;
+import com.example.taskmanager.readmodel.TaskQuery;
+import com.example.taskmanager.readmodel.TaskReadModel;
+import com.example.taskmanager.repository.TaskArchiveRepository;
+import com.example.taskmanager.repository.TaskHierarchyRepository;
+import com.example.taskmanager.service.PositionConflictException;
+import com.example.taskmanager.service.RecurringTaskService;
+import com.example.taskmanager.service.TagService;
 import com.example.taskmanager.service.TaskService;
+import com.example.taskmanager.service.TaskWriteBehindService;
+import com.example.taskmanager.sharding.ShardContext;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 
+import java.time.temporal.ChronoUnit;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -39,19 +59,107 @@ import com.example.taskmanager.model.Tag;
 public class TaskController {
 
     private final TaskService taskService;
-    private final TagRepository tagRepository;
+    private final TagService tagService;
+    private final TaskWriteBehindService writeBehind;
+    private final TaskArchiveRepository taskArchiveRepository;
+    private final RecurringTaskService recurringTaskService;
+    private final HistoryLog historyLog;
+    private final TaskReadModel readModel;
+
+    @Value("${app.recurrence.max-window-days:366}")
+    private long maxWindowDays;
 
     @Autowired
-    public TaskController(TaskService taskService, TagRepository tagRepository) {
+    public TaskController(TaskService taskService, TagService tagService,
+                          ObjectProvider<TaskWriteBehindService> writeBehind,
+                          TaskArchiveRepository taskArchiveRepository,
+                          RecurringTaskService recurringTaskService,
+                          HistoryLog historyLog,
+                          ObjectProvider<TaskReadModel> readModel) {
         this.taskService = taskService;
-        this.tagRepository = tagRepository;
+        this.tagService = tagService;
+        this.writeBehind = writeBehind.getIfAvailable();
+        this.taskArchiveRepository = taskArchiveRepository;
+        this.recurringTaskService = recurringTaskService;
+        this.historyLog = historyLog;
+        this.readModel = readModel.getIfAvailable();
+    }
+
+    // from / to を指定すると、その期間の繰り返しタスクの回も含めて期限順に返す
+    @GetMapping(params = {"from", "to"})
+    public ResponseEntity<List<TaskDTO>> getTasksBetween(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= maxWindowDays) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(recurringTaskService.getTasksBetween(from, to).stream()
+                .map(dto -> writeBehind != null && dto.id != null ? writeBehind.applyPending(dto) : dto)
+                .collect(Collectors.toList()));
     }
 
+    // 期限順（期限なしは最後）。読み取りモデルが有効なら Hibernate を通さずメモリから返す
     @GetMapping
-    public List<TaskDTO> getTasks() {
-        return taskService.getAllTasks().stream()
+    public List<TaskDTO> getTasks(@RequestParam(defaultValue = "false") boolean includeArchived,
+                                  @RequestParam(required = false) Boolean completed,
+                                  @RequestParam(required = false) Long tagId,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueFrom,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueTo) {
+        TaskQuery query = new TaskQuery(completed, tagId, dueFrom, dueTo);
+        // 未反映の完了切り替えを重ねてから完了状態で絞り込む
+        TaskQuery storedQuery = writeBehind != null ? query.withoutCompleted() : query;
+        List<TaskDTO> stored = readModel != null
+                ? readModel.list(ShardContext.currentOwner(), storedQuery).orElse(null)
+                : null;
+        if (stored == null) {
+            stored = taskService.getAllTasks().stream()
+                    .map(TaskMapper::toDTO)
+                    .filter(storedQuery::matches)
+                    .sorted(TaskQuery.ORDER)
+                    .collect(Collectors.toList());
+        }
+        List<TaskDTO> tasks = stored.stream()
+                .map(dto -> writeBehind != null ? writeBehind.applyPending(dto) : dto)
+                .filter(query::matches)
+                .collect(Collectors.toList());
+        if (includeArchived) {
+            // アーカイブ済みの行にも同じ条件を当て、期限順の中に混ぜる
+            taskArchiveRepository.findAll().stream()
+                    .filter(query::matches)
+                    .forEach(tasks::add);
+            tasks.sort(TaskQuery.ORDER);
+        }
+        return tasks;
+    }
+
+    // 手動の並び順でキーセットページング。cursor は前のページの nextCursor
+    @GetMapping(params = "sort=position")
+    public ResponseEntity<TaskPageDTO> getTasksInOrder(@RequestParam(required = false) String cursor,
+                                                       @RequestParam(defaultValue = "50") int limit) {
+        String afterPosition = null;
+        Long afterId = null;
+        if (cursor != null) {
+            int separator = cursor.lastIndexOf('.');
+            try {
+                afterPosition = cursor.substring(0, separator);
+                afterId = Long.valueOf(cursor.substring(separator + 1));
+            } catch (RuntimeException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        int pageSize = Math.max(1, Math.min(limit, 200));
+        List<Task> tasks = taskService.getTasksInOrder(afterPosition, afterId, pageSize);
+
+        TaskPageDTO page = new TaskPageDTO();
+        page.items = tasks.stream()
                 .map(TaskMapper::toDTO)
+                .map(dto -> writeBehind != null ? writeBehind.applyPending(dto) : dto)
                 .collect(Collectors.toList());
+        if (tasks.size() == pageSize) {
+            Task last = tasks.get(tasks.size() - 1);
+            page.nextCursor = last.getPosition() + "." + last.getId();
+        }
+        return ResponseEntity.ok(page);
     }
 
     @PostMapping
@@ -63,9 +171,15 @@ public class TaskController {
         if (dto.dueDate != null) {
             task.setDueDate(LocalDate.parse(dto.dueDate));
         }
+        if (dto.parentId != null) {
+            if (taskService.getTaskById(dto.parentId).isEmpty()) {
+                return ResponseEntity.badRequest().build();
+            }
+            task.setParentId(dto.parentId);
+        }
 
         if (dto.tagIds != null && !dto.tagIds.isEmpty()) {
-            Set<Tag> tags = new HashSet<>(tagRepository.findAllById(dto.tagIds));
+            Set<Tag> tags = new HashSet<>(tagService.getTagsByIds(dto.tagIds));
             task.setTags(tags);
         }
 
@@ -75,11 +189,14 @@ public class TaskController {
 
     @PutMapping("/{id}/toggle")
     public ResponseEntity<Task> toggleTask(@PathVariable Long id) {
+        if (writeBehind != null) {
+            return writeBehind.toggle(id)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        }
         Optional<Task> optionalTask = taskService.getTaskById(id); // taskRepository → taskService に変更
         if (optionalTask.isPresent()) {
-            Task task = optionalTask.get();
-            task.setCompleted(!task.isCompleted());
-            taskService.saveTask(task); // taskRepository.save → service経由に
+            Task task = taskService.toggleTask(optionalTask.get()); // taskRepository.save → service経由に
             return ResponseEntity.ok(task);
         } else {
             return ResponseEntity.notFound().build();
@@ -109,7 +226,7 @@ public class TaskController {
             }
 
             if (dto.tagIds != null) {
-                Set<Tag> tags = new HashSet<>(tagRepository.findAllById(dto.tagIds));
+                Set<Tag> tags = new HashSet<>(tagService.getTagsByIds(dto.tagIds));
                 task.setTags(tags);
             }
 
@@ -119,4 +236,73 @@ public class TaskController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    // 自身を含むサブタスク全体（浅い順）
+    @GetMapping("/{id}/subtree")
+    public ResponseEntity<List<TaskDTO>> getSubtree(@PathVariable Long id) {
+        if (taskService.getTaskById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        List<TaskDTO> subtree = taskService.getSubtree(id);
+        if (subtree.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(subtree);
+    }
+
+    @GetMapping("/{id}/progress")
+    public ResponseEntity<TaskHierarchyRepository.Progress> getProgress(@PathVariable Long id) {
+        if (taskService.getTaskById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        TaskHierarchyRepository.Progress progress = taskService.getProgress(id);
+        if (progress.total() == 0) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(progress);
+    }
+
+    // parentId が null ならルートへ移す
+    @PutMapping("/{id}/parent")
+    public ResponseEntity<Void> moveTask(@PathVariable Long id, @RequestBody TaskDTO dto) {
+        if (taskService.getTaskById(id).isEmpty()
+                || (dto.parentId != null && taskService.getTaskById(dto.parentId).isEmpty())) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            taskService.moveTask(id, dto.parentId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    // 手動の並び順での移動（ドラッグ＆ドロップ）。書き換えるのはこのタスクの行だけ
+    @PutMapping("/{id}/move")
+    public ResponseEntity<Task> reorderTask(@PathVariable Long id, @RequestBody TaskMoveDTO dto) {
+        if ((dto.afterId == null) == (dto.beforeId == null) || id.equals(dto.afterId) || id.equals(dto.beforeId)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return taskService.reorderTask(id, dto.afterId, dto.beforeId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // 前後のキーが重なっていた。バックグラウンドの振り直しが終われば同じ要求が通る
+    @ExceptionHandler(PositionConflictException.class)
+    public ResponseEntity<String> handlePositionConflict(PositionConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).header("Retry-After", "1").body(e.getMessage());
+    }
+
+    // 変更履歴（新しい順）。このノードのローカルの履歴ログから読む
+    @GetMapping("/{id}/history")
+    public ResponseEntity<List<HistoryDTO>> getHistory(@PathVariable Long id,
+                                                       @RequestParam(defaultValue = "50") int limit) {
+        if (taskService.getTaskById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(historyLog.history(HistoryEvent.EntityType.TASK, id, Math.min(limit, 1000)).stream()
+                .map(HistoryMapper::toDTO)
+                .collect(Collectors.toList()));
+    }
 }
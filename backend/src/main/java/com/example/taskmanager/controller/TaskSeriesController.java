@@ -0,0 +1,134 @@
+package com.example.taskmanager.controller;
+
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.model.Task;
+import com.example.taskmanager.model.TaskSeries;
+import com.example.taskmanager.service.RecurringTaskService;
+import com.example.taskmanager.service.TaskService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@CrossOrigin(origins = "http://localhost:3000")
+@RestController
+@RequestMapping("/api/series")
+public class TaskSeriesController {
+
+    private final RecurringTaskService recurringTaskService;
+    private final TaskService taskService;
+
+    public TaskSeriesController(RecurringTaskService recurringTaskService, TaskService taskService) {
+        this.recurringTaskService = recurringTaskService;
+        this.taskService = taskService;
+    }
+
+    @GetMapping
+    public List<TaskSeries> getAllSeries() {
+        return recurringTaskService.getAllSeries();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<TaskSeries> getSeries(@PathVariable Long id) {
+        return recurringTaskService.getSeries(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping
+    public ResponseEntity<TaskSeries> createSeries(@RequestBody TaskSeries series) {
+        if (!isValid(series)) {
+            return ResponseEntity.badRequest().build();
+        }
+        series.setId(null);
+        return new ResponseEntity<>(recurringTaskService.saveSeries(series), HttpStatus.CREATED);
+    }
+
+    // ルールの変更は実体化済み・削除済みの回には影響しない
+    @PutMapping("/{id}")
+    public ResponseEntity<TaskSeries> updateSeries(@PathVariable Long id, @RequestBody TaskSeries dto) {
+        if (!isValid(dto)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<TaskSeries> optionalSeries = recurringTaskService.getSeries(id);
+        if (optionalSeries.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        TaskSeries series = optionalSeries.get();
+        series.setTitle(dto.getTitle());
+        series.setDescription(dto.getDescription());
+        series.setFrequency(dto.getFrequency());
+        series.setInterval(dto.getInterval());
+        series.setDaysOfWeek(dto.getDaysOfWeek());
+        series.setWeekOfMonth(dto.getWeekOfMonth());
+        series.setStartDate(dto.getStartDate());
+        series.setEndDate(dto.getEndDate());
+        return ResponseEntity.ok(recurringTaskService.saveSeries(series));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteSeries(@PathVariable Long id) {
+        if (recurringTaskService.getSeries(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        recurringTaskService.deleteSeries(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    // その回だけを実体化して完了状態を切り替える
+    @PutMapping("/{id}/occurrences/{date}/toggle")
+    public ResponseEntity<Task> toggleOccurrence(@PathVariable Long id,
+                                                 @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        Optional<Task> optionalTask = recurringTaskService.materialize(id, date);
+        if (optionalTask.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(taskService.toggleTask(optionalTask.get()));
+    }
+
+    // その回だけを実体化して編集する
+    @PutMapping("/{id}/occurrences/{date}")
+    public ResponseEntity<Task> updateOccurrence(@PathVariable Long id,
+                                                 @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                 @RequestBody TaskDTO dto) {
+        Optional<Task> optionalTask = recurringTaskService.materialize(id, date);
+        if (optionalTask.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Task task = optionalTask.get();
+        task.setTitle(dto.title);
+        task.setDescription(dto.description);
+        if (dto.dueDate != null) {
+            task.setDueDate(LocalDate.parse(dto.dueDate));
+        }
+        return ResponseEntity.ok(taskService.saveTask(task));
+    }
+
+    @DeleteMapping("/{id}/occurrences/{date}")
+    public ResponseEntity<Void> deleteOccurrence(@PathVariable Long id,
+                                                 @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        if (!recurringTaskService.deleteOccurrence(id, date)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private static boolean isValid(TaskSeries series) {
+        return series.getFrequency() != null && series.getStartDate() != null && series.getInterval() >= 1
+                && (series.getEndDate() == null || !series.getEndDate().isBefore(series.getStartDate()))
+                && (series.getWeekOfMonth() == null || (series.getWeekOfMonth() >= -1 && series.getWeekOfMonth() <= 5
+                        && series.getWeekOfMonth() != 0));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.taskmanager.datasource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 読み取り専用トランザクションをレプリカへ、それ以外をプライマリへ振り分ける DataSource。
+ * トランザクション属性を参照するため、必ず LazyConnectionDataSourceProxy で包んで使う。
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final ReplicaHealthMonitor healthMonitor;
+    private final ReadYourWritesTracker writesTracker;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary,
+                                      Map<String, DataSource> replicas,
+                                      ReplicaHealthMonitor healthMonitor,
+                                      ReadYourWritesTracker writesTracker) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.healthMonitor = healthMonitor;
+        this.writesTracker = writesTracker;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        String replica = chooseReplica();
+        if (replica == null) {
+            return primary.getConnection();
+        }
+        try {
+            return replicas.get(replica).getConnection();
+        } catch (SQLException e) {
+            // レプリカが落ちていたら次のヘルスチェックを待たずにプライマリへ切り替える
+            healthMonitor.markDown(replica, e);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * 使用するレプリカのキーを返す。プライマリを使うべき場合は null。
+     */
+    String chooseReplica() {
+        String username = currentUsername();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                writesTracker.recordWrite(username);
+            }
+            return null;
+        }
+        if (writesTracker.isSticky(username)) {
+            return null;
+        }
+        List<String> healthy = healthMonitor.healthyReplicas();
+        if (healthy.isEmpty()) {
+            return null;
+        }
+        return healthy.get(Math.floorMod(next.getAndIncrement(), healthy.size()));
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : null;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.taskmanager.datasource;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ユーザーごとの最終書き込み時刻を記録し、直後の読み取りをプライマリに固定する（read-your-writes）。
+ */
+public class ReadYourWritesTracker {
+
+    private final long stickyWindowMs;
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(long stickyWindowMs) {
+        this.stickyWindowMs = stickyWindowMs;
+    }
+
+    public void recordWrite(String username) {
+        if (username != null) {
+            lastWrites.put(username, System.currentTimeMillis());
+        }
+    }
+
+    public boolean isSticky(String username) {
+        if (username == null) {
+            return false;
+        }
+        Long lastWrite = lastWrites.get(username);
+        return lastWrite != null && System.currentTimeMillis() - lastWrite < stickyWindowMs;
+    }
+
+    // 期限切れのエントリを捨ててマップが際限なく育たないようにする
+    @Scheduled(fixedDelayString = "${app.datasource.sticky-window-ms:3000}")
+    public void evictExpired() {
+        long threshold = System.currentTimeMillis() - stickyWindowMs;
+        lastWrites.values().removeIf(lastWrite -> lastWrite < threshold);
+    }
+}
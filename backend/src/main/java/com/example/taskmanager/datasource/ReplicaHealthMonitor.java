@@ -0,0 +1,102 @@
+package com.example.taskmanager.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * レプリカの死活とレプリケーション遅延を定期的に確認し、ルーティング可能なレプリカを管理する。
+ */
+public class ReplicaHealthMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaHealthMonitor.class);
+
+    private final Map<String, DataSource> replicas;
+    private final long maxLagSeconds;
+    private final Set<String> healthy = ConcurrentHashMap.newKeySet();
+    private volatile List<String> healthySnapshot = List.of();
+
+    public ReplicaHealthMonitor(Map<String, DataSource> replicas, long maxLagSeconds) {
+        this.replicas = replicas;
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    public Map<String, DataSource> replicas() {
+        return replicas;
+    }
+
+    public List<String> healthyReplicas() {
+        return healthySnapshot;
+    }
+
+    public void markDown(String replica, Exception cause) {
+        if (healthy.remove(replica)) {
+            logger.warn("Replica {} marked down: {}", replica, cause.getMessage());
+            refreshSnapshot();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.health-check-interval-ms:5000}")
+    public void checkReplicas() {
+        replicas.forEach((name, dataSource) -> {
+            boolean ok = isUsable(name, dataSource);
+            boolean changed = ok ? healthy.add(name) : healthy.remove(name);
+            if (changed) {
+                logger.info("Replica {} is now {}", name, ok ? "UP" : "DOWN");
+            }
+        });
+        refreshSnapshot();
+    }
+
+    private boolean isUsable(String name, DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            Long lag = replicationLag(statement);
+            if (lag == null) {
+                logger.warn("Replica {} reports no replication lag (replication stopped?)", name);
+                return false;
+            }
+            if (lag > maxLagSeconds) {
+                logger.warn("Replica {} is lagging {}s (max {}s)", name, lag, maxLagSeconds);
+                return false;
+            }
+            return true;
+        } catch (SQLException e) {
+            logger.debug("Replica {} health check failed", name, e);
+            return false;
+        }
+    }
+
+    /**
+     * 遅延秒数を返す。レプリケーション未設定のインスタンス（ローカルの代用 DB など）は 0 とみなす。
+     */
+    private Long replicationLag(Statement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SHOW REPLICA STATUS")) {
+            if (!rs.next()) {
+                return 0L;
+            }
+            long lag = rs.getLong("Seconds_Behind_Source");
+            return rs.wasNull() ? null : lag;
+        } catch (SQLException e) {
+            // 権限不足や古い MySQL では SHOW REPLICA STATUS が使えないので疎通確認だけ行う
+            statement.execute("SELECT 1");
+            return 0L;
+        }
+    }
+
+    private void refreshSnapshot() {
+        healthySnapshot = replicas.keySet().stream()
+                .filter(healthy::contains)
+                .toList();
+    }
+}
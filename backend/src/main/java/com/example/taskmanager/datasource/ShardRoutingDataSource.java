@@ -0,0 +1,47 @@
+package com.example.taskmanager.datasource;
+
+import com.example.taskmanager.sharding.ShardContext;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * {@link ShardContext} のシャードの DataSource から接続を返す。JPA / JdbcTemplate はこの下で透過的に振り分けられる。
+ */
+public class ShardRoutingDataSource extends AbstractDataSource {
+
+    private final List<DataSource> shards;
+
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        this.shards = List.copyOf(shards);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return current().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return current().getConnection(username, password);
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public DataSource shard(int shard) {
+        return shards.get(shard);
+    }
+
+    private DataSource current() {
+        int shard = ShardContext.currentShard();
+        if (shard < 0 || shard >= shards.size()) {
+            throw new IllegalStateException("No such shard: " + shard + " (configured: " + shards.size() + ")");
+        }
+        return shards.get(shard);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.taskmanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+public class HistoryDTO {
+    public String timestamp;
+    public String entityType;
+    public String op;
+    public long entityId;
+    // 変更後のスナップショット（JSON のまま返す）。削除時は null
+    @JsonRawValue
+    public String snapshot;
+}
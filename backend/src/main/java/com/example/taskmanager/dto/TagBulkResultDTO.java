@@ -0,0 +1,16 @@
+package com.example.taskmanager.dto;
+
+// タグの一括操作で変わった行数
+public class TagBulkResultDTO {
+    public long tagId;
+    // task_tags に追加・削除した行
+    public int linksAdded;
+    public int linksRemoved;
+    // task_tags_archive（アーカイブ済みのタスク）から削除した行
+    public int archivedLinksRemoved;
+    public int tagsDeleted;
+
+    public TagBulkResultDTO(long tagId) {
+        this.tagId = tagId;
+    }
+}
@@ -9,4 +9,10 @@ public class TaskDTO {
     public boolean completed;
     public String dueDate;
     public Set<Long> tagIds;
+    public Long parentId;
+    // 繰り返しタスクの回。まだ実体化されていない回は id が null
+    public Long seriesId;
+    public String occurrenceDate;
+    public String position;
+    public boolean archived;
 }
@@ -0,0 +1,19 @@
+package com.example.taskmanager.dto;
+
+import com.example.taskmanager.readmodel.TaskQuery;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// タグの一括付け外しの対象。指定した条件をすべて満たすタスクが対象で、何も指定しなければ自分のすべてのタスク
+public class TaskFilterDTO {
+    public List<Long> taskIds;
+    public Boolean completed;
+    public Long tagId;
+    public LocalDate dueFrom;
+    public LocalDate dueTo;
+
+    public TaskQuery toQuery() {
+        return new TaskQuery(completed, tagId, dueFrom, dueTo);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.taskmanager.dto;
+
+// afterId のすぐ後ろ、または beforeId のすぐ前へ移す（どちらか一方だけを指定する）
+public class TaskMoveDTO {
+    public Long afterId;
+    public Long beforeId;
+}
@@ -0,0 +1,9 @@
+package com.example.taskmanager.dto;
+
+import java.util.List;
+
+public class TaskPageDTO {
+    public List<TaskDTO> items;
+    // 次のページの cursor。最後のページなら null
+    public String nextCursor;
+}
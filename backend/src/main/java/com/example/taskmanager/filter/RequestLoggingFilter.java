@@ -6,7 +6,11 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.util.ContentCachingRequestWrapper;
 
@@ -19,6 +23,14 @@ import java.util.Enumeration;
 public class RequestLoggingFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(RequestLoggingFilter.class);
+    // 本文がバイナリで大きくなりうるパス
+    private static final String ATTACHMENTS = "/api/tasks/*/attachments/**";
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    // ログに残す本文の上限。超えた分はキャッシュせずにそのまま読ませる
+    @Value("${app.request-logging.max-body-bytes:10240}")
+    private int maxBodyBytes;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -26,17 +38,40 @@ public class RequestLoggingFilter extends OncePerRequestFilter {
                                     FilterChain filterChain)
             throws ServletException, IOException {
 
+        // 添付ファイルなどのバイナリはヒープに溜めないよう、ラップせずにそのまま流す
+        if (pathMatcher.match(ATTACHMENTS, request.getRequestURI()) || !hasTextBody(request)) {
+            filterChain.doFilter(request, response);
+            logRequestDetails(request, null);
+            return;
+        }
+
         // リクエストをキャッシュ可能にラップ
-        ContentCachingRequestWrapper wrappedRequest = new ContentCachingRequestWrapper(request);
+        ContentCachingRequestWrapper wrappedRequest = new ContentCachingRequestWrapper(request, maxBodyBytes);
 
         // フィルター処理を継続
         filterChain.doFilter(wrappedRequest, response);
 
         // ログ出力
-        logRequestDetails(wrappedRequest);
+        logRequestDetails(wrappedRequest, wrappedRequest);
     }
 
-    private void logRequestDetails(ContentCachingRequestWrapper request) {
+    private static boolean hasTextBody(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return "text".equals(mediaType.getType())
+                    || mediaType.isCompatibleWith(MediaType.APPLICATION_FORM_URLENCODED)
+                    || "json".equals(mediaType.getSubtype()) || mediaType.getSubtype().endsWith("+json")
+                    || "xml".equals(mediaType.getSubtype()) || mediaType.getSubtype().endsWith("+xml");
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    private void logRequestDetails(HttpServletRequest request, ContentCachingRequestWrapper cached) {
         String method = request.getMethod();
         String uri = request.getRequestURI();
         String query = request.getQueryString();
@@ -57,7 +92,10 @@ public class RequestLoggingFilter extends OncePerRequestFilter {
         }
 
         // リクエストボディ出力（最大長に注意）
-        byte[] buf = request.getContentAsByteArray();
+        if (cached == null) {
+            return;
+        }
+        byte[] buf = cached.getContentAsByteArray();
         if (buf.length > 0) {
             try {
                 String body = new String(buf, 0, buf.length, request.getCharacterEncoding());
@@ -0,0 +1,30 @@
+package com.example.taskmanager.history;
+
+/**
+ * 履歴ログの1レコード。payload は変更後のスナップショット（UTF-8 の JSON、削除時は空）。
+ *
+ * <p>種別と操作はファイルに ordinal で書くので、enum には末尾にだけ追加すること。
+ */
+public record HistoryEvent(long timestamp, EntityType entityType, Op op, long entityId, byte[] payload) {
+
+    public enum EntityType { TASK, TAG }
+
+    public enum Op {
+        CREATE, UPDATE, TOGGLE, MOVE, DELETE, ARCHIVE,
+        // タグの一括操作。payload は対象のタスク ID などの操作の内容で、スナップショットではない
+        ASSIGN, UNASSIGN, MERGE;
+
+        public boolean isBulk() {
+            return this == ASSIGN || this == UNASSIGN || this == MERGE;
+        }
+    }
+
+    // 種別ごとの ID を1つの long にまとめたもの（ID は 2^56 未満を想定）
+    long key() {
+        return key(entityType, entityId);
+    }
+
+    static long key(EntityType entityType, long entityId) {
+        return ((long) entityType.ordinal() << 56) | entityId;
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.taskmanager.history;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * タスク・タグの変更履歴を、メモリマップしたローカルのセグメントファイルへ追記するログ。
+ *
+ * <p>追記要求はキューに積み、ライタースレッドがまとめて書き込む（グループコミット）。
+ * ページキャッシュに書いた時点でプロセスが落ちても失われず、fsync は {@code fsync-interval-ms} ごとにまとめて行う。
+ * セグメントが一杯になると次のファイルへ切り替える。{@code retention} より古いセグメントは切り替えのたびと、
+ * {@code retention-check-interval-ms} ごとに削除する（書き込みが少なく切り替わらない間も消えるように）。
+ */
+@Component
+public class HistoryLog implements SmartLifecycle {
+
+    private record Pending(HistoryEvent event, CompletableFuture<Void> done) {}
+
+    private static final Logger logger = LoggerFactory.getLogger(HistoryLog.class);
+
+    private final Path dir;
+    private final int segmentSize;
+    private final Duration retention;
+    private final long fsyncIntervalMs;
+    private final int maxBatch;
+    private final boolean enabled;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BlockingQueue<Pending> queue;
+    private final NavigableMap<Long, HistorySegment> segments = new ConcurrentSkipListMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running;
+    private Thread writer;
+
+    public HistoryLog(@Value("${app.history.dir:data/history}") Path dir,
+                      @Value("${app.history.segment-size-bytes:67108864}") int segmentSize,
+                      @Value("${app.history.retention:90d}") Duration retention,
+                      @Value("${app.history.fsync-interval-ms:1000}") long fsyncIntervalMs,
+                      @Value("${app.history.max-batch:1024}") int maxBatch,
+                      @Value("${app.history.queue-capacity:100000}") int queueCapacity,
+                      @Value("${app.history.enabled:true}") boolean enabled) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.retention = retention;
+        this.fsyncIntervalMs = fsyncIntervalMs;
+        this.maxBatch = maxBatch;
+        this.enabled = enabled;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * 現在のトランザクションがコミットされたら履歴に追記する。snapshot は呼び出し時点で JSON にする。
+     */
+    public void record(HistoryEvent.EntityType entityType, HistoryEvent.Op op, long entityId, Object snapshot) {
+        if (!enabled) {
+            return;
+        }
+        HistoryEvent event = new HistoryEvent(System.currentTimeMillis(), entityType, op, entityId, toJson(snapshot));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    append(event);
+                }
+            });
+        } else {
+            append(event);
+        }
+    }
+
+    /**
+     * 追記を要求する。返り値はセグメントに書き込まれた時点で完了する（fsync は待たない）。
+     */
+    public CompletableFuture<Void> append(HistoryEvent event) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (!running || !queue.offer(new Pending(event, done))) {
+            // 業務処理は止めない
+            if (dropped.incrementAndGet() % 1000 == 1) {
+                logger.warn("History log is not accepting events; {} dropped so far", dropped.get());
+            }
+            done.completeExceptionally(new IllegalStateException("history log is not accepting events"));
+        }
+        return done;
+    }
+
+    /**
+     * 指定エンティティの履歴を新しい順に最大 limit 件返す。
+     */
+    public List<HistoryEvent> history(HistoryEvent.EntityType entityType, long entityId, int limit) {
+        List<HistoryEvent> events = new ArrayList<>();
+        long key = HistoryEvent.key(entityType, entityId);
+        for (HistorySegment segment : segments.descendingMap().values()) {
+            if (events.size() >= limit) {
+                break;
+            }
+            segment.readHistory(key, limit - events.size(), events::add);
+        }
+        return events;
+    }
+
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(dir);
+            List<Path> files;
+            try (Stream<Path> list = Files.list(dir)) {
+                files = list.filter(p -> p.getFileName().toString().matches("history-\\d{20}\\.log"))
+                        .sorted()
+                        .toList();
+            }
+            for (int i = 0; i < files.size(); i++) {
+                HistorySegment segment = HistorySegment.open(files.get(i), i == files.size() - 1);
+                segments.put(segment.number(), segment);
+            }
+            if (segments.isEmpty()) {
+                HistorySegment segment = HistorySegment.create(dir, 1, segmentSize);
+                segments.put(segment.number(), segment);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open history log in " + dir, e);
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "history-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // ライターがまだ書いている間に閉じると、マップの解放後の書き込みや空の segments で落ちる
+        if (writer.isAlive()) {
+            logger.warn("History log writer did not stop in time; leaving {} segments open", segments.size());
+            return;
+        }
+        segments.values().forEach(HistorySegment::close);
+        segments.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Web サーバーや RabbitMQ のリスナーより先に開始し、それらが止まってから閉じる
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        long lastSync = System.nanoTime();
+        boolean dirty = false;
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(fsyncIntervalMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatch - 1);
+                    for (Pending pending : batch) {
+                        write(pending);
+                    }
+                    batch.clear();
+                    dirty = true;
+                }
+                if (dirty && System.nanoTime() - lastSync >= TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs)) {
+                    segments.lastEntry().getValue().force();
+                    lastSync = System.nanoTime();
+                    dirty = false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException | IOException e) {
+                logger.error("History log write failed", e);
+                batch.forEach(pending -> pending.done().completeExceptionally(e));
+                batch.clear();
+            }
+        }
+        segments.lastEntry().getValue().force();
+    }
+
+    private void write(Pending pending) throws IOException {
+        HistoryEvent event = pending.event();
+        if (HistorySegment.HEADER_SIZE + event.payload().length > segmentSize) {
+            pending.done().completeExceptionally(new IllegalArgumentException("history record too large"));
+            return;
+        }
+        HistorySegment active = segments.lastEntry().getValue();
+        if (active.append(event) < 0) {
+            active = rollover(active);
+            active.append(event);
+        }
+        pending.done().complete(null);
+    }
+
+    /**
+     * retention より古い、追記を終えたセグメントを削除する。
+     */
+    @Scheduled(fixedDelayString = "${app.history.retention-check-interval-ms:3600000}")
+    public void deleteExpired() {
+        if (!running) {
+            return;
+        }
+        try {
+            deleteExpiredSegments();
+        } catch (IOException e) {
+            logger.warn("Failed to delete expired history segments", e);
+        }
+    }
+
+    private HistorySegment rollover(HistorySegment active) throws IOException {
+        active.seal();
+        HistorySegment next = HistorySegment.create(dir, active.number() + 1, segmentSize);
+        segments.put(next.number(), next);
+        deleteExpiredSegments();
+        return next;
+    }
+
+    // ライターと定期実行の両方から呼ばれる。追記中（最後）のセグメントは対象にしない
+    private void deleteExpiredSegments() throws IOException {
+        long cutoff = System.currentTimeMillis() - retention.toMillis();
+        for (Map.Entry<Long, HistorySegment> entry : segments.headMap(segments.lastKey()).entrySet()) {
+            if (entry.getValue().lastTimestamp() < cutoff && segments.remove(entry.getKey(), entry.getValue())) {
+                entry.getValue().delete();
+            }
+        }
+    }
+
+    private byte[] toJson(Object snapshot) {
+        if (snapshot == null) {
+            return new byte[0];
+        }
+        try {
+            return objectMapper.writeValueAsBytes(snapshot);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.taskmanager.history;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 履歴ログを古い順に再生して標準出力に書き出すコマンドラインツール。アプリケーションを止めずに実行できる。
+ *
+ * <pre>
+ *   HistoryReplay &lt;dir&gt; [--type TASK|TAG] [--id N] [--since 2026-01-01T00:00:00Z] [--state]
+ * </pre>
+ *
+ * {@code --state} を付けると、各エンティティの最後のスナップショット（削除・アーカイブ済みを除く）だけを出力する。
+ * タグの一括操作（ASSIGN / UNASSIGN / MERGE）の記録はスナップショットではないので含めない。
+ */
+public class HistoryReplay {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: HistoryReplay <dir> [--type TASK|TAG] [--id N] [--since ISO-8601] [--state]");
+            System.exit(2);
+        }
+        Path dir = Path.of(args[0]);
+        HistoryEvent.EntityType type = null;
+        Long id = null;
+        long since = Long.MIN_VALUE;
+        boolean state = false;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--type" -> type = HistoryEvent.EntityType.valueOf(args[++i]);
+                case "--id" -> id = Long.parseLong(args[++i]);
+                case "--since" -> since = Instant.parse(args[++i]).toEpochMilli();
+                case "--state" -> state = true;
+                default -> throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+        }
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(p -> p.getFileName().toString().matches("history-\\d{20}\\.log")).sorted().toList();
+        }
+        Map<Long, HistoryEvent> latest = new LinkedHashMap<>();
+        for (Path file : files) {
+            HistorySegment segment = HistorySegment.open(file, false);
+            try {
+                HistoryEvent.EntityType typeFilter = type;
+                Long idFilter = id;
+                long sinceFilter = since;
+                boolean collectState = state;
+                segment.forEach(event -> {
+                    if ((typeFilter != null && event.entityType() != typeFilter)
+                            || (idFilter != null && event.entityId() != idFilter)
+                            || event.timestamp() < sinceFilter) {
+                        return;
+                    }
+                    if (collectState) {
+                        if (event.op().isBulk()) {
+                            // 一括操作の記録はタグの状態ではない
+                            return;
+                        }
+                        latest.remove(event.key());
+                        latest.put(event.key(), event);
+                    } else {
+                        System.out.println(format(event));
+                    }
+                });
+            } finally {
+                segment.close();
+            }
+        }
+        if (state) {
+            latest.values().stream()
+                    .filter(event -> event.op() != HistoryEvent.Op.DELETE && event.op() != HistoryEvent.Op.ARCHIVE)
+                    .forEach(event -> System.out.println(format(event)));
+        }
+    }
+
+    private static String format(HistoryEvent event) {
+        return Instant.ofEpochMilli(event.timestamp()) + "\t" + event.entityType() + "\t" + event.op() + "\t"
+                + event.entityId() + "\t" + new String(event.payload(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.taskmanager.history;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 履歴ログの1セグメント。固定サイズで確保したファイルをメモリマップし、先頭から追記する。
+ *
+ * <p>レコード形式（ビッグエンディアン）:
+ * <pre>
+ *   int  length     レコード全体のバイト数（0 はデータの終わり）
+ *   int  crc32      timestamp 以降の CRC
+ *   long timestamp  エポックミリ秒
+ *   byte entityType
+ *   byte op
+ *   long entityId
+ *   int  prevPos    同じセグメント内の、同じエンティティの1つ前のレコード位置（なければ -1）
+ *   byte[] payload
+ * </pre>
+ *
+ * <p>索引はエンティティごとに最新レコードの位置だけを持ち、それより前は prevPos をたどる。
+ * 書き込みは1スレッド（{@link HistoryLog} のライター）だけが行い、読み取りは任意のスレッドから行える。
+ */
+class HistorySegment {
+
+    static final int HEADER_SIZE = 30;
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final int ZERO_CHUNK = 64 * 1024;
+
+    private final Path path;
+    private final long number;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final Map<Long, Integer> index = new ConcurrentHashMap<>();
+    private volatile int position;
+    private volatile long lastTimestamp;
+
+    private HistorySegment(Path path, long number, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.number = number;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    static Path fileName(Path dir, long number) {
+        return dir.resolve(String.format("history-%020d.log", number));
+    }
+
+    static long numberOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("history-".length(), name.length() - ".log".length()));
+    }
+
+    static HistorySegment create(Path dir, long number, int size) throws IOException {
+        Path path = fileName(dir, number);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new HistorySegment(path, number, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    /**
+     * 既存のセグメントを開く。索引ファイルがあればそれを読み、なければ先頭から走査して作り直す。
+     * 走査では CRC が合わない（書き込み途中で落ちた）レコード以降を捨てる。
+     */
+    static HistorySegment open(Path path, boolean writable) throws IOException {
+        FileChannel channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ);
+        MappedByteBuffer buffer = channel.map(
+                writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        HistorySegment segment = new HistorySegment(path, numberOf(path), channel, buffer);
+        if (writable || !segment.loadIndex()) {
+            segment.recover(writable);
+        }
+        return segment;
+    }
+
+    long number() {
+        return number;
+    }
+
+    int position() {
+        return position;
+    }
+
+    long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * レコードを追記して位置を返す。容量が足りなければ -1。
+     */
+    int append(HistoryEvent event) {
+        int length = HEADER_SIZE + event.payload().length;
+        int pos = position;
+        if (pos + length > buffer.capacity()) {
+            return -1;
+        }
+        long key = event.key();
+        buffer.putLong(pos + 8, event.timestamp());
+        buffer.put(pos + 16, (byte) event.entityType().ordinal());
+        buffer.put(pos + 17, (byte) event.op().ordinal());
+        buffer.putLong(pos + 18, event.entityId());
+        buffer.putInt(pos + 26, index.getOrDefault(key, -1));
+        buffer.put(pos + HEADER_SIZE, event.payload());
+        buffer.putInt(pos + 4, crc(pos, length));
+        // length を最後に書くので、途中で落ちても length が 0 のまま残る
+        buffer.putInt(pos, length);
+
+        position = pos + length;
+        lastTimestamp = event.timestamp();
+        index.put(key, pos);
+        return pos;
+    }
+
+    /**
+     * 指定エンティティのレコードを新しい順に最大 limit 件 consumer へ渡し、渡した件数を返す。
+     */
+    int readHistory(long key, int limit, Consumer<HistoryEvent> consumer) {
+        int count = 0;
+        Integer pos = index.get(key);
+        for (int p = pos != null ? pos : -1; p >= 0 && count < limit; p = buffer.getInt(p + 26)) {
+            consumer.accept(read(p));
+            count++;
+        }
+        return count;
+    }
+
+    void forEach(Consumer<HistoryEvent> consumer) {
+        for (int pos = 0; pos < position; pos += buffer.getInt(pos)) {
+            consumer.accept(read(pos));
+        }
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * 追記を終えたセグメントの索引をファイルに書き出す。
+     */
+    void seal() throws IOException {
+        force();
+        Path tmp = indexPath().resolveSibling(indexPath().getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp))) {
+            out.writeInt(position);
+            out.writeLong(lastTimestamp);
+            out.writeInt(index.size());
+            for (Map.Entry<Long, Integer> entry : index.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        }
+        Files.move(tmp, indexPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // マップはGCされるまで残るが、Linux ではファイル削除後も読み取り中のスレッドに影響しない
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(indexPath());
+        Files.deleteIfExists(path);
+    }
+
+    private HistoryEvent read(int pos) {
+        int length = buffer.getInt(pos);
+        byte[] payload = new byte[length - HEADER_SIZE];
+        buffer.get(pos + HEADER_SIZE, payload);
+        return new HistoryEvent(
+                buffer.getLong(pos + 8),
+                HistoryEvent.EntityType.values()[buffer.get(pos + 16)],
+                HistoryEvent.Op.values()[buffer.get(pos + 17)],
+                buffer.getLong(pos + 18),
+                payload);
+    }
+
+    private int crc(int pos, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(pos + 8, length - 8));
+        return (int) crc.getValue();
+    }
+
+    private void recover(boolean writable) {
+        int pos = 0;
+        while (pos + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(pos);
+            if (length < HEADER_SIZE || pos + length > buffer.capacity()
+                    || buffer.getInt(pos + 4) != crc(pos, length)) {
+                break;
+            }
+            long key = HistoryEvent.key(
+                    HistoryEvent.EntityType.values()[buffer.get(pos + 16)], buffer.getLong(pos + 18));
+            index.put(key, pos);
+            lastTimestamp = buffer.getLong(pos + 8);
+            pos += length;
+        }
+        position = pos;
+        // 壊れたレコードの残骸を消しておかないと、後で追記した先に古いバイト列が残る。
+        // セグメント全体ぶんの配列を確保しないよう、小さな 0 の塊を繰り返し書く
+        if (writable && pos + 4 <= buffer.capacity() && buffer.getInt(pos) != 0) {
+            ByteBuffer zeros = ByteBuffer.allocate(Math.min(ZERO_CHUNK, buffer.capacity() - pos));
+            for (int p = pos; p < buffer.capacity(); p += zeros.capacity()) {
+                buffer.put(p, zeros, 0, Math.min(zeros.capacity(), buffer.capacity() - p));
+            }
+        }
+    }
+
+    private boolean loadIndex() throws IOException {
+        if (!Files.exists(indexPath())) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(indexPath()))) {
+            position = in.readInt();
+            lastTimestamp = in.readLong();
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                index.put(in.readLong(), in.readInt());
+            }
+        }
+        return true;
+    }
+
+    private Path indexPath() {
+        return path.resolveSibling(path.getFileName().toString().replace(".log", INDEX_SUFFIX));
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.taskmanager.mapper;
+
+import com.example.taskmanager.dto.HistoryDTO;
+import com.example.taskmanager.history.HistoryEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+public class HistoryMapper {
+
+    public static HistoryDTO toDTO(HistoryEvent event) {
+        HistoryDTO dto = new HistoryDTO();
+        dto.timestamp = Instant.ofEpochMilli(event.timestamp()).toString();
+        dto.entityType = event.entityType().name();
+        dto.op = event.op().name();
+        dto.entityId = event.entityId();
+        dto.snapshot = event.payload().length > 0 ? new String(event.payload(), StandardCharsets.UTF_8) : null;
+        return dto;
+    }
+}
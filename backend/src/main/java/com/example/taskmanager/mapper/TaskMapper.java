@@ -4,6 +4,7 @@ import com.example.taskmanager.dto.TaskDTO;
 import com.example.taskmanager.model.Task;
 import com.example.taskmanager.model.Tag;
 
+import java.util.HashSet;
 import java.util.stream.Collectors;
 
 public class TaskMapper {
@@ -15,9 +16,13 @@ public class TaskMapper {
         dto.description = task.getDescription();
         dto.completed = task.isCompleted();
         dto.dueDate = task.getDueDate() != null ? task.getDueDate().toString() : null;
-        dto.tagIds = task.getTags().stream()
-                .map(Tag::getId)
-                .collect(Collectors.toSet());
+        dto.parentId = task.getParentId();
+        dto.seriesId = task.getSeriesId();
+        dto.occurrenceDate = task.getOccurrenceDate() != null ? task.getOccurrenceDate().toString() : null;
+        dto.position = task.getPosition();
+        dto.tagIds = task.getTags() != null
+                ? task.getTags().stream().map(Tag::getId).collect(Collectors.toSet())
+                : new HashSet<>();
         return dto;
     }
 }
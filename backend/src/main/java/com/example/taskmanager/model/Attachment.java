@@ -0,0 +1,79 @@
+package com.example.taskmanager.model;
+
+import java.time.LocalDateTime;
+
+import com.example.taskmanager.sharding.OwnerStampListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Filter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * タスクの添付ファイルのメタデータ。本体は AttachmentStore が sha256 の名前で保存する。
+ */
+@Entity
+@Table(name = "attachments")
+@EntityListeners(OwnerStampListener.class)
+@Filter(name = Owned.FILTER)
+public class Attachment implements Owned {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "task_id", nullable = false, updatable = false)
+    private Long taskId;
+
+    @Column(nullable = false)
+    private String filename;
+
+    @Column(name = "content_type", nullable = false)
+    private String contentType;
+
+    @Column(nullable = false, updatable = false)
+    private long size;
+
+    @JdbcTypeCode(SqlTypes.CHAR)
+    @Column(nullable = false, updatable = false, length = 64)
+    private String sha256;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @JsonIgnore
+    @Column(name = "owner_id", nullable = false, updatable = false)
+    private Long ownerId;
+
+    public Long getId() { return id; }
+
+    public Long getTaskId() { return taskId; }
+    public void setTaskId(Long taskId) { this.taskId = taskId; }
+
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    @Override
+    public Long getOwnerId() { return ownerId; }
+    @Override
+    public void setOwnerId(Long ownerId) { this.ownerId = ownerId; }
+}
@@ -0,0 +1,19 @@
+package com.example.taskmanager.model;
+
+/**
+ * ユーザーごとのデータ（tasks / tags / task_series）。owner_id がシャードの振り分けと絞り込みの単位になる。
+ *
+ * <p>{@link #FILTER} は自動で有効になり、HQL / Criteria の検索を今の所有者の行に絞る。
+ * ID での読み込み（findById など）とネイティブ SQL には効かないので、呼び出し側で確認すること。
+ */
+public interface Owned {
+
+    String FILTER = "ownerFilter";
+
+    // 所有者が設定されていない（-1）ときは絞り込まない
+    String CONDITION = "(:ownerId < 0 OR owner_id = :ownerId)";
+
+    Long getOwnerId();
+
+    void setOwnerId(Long ownerId);
+}
@@ -1,11 +1,23 @@
 package com.example.taskmanager.model;
 
+import com.example.taskmanager.cache.CacheInvalidationListener;
+import com.example.taskmanager.sharding.OwnerStampListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Filter;
+
+import java.util.Locale;
 import java.util.Set;
 
 @Entity
 @Table(name = "tags")
-public class Tag {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners({CacheInvalidationListener.class, OwnerStampListener.class})
+@Filter(name = Owned.FILTER)
+public class Tag implements Owned {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -13,6 +25,16 @@ public class Tag {
 
     private String name;
 
+    // タグはユーザーごと。同じ名前のタグをユーザーごとに持てる
+    @JsonIgnore
+    @Column(name = "owner_id", nullable = false, updatable = false)
+    private Long ownerId;
+
+    // 重複判定と補完に使う。所有者との組で一意制約つき
+    @JsonIgnore
+    @Column(name = "normalized_name", nullable = false)
+    private String normalizedName;
+
     @ManyToMany(mappedBy = "tags")
     private Set<Task> tasks;
 
@@ -23,6 +45,38 @@ public class Tag {
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
 
+    @Override
+    public Long getOwnerId() { return ownerId; }
+    @Override
+    public void setOwnerId(Long ownerId) { this.ownerId = ownerId; }
+
+    public String getNormalizedName() { return normalizedName; }
+
+    @PrePersist
+    @PreUpdate
+    void normalizeName() {
+        normalizedName = normalize(name);
+    }
+
+    /**
+     * 前後の半角スペースを除いて小文字にする。V5 マイグレーションの LOWER(TRIM(name)) と同じ結果になるよう、
+     * TRIM と同じく半角スペース以外の空白（タブや全角スペースなど）は残す。
+     */
+    public static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        int start = 0;
+        int end = name.length();
+        while (start < end && name.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && name.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return name.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+
     public Set<Task> getTasks() { return tasks; }
     public void setTasks(Set<Task> tasks) { this.tasks = tasks; }
 }
@@ -1,12 +1,25 @@
 package com.example.taskmanager.model;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Filter;
+import org.hibernate.annotations.FilterDef;
+import org.hibernate.annotations.ParamDef;
+
+import com.example.taskmanager.cache.CacheInvalidationListener;
 import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.sharding.OwnerIdResolver;
+import com.example.taskmanager.sharding.OwnerStampListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -18,7 +31,13 @@ import jakarta.persistence.Column;
 
 @Entity
 @Table(name = "tasks")
-public class Task {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners({CacheInvalidationListener.class, OwnerStampListener.class})
+@FilterDef(name = Owned.FILTER, autoEnabled = true, defaultCondition = Owned.CONDITION,
+        parameters = @ParamDef(name = "ownerId", type = Long.class, resolver = OwnerIdResolver.class))
+@Filter(name = Owned.FILTER)
+public class Task implements Owned {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,6 +50,29 @@ public class Task {
     @Column(name = "due_date")
     private LocalDate dueDate;
 
+    // アーカイブ対象の判定に使う
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // 子孫の検索は task_closure で行う。移動は TaskHierarchyRepository 経由で
+    @Column(name = "parent_id")
+    private Long parentId;
+
+    // 繰り返しタスクの回を個別に完了・編集したときだけ設定される
+    @Column(name = "series_id")
+    private Long seriesId;
+
+    @Column(name = "occurrence_date")
+    private LocalDate occurrenceDate;
+
+    // 手動の並び順（FractionalIndex のキー）。同じ値なら id 順
+    @Column(name = "position", nullable = false)
+    private String position;
+
+    @JsonIgnore
+    @Column(name = "owner_id", nullable = false, updatable = false)
+    private Long ownerId;
+
     // Getter & Setter（右クリック → Generate → Getter and Setter でもOK）
     public Long getId() {
         return id;
@@ -61,9 +103,64 @@ public class Task {
     }
 
     public void setCompleted(boolean completed) {
+        if (completed && !this.completed) {
+            this.completedAt = LocalDateTime.now();
+        } else if (!completed) {
+            this.completedAt = null;
+        }
         this.completed = completed;
     }
 
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
+
+    public Long getSeriesId() {
+        return seriesId;
+    }
+
+    public void setSeriesId(Long seriesId) {
+        this.seriesId = seriesId;
+    }
+
+    public LocalDate getOccurrenceDate() {
+        return occurrenceDate;
+    }
+
+    public void setOccurrenceDate(LocalDate occurrenceDate) {
+        this.occurrenceDate = occurrenceDate;
+    }
+
+    public String getPosition() {
+        return position;
+    }
+
+    public void setPosition(String position) {
+        this.position = position;
+    }
+
+    @Override
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    @Override
+    public void setOwnerId(Long ownerId) {
+        this.ownerId = ownerId;
+    }
+
     public LocalDate getDueDate() {
         return dueDate;
     }
@@ -73,6 +170,7 @@ public class Task {
     }
 
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(
         name = "task_tags",
         joinColumns = @JoinColumn(name = "task_id"),
@@ -95,6 +193,10 @@ public class Task {
         dto.description = task.getDescription();
         dto.completed = task.isCompleted();
         dto.dueDate = task.getDueDate() != null ? task.getDueDate().toString() : null;
+        dto.parentId = task.getParentId();
+        dto.seriesId = task.getSeriesId();
+        dto.occurrenceDate = task.getOccurrenceDate() != null ? task.getOccurrenceDate().toString() : null;
+        dto.position = task.getPosition();
         dto.tagIds = task.getTags().stream()
             .map(Tag::getId)
             .collect(Collectors.toSet());
@@ -0,0 +1,234 @@
+package com.example.taskmanager.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.example.taskmanager.sharding.OwnerStampListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Filter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+
+/**
+ * 繰り返しタスクのルール。各回（occurrence）は行として持たず、{@link #occurrencesIn(YearMonth)} で展開する。
+ */
+@Entity
+@Table(name = "task_series")
+@EntityListeners(OwnerStampListener.class)
+@Filter(name = Owned.FILTER)
+public class TaskSeries implements Owned {
+
+    public enum Frequency {
+        // interval 日ごと
+        DAILY,
+        // interval 週ごとの daysOfWeek
+        WEEKLY,
+        // interval か月ごとの第 weekOfMonth の daysOfWeek（-1 は最終）
+        MONTHLY_NTH_WEEKDAY
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String title;
+    private String description;
+
+    @Enumerated(EnumType.STRING)
+    private Frequency frequency;
+
+    @Column(name = "interval_count")
+    private int interval = 1;
+
+    // MONDAY,FRIDAY のようなカンマ区切り
+    @Column(name = "days_of_week")
+    private String daysOfWeek;
+
+    @Column(name = "week_of_month")
+    private Integer weekOfMonth;
+
+    @Column(name = "start_date")
+    private LocalDate startDate;
+
+    @Column(name = "end_date")
+    private LocalDate endDate;
+
+    @JsonIgnore
+    @Column(name = "owner_id", nullable = false, updatable = false)
+    private Long ownerId;
+
+    // 展開結果のキャッシュキーに含めるので、ルールを変えると古い展開は使われなくなる
+    @Version
+    private long version;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public void setFrequency(Frequency frequency) {
+        this.frequency = frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public void setInterval(int interval) {
+        this.interval = interval;
+    }
+
+    public Set<DayOfWeek> getDaysOfWeek() {
+        if (daysOfWeek == null || daysOfWeek.isBlank()) {
+            return EnumSet.noneOf(DayOfWeek.class);
+        }
+        return Arrays.stream(daysOfWeek.split(","))
+                .map(DayOfWeek::valueOf)
+                .collect(Collectors.toCollection(() -> EnumSet.noneOf(DayOfWeek.class)));
+    }
+
+    public void setDaysOfWeek(Set<DayOfWeek> days) {
+        this.daysOfWeek = days == null || days.isEmpty() ? null : EnumSet.copyOf(days).stream()
+                .map(DayOfWeek::name)
+                .collect(Collectors.joining(","));
+    }
+
+    public Integer getWeekOfMonth() {
+        return weekOfMonth;
+    }
+
+    public void setWeekOfMonth(Integer weekOfMonth) {
+        this.weekOfMonth = weekOfMonth;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    @Override
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    @Override
+    public void setOwnerId(Long ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean occursOn(LocalDate date) {
+        return occurrencesIn(YearMonth.from(date)).contains(date);
+    }
+
+    /**
+     * month の中の各回の日付を昇順で返す。計算量はその月の日数に比例し、開始日からの経過には依存しない。
+     */
+    public List<LocalDate> occurrencesIn(YearMonth month) {
+        LocalDate first = month.atDay(1).isBefore(startDate) ? startDate : month.atDay(1);
+        LocalDate last = endDate != null && endDate.isBefore(month.atEndOfMonth()) ? endDate : month.atEndOfMonth();
+        List<LocalDate> dates = new ArrayList<>();
+        if (first.isAfter(last)) {
+            return dates;
+        }
+        int step = Math.max(1, interval);
+        Set<DayOfWeek> days = getDaysOfWeek();
+        if (days.isEmpty()) {
+            days = EnumSet.of(startDate.getDayOfWeek());
+        }
+
+        switch (frequency) {
+            case DAILY -> {
+                long offset = ChronoUnit.DAYS.between(startDate, first);
+                LocalDate date = startDate.plusDays((offset + step - 1) / step * step);
+                for (; !date.isAfter(last); date = date.plusDays(step)) {
+                    dates.add(date);
+                }
+            }
+            case WEEKLY -> {
+                LocalDate startWeek = startDate.with(DayOfWeek.MONDAY);
+                for (LocalDate week = first.with(DayOfWeek.MONDAY); !week.isAfter(last); week = week.plusWeeks(1)) {
+                    if (ChronoUnit.WEEKS.between(startWeek, week) % step != 0) {
+                        continue;
+                    }
+                    for (DayOfWeek day : days) {
+                        LocalDate date = week.with(day);
+                        if (!date.isBefore(first) && !date.isAfter(last)) {
+                            dates.add(date);
+                        }
+                    }
+                }
+            }
+            case MONTHLY_NTH_WEEKDAY -> {
+                if (ChronoUnit.MONTHS.between(YearMonth.from(startDate), month) % step != 0) {
+                    break;
+                }
+                int ordinal = weekOfMonth != null ? weekOfMonth : (startDate.getDayOfMonth() - 1) / 7 + 1;
+                for (DayOfWeek day : days) {
+                    LocalDate date = month.atDay(1).with(TemporalAdjusters.dayOfWeekInMonth(ordinal, day));
+                    // 第5週がない月は飛ばす
+                    if (YearMonth.from(date).equals(month) && !date.isBefore(first) && !date.isAfter(last)) {
+                        dates.add(date);
+                    }
+                }
+                dates.sort(null);
+            }
+        }
+        return dates;
+    }
+}
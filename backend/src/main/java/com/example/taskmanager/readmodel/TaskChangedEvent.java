@@ -0,0 +1,12 @@
+package com.example.taskmanager.readmodel;
+
+/**
+ * タスクかタグが変わったことを知らせるアプリケーションイベント。コミット後に発行される。
+ * 自ノードの変更は {@code ClusterCacheInvalidator} が、他ノードの変更はその無効化通知の受信時に発行する。
+ *
+ * @param id 変わった行の ID。null なら種別全体
+ */
+public record TaskChangedEvent(Kind kind, Long id, boolean remote) {
+
+    public enum Kind { TASK, TAG }
+}
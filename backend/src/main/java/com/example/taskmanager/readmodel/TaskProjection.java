@@ -0,0 +1,234 @@
+package com.example.taskmanager.readmodel;
+
+import com.example.taskmanager.dto.TaskDTO;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 1ユーザー分のタスクを列ごとの配列で持つ、変更不可のスナップショット。期限順（期限なしは最後）、同じ期限なら id 順に並ぶ。
+ * 変更は差分を当てた新しいインスタンスを作って差し替える。
+ */
+final class TaskProjection {
+
+    static final int NO_DATE = Integer.MAX_VALUE;
+    private static final long NONE = 0;
+    private static final int[] NO_TAGS = new int[0];
+
+    /**
+     * 1行分。DB から読んだ値を配列に詰める前の形。tagIds は昇順。比較に ownerId は含めない。
+     */
+    record Row(long id, long ownerId, String title, String description, boolean completed, int dueDay,
+               long parentId, long seriesId, int occurrenceDay, String position, int[] tagIds) {
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Row other && id == other.id && completed == other.completed
+                    && dueDay == other.dueDay && parentId == other.parentId && seriesId == other.seriesId && occurrenceDay == other.occurrenceDay
+                    && Objects.equals(title, other.title)
+                    && Objects.equals(description, other.description)
+                    && Objects.equals(position, other.position)
+                    && Arrays.equals(tagIds, other.tagIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id);
+        }
+    }
+
+    private static final Comparator<Row> ORDER = Comparator.comparingInt(Row::dueDay).thenComparingLong(Row::id);
+
+    private final long[] ids;
+    private final int[] dueDays;
+    private final boolean[] completed;
+    private final String[] titles;
+    private final String[] descriptions;
+    private final String[] positions;
+    private final long[] parentIds;
+    private final long[] seriesIds;
+    private final int[] occurrenceDays;
+    private final int[][] tagIds;
+    // id の昇順（id での検索用）
+    private final long[] sortedIds;
+
+    private TaskProjection(List<Row> rows) {
+        int n = rows.size();
+        ids = new long[n];
+        dueDays = new int[n];
+        completed = new boolean[n];
+        titles = new String[n];
+        descriptions = new String[n];
+        positions = new String[n];
+        parentIds = new long[n];
+        seriesIds = new long[n];
+        occurrenceDays = new int[n];
+        tagIds = new int[n][];
+        for (int i = 0; i < n; i++) {
+            Row row = rows.get(i);
+            ids[i] = row.id();
+            dueDays[i] = row.dueDay();
+            completed[i] = row.completed();
+            titles[i] = row.title();
+            descriptions[i] = row.description();
+            positions[i] = row.position();
+            parentIds[i] = row.parentId();
+            seriesIds[i] = row.seriesId();
+            occurrenceDays[i] = row.occurrenceDay();
+            tagIds[i] = row.tagIds().length == 0 ? NO_TAGS : row.tagIds();
+        }
+        sortedIds = ids.clone();
+        Arrays.sort(sortedIds);
+    }
+
+    static TaskProjection of(Collection<Row> rows) {
+        List<Row> sorted = new ArrayList<>(rows);
+        sorted.sort(ORDER);
+        return new TaskProjection(sorted);
+    }
+
+    /**
+     * upserts で行を置き換え（なければ追加し）、removedIds の行を除いた新しいスナップショット。
+     */
+    TaskProjection apply(Collection<Row> upserts, Set<Long> removedIds) {
+        Map<Long, Row> changed = upserts.stream().collect(Collectors.toMap(Row::id, Function.identity(), (a, b) -> b));
+        List<Row> rows = new ArrayList<>(ids.length + changed.size());
+        for (int i = 0; i < ids.length; i++) {
+            if (!changed.containsKey(ids[i]) && !removedIds.contains(ids[i])) {
+                rows.add(row(i));
+            }
+        }
+        rows.addAll(changed.values());
+        return of(rows);
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    long idSum() {
+        long sum = 0;
+        for (long id : ids) {
+            sum += id;
+        }
+        return sum;
+    }
+
+    boolean contains(long id) {
+        return Arrays.binarySearch(sortedIds, id) >= 0;
+    }
+
+    /**
+     * tagIds のどれかを持つ行の id。
+     */
+    void collectIdsWithAnyTag(Set<Integer> wanted, Set<Long> into) {
+        for (int i = 0; i < ids.length; i++) {
+            for (int tagId : tagIds[i]) {
+                if (wanted.contains(tagId)) {
+                    into.add(ids[i]);
+                    break;
+                }
+            }
+        }
+    }
+
+    List<Row> rows() {
+        List<Row> rows = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            rows.add(row(i));
+        }
+        return rows;
+    }
+
+    /**
+     * 条件に合う行を期限順で返す。期限の範囲は二分探索で絞る。
+     */
+    List<TaskDTO> query(TaskQuery query) {
+        int from = 0;
+        int to = ids.length;
+        if (query.dueFrom() != null) {
+            from = lowerBound(dueDays, (int) query.dueFrom().toEpochDay());
+        }
+        if (query.dueTo() != null) {
+            to = lowerBound(dueDays, (int) query.dueTo().toEpochDay() + 1);
+        } else if (query.dueFrom() != null) {
+            to = lowerBound(dueDays, NO_DATE);
+        }
+        int tagId = query.tagId() != null ? toTagId(query.tagId()) : -1;
+        List<TaskDTO> result = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            if (query.completed() != null && completed[i] != query.completed()) {
+                continue;
+            }
+            if (query.tagId() != null && !hasTag(tagIds[i], tagId)) {
+                continue;
+            }
+            result.add(toDTO(i));
+        }
+        return result;
+    }
+
+    private Row row(int i) {
+        return new Row(ids[i], NONE, titles[i], descriptions[i], completed[i], dueDays[i], parentIds[i], seriesIds[i],
+                occurrenceDays[i], positions[i], tagIds[i]);
+    }
+
+    private TaskDTO toDTO(int i) {
+        TaskDTO dto = new TaskDTO();
+        dto.id = ids[i];
+        dto.title = titles[i];
+        dto.description = descriptions[i];
+        dto.completed = completed[i];
+        dto.dueDate = dueDays[i] != NO_DATE ? LocalDate.ofEpochDay(dueDays[i]).toString() : null;
+        dto.parentId = parentIds[i] != NONE ? parentIds[i] : null;
+        dto.seriesId = seriesIds[i] != NONE ? seriesIds[i] : null;
+        dto.occurrenceDate = occurrenceDays[i] != NO_DATE ? LocalDate.ofEpochDay(occurrenceDays[i]).toString() : null;
+        dto.position = positions[i];
+        Set<Long> tags = new HashSet<>(tagIds[i].length * 2);
+        for (int tagId : tagIds[i]) {
+            tags.add((long) tagId);
+        }
+        dto.tagIds = tags;
+        return dto;
+    }
+
+    static int toTagId(long tagId) {
+        return tagId > Integer.MAX_VALUE || tagId < 0 ? -1 : (int) tagId;
+    }
+
+    // tagIds は昇順
+    private static boolean hasTag(int[] tags, int tagId) {
+        return tagId >= 0 && Arrays.binarySearch(tags, tagId) >= 0;
+    }
+
+    private static int lowerBound(int[] values, int key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    static Set<Integer> toTagIds(Collection<Long> tagIds) {
+        Set<Integer> result = new LinkedHashSet<>();
+        tagIds.forEach(id -> result.add(toTagId(id)));
+        return result;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.taskmanager.readmodel;
+
+import com.example.taskmanager.dto.TaskDTO;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+
+/**
+ * タスク一覧の絞り込み条件。null の条件は絞り込まない。
+ */
+public record TaskQuery(Boolean completed, Long tagId, LocalDate dueFrom, LocalDate dueTo) {
+
+    // 期限順（期限なしは最後）、同じ期限なら id 順
+    public static final Comparator<TaskDTO> ORDER = Comparator
+            .comparing((TaskDTO dto) -> dto.dueDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(dto -> dto.id, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    public TaskQuery withoutCompleted() {
+        return new TaskQuery(null, tagId, dueFrom, dueTo);
+    }
+
+    public boolean matches(TaskDTO dto) {
+        if (completed != null && dto.completed != completed) {
+            return false;
+        }
+        if (tagId != null && (dto.tagIds == null || !dto.tagIds.contains(tagId))) {
+            return false;
+        }
+        if (dueFrom != null || dueTo != null) {
+            if (dto.dueDate == null) {
+                return false;
+            }
+            LocalDate due = LocalDate.parse(dto.dueDate);
+            return (dueFrom == null || !due.isBefore(dueFrom)) && (dueTo == null || !due.isAfter(dueTo));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,367 @@
+package com.example.taskmanager.readmodel;
+
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.readmodel.TaskProjection.Row;
+import com.example.taskmanager.sharding.ShardContext;
+import com.example.taskmanager.sharding.ShardTemplate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * タスク一覧用の読み取りモデル（CQRS）。ユーザーごとのタスクを {@link TaskProjection} としてメモリに持ち、
+ * 一覧と絞り込みを Hibernate を通さずに返す。書き込みはこれまでどおり MySQL へ行う。
+ *
+ * <ul>
+ *   <li>起動後に全シャードを並行に、各シャードは id の範囲に分けて並行に読み込む。読み込みが終わるまでは使わない</li>
+ *   <li>{@link TaskChangedEvent} で変わった行を DB から読み直して差し替える。更新は専用の1スレッドで順に行う</li>
+ *   <li>定期的に所有者ごとの件数と id の合計を DB と照合し、ずれた所有者と一定数の所有者を丸ごと読み直す</li>
+ * </ul>
+ */
+@Component
+@ConditionalOnProperty(name = "app.read-model.enabled", havingValue = "true")
+public class TaskReadModel {
+
+    private static final String COLUMNS =
+            "id, owner_id, title, description, completed, due_date, parent_id, series_id, occurrence_date, position";
+    private static final int RELOAD_CHUNK = 500;
+    private static final int[] NO_TAGS = new int[0];
+    private static final Logger logger = LoggerFactory.getLogger(TaskReadModel.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardTemplate shardTemplate;
+    private final ExecutorService updater =
+            Executors.newSingleThreadExecutor(Thread.ofPlatform().name("task-read-model").daemon().factory());
+    private final ExecutorService loaders = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Long> pendingTasks = ConcurrentHashMap.newKeySet();
+    private final Set<Long> pendingTags = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Counter repairs;
+    private volatile Map<Long, TaskProjection> byOwner = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+    // 全列の照合を次に始める所有者（更新スレッドだけが触る）
+    private long verifyCursor;
+
+    @Value("${app.read-model.build-parallelism:4}")
+    private int buildParallelism;
+
+    @Value("${app.read-model.verify-batch-size:100}")
+    private int verifyBatchSize;
+
+    public TaskReadModel(JdbcTemplate jdbcTemplate,
+                         TransactionTemplate transactionTemplate,
+                         ShardTemplate shardTemplate,
+                         MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.shardTemplate = shardTemplate;
+        this.repairs = Counter.builder("read.model.repairs").register(meterRegistry);
+        Gauge.builder("read.model.tasks", this,
+                model -> model.byOwner.values().stream().mapToLong(TaskProjection::size).sum()).register(meterRegistry);
+        Gauge.builder("read.model.owners", this, model -> model.byOwner.size()).register(meterRegistry);
+    }
+
+    /**
+     * ownerId のタスクのうち query に合うものを期限順で返す。まだ使えない場合は空（呼び出し元は DB から読む）。
+     */
+    public Optional<List<TaskDTO>> list(Long ownerId, TaskQuery query) {
+        if (!ready || ownerId == null) {
+            return Optional.empty();
+        }
+        TaskProjection projection = byOwner.get(ownerId);
+        return Optional.of(projection != null ? projection.query(query) : new ArrayList<>());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuildRequested.set(true);
+        scheduleDrain();
+    }
+
+    @EventListener
+    public void onChange(TaskChangedEvent event) {
+        if (event.id() == null) {
+            rebuildRequested.set(true);
+        } else if (event.kind() == TaskChangedEvent.Kind.TASK) {
+            pendingTasks.add(event.id());
+        } else {
+            pendingTags.add(event.id());
+        }
+        scheduleDrain();
+    }
+
+    @Scheduled(fixedDelayString = "${app.read-model.verify-interval-ms:300000}",
+            initialDelayString = "${app.read-model.verify-interval-ms:300000}")
+    public void scheduleVerify() {
+        updater.execute(this::verify);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        updater.shutdownNow();
+        loaders.shutdownNow();
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            updater.execute(() -> {
+                drainScheduled.set(false);
+                applyPending();
+            });
+        }
+    }
+
+    private void applyPending() {
+        if (rebuildRequested.getAndSet(false)) {
+            // ここまでに通知された変更はコミット済みなので、読み込み直せば含まれる
+            pendingTasks.clear();
+            pendingTags.clear();
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to build task read model; retrying at the next verification", e);
+            }
+            return;
+        }
+        Set<Long> taskIds = take(pendingTasks);
+        Set<Long> tagIds = take(pendingTags);
+        if (taskIds.isEmpty() && tagIds.isEmpty()) {
+            return;
+        }
+        try {
+            reload(taskIds, tagIds);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to apply {} task and {} tag changes to the read model", taskIds.size(), tagIds.size(), e);
+            pendingTasks.addAll(taskIds);
+            pendingTags.addAll(tagIds);
+        }
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+        Map<Long, Map<Long, Row>> grouped = new HashMap<>();
+        for (List<Row> rows : shardTemplate.gather(this::loadShard)) {
+            // 別のシャードへ移動中の所有者は両方にいるので id でまとめる
+            rows.forEach(row -> grouped.computeIfAbsent(row.ownerId(), owner -> new HashMap<>()).put(row.id(), row));
+        }
+        Map<Long, TaskProjection> built = new ConcurrentHashMap<>();
+        grouped.forEach((owner, rows) -> built.put(owner, TaskProjection.of(rows.values())));
+        byOwner = built;
+        ready = true;
+        logger.info("Built task read model for {} owners ({} tasks) in {} ms", built.size(),
+                grouped.values().stream().mapToInt(Map::size).sum(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // シャード内を id の範囲に分けて並行に読む
+    private List<Row> loadShard(int shard) {
+        Map<String, Object> bounds = jdbcTemplate.queryForMap("SELECT MIN(id) AS low, MAX(id) AS high FROM tasks");
+        if (bounds.get("low") == null) {
+            return List.of();
+        }
+        long low = ((Number) bounds.get("low")).longValue();
+        long high = ((Number) bounds.get("high")).longValue();
+        int parts = Math.max(1, buildParallelism);
+        long step = Math.max(1, (high - low + parts) / parts);
+        List<Future<List<Row>>> futures = new ArrayList<>();
+        for (long from = low; from <= high; from += step) {
+            long to = Math.min(high, from + step - 1);
+            long rangeStart = from;
+            futures.add(loaders.submit(() -> ShardContext.callOn(shard, () -> loadRows(
+                    "id BETWEEN ? AND ?", "task_id BETWEEN ? AND ?", rangeStart, to))));
+        }
+        List<Row> rows = new ArrayList<>();
+        try {
+            for (Future<List<Row>> future : futures) {
+                rows.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Interrupted while loading shard " + shard, e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return rows;
+    }
+
+    private void reload(Set<Long> taskIds, Set<Long> tagIds) {
+        Map<Long, TaskProjection> current = byOwner;
+        Set<Long> ids = new HashSet<>(taskIds);
+        if (!tagIds.isEmpty()) {
+            // タグの削除などで変わりうるのは、そのタグを持つタスクだけ
+            Set<Integer> wanted = TaskProjection.toTagIds(tagIds);
+            current.values().forEach(projection -> projection.collectIdsWithAnyTag(wanted, ids));
+        }
+        if (ids.isEmpty() || !ready) {
+            return;
+        }
+
+        List<Long> idList = new ArrayList<>(ids);
+        Map<Long, Row> found = new HashMap<>();
+        for (int from = 0; from < idList.size(); from += RELOAD_CHUNK) {
+            List<Long> chunk = idList.subList(from, Math.min(idList.size(), from + RELOAD_CHUNK));
+            String in = "IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            Object[] args = chunk.toArray();
+            shardTemplate.gather(shard -> loadRows("id " + in, "task_id " + in, args))
+                    .forEach(rows -> rows.forEach(row -> found.put(row.id(), row)));
+        }
+
+        Map<Long, List<Row>> upserts = new HashMap<>();
+        found.values().forEach(row -> upserts.computeIfAbsent(row.ownerId(), owner -> new ArrayList<>()).add(row));
+        Set<Long> missing = new HashSet<>(ids);
+        missing.removeAll(found.keySet());
+
+        // 削除・アーカイブされた行は、どの所有者のものか分からないので持っている所有者を探す
+        Set<Long> owners = new HashSet<>(upserts.keySet());
+        if (!missing.isEmpty()) {
+            current.forEach((owner, projection) -> {
+                if (missing.stream().anyMatch(projection::contains)) {
+                    owners.add(owner);
+                }
+            });
+        }
+        for (Long owner : owners) {
+            List<Row> rows = upserts.getOrDefault(owner, List.of());
+            TaskProjection projection = current.get(owner);
+            TaskProjection updated = projection != null ? projection.apply(rows, missing) : TaskProjection.of(rows);
+            if (updated.size() == 0) {
+                current.remove(owner);
+            } else {
+                current.put(owner, updated);
+            }
+        }
+    }
+
+    private void verify() {
+        if (!ready) {
+            rebuildRequested.set(true);
+            applyPending();
+            return;
+        }
+        // 通知済みの変更を先に当てて、誤検知を減らす
+        applyPending();
+        Map<Long, TaskProjection> current = byOwner;
+
+        Map<Long, long[]> database = new HashMap<>();
+        for (List<long[]> counts : shardTemplate.gather(shard -> jdbcTemplate.query(
+                "SELECT owner_id, COUNT(*), SUM(id) FROM tasks GROUP BY owner_id",
+                (rs, rowNum) -> new long[] {rs.getLong(1), rs.getLong(2), rs.getLong(3)}))) {
+            counts.forEach(count -> database.merge(count[0], new long[] {count[0], count[1], count[2]},
+                    (a, b) -> new long[] {a[0], a[1] + b[1], a[2] + b[2]}));
+        }
+        Set<Long> suspects = new TreeSet<>();
+        database.forEach((owner, count) -> {
+            TaskProjection projection = current.get(owner);
+            if (projection == null || projection.size() != count[1] || projection.idSum() != count[2]) {
+                suspects.add(owner);
+            }
+        });
+        current.keySet().stream().filter(owner -> !database.containsKey(owner)).forEach(suspects::add);
+
+        // 件数では分からない列のずれは、所有者を順番に少しずつ全列で照合する
+        TreeSet<Long> owners = new TreeSet<>(database.keySet());
+        List<Long> rotation = new ArrayList<>(owners.tailSet(verifyCursor, true));
+        rotation.addAll(owners.headSet(verifyCursor, false));
+        List<Long> checked = rotation.subList(0, Math.min(rotation.size(), Math.max(0, verifyBatchSize)));
+        if (!checked.isEmpty()) {
+            Long next = owners.higher(checked.get(checked.size() - 1));
+            verifyCursor = next != null ? next : owners.first();
+        }
+
+        Set<Long> targets = new TreeSet<>(suspects);
+        targets.addAll(checked);
+        int repaired = 0;
+        for (Long owner : targets) {
+            Map<Long, Row> rows = new HashMap<>();
+            shardTemplate.gather(shard -> loadRows("owner_id = ?",
+                            "task_id IN (SELECT id FROM tasks WHERE owner_id = ?)", owner))
+                    .forEach(list -> list.forEach(row -> rows.put(row.id(), row)));
+            TaskProjection projection = current.get(owner);
+            Set<Row> expected = new HashSet<>(rows.values());
+            Set<Row> actual = projection != null ? new HashSet<>(projection.rows()) : Set.of();
+            if (!expected.equals(actual)) {
+                repaired++;
+                if (rows.isEmpty()) {
+                    current.remove(owner);
+                } else {
+                    current.put(owner, TaskProjection.of(rows.values()));
+                }
+            }
+        }
+        if (repaired > 0) {
+            repairs.increment(repaired);
+            logger.warn("Task read model was out of date for {} of {} checked owners; reloaded them",
+                    repaired, targets.size());
+        }
+    }
+
+    /**
+     * 条件に合うタスクとそのタグを、同じスナップショットから読む。
+     */
+    private List<Row> loadRows(String taskCondition, String tagCondition, Object... args) {
+        return transactionTemplate.execute(status -> {
+            Map<Long, List<Integer>> tags = new HashMap<>();
+            jdbcTemplate.query("SELECT task_id, tag_id FROM task_tags WHERE " + tagCondition + " ORDER BY task_id, tag_id",
+                    rs -> {
+                        tags.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>())
+                                .add(Math.toIntExact(rs.getLong(2)));
+                    }, args);
+            return jdbcTemplate.query("SELECT " + COLUMNS + " FROM tasks WHERE " + taskCondition, (rs, rowNum) -> {
+                long id = rs.getLong(1);
+                List<Integer> tagIds = tags.get(id);
+                return new Row(id, rs.getLong(2), rs.getString(3), rs.getString(4), rs.getBoolean(5),
+                        day(rs.getObject(6, LocalDate.class)), rs.getLong(7), rs.getLong(8),
+                        day(rs.getObject(9, LocalDate.class)), rs.getString(10),
+                        tagIds != null ? tagIds.stream().mapToInt(Integer::intValue).toArray() : NO_TAGS);
+            }, args);
+        });
+    }
+
+    private static int day(LocalDate date) {
+        return date != null ? (int) date.toEpochDay() : TaskProjection.NO_DATE;
+    }
+
+    private static Set<Long> take(Set<Long> pending) {
+        Set<Long> taken = new HashSet<>();
+        for (Long id : pending) {
+            if (pending.remove(id)) {
+                taken.add(id);
+            }
+        }
+        return taken;
+    }
+}
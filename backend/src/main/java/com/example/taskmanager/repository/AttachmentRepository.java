@@ -0,0 +1,16 @@
+package com.example.taskmanager.repository;
+
+import com.example.taskmanager.model.Attachment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AttachmentRepository extends JpaRepository<Attachment, Long> {
+
+    List<Attachment> findByTaskIdOrderByIdAsc(Long taskId);
+
+    Optional<Attachment> findByIdAndTaskId(Long id, Long taskId);
+}
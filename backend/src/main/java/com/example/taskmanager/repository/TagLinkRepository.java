@@ -0,0 +1,148 @@
+package com.example.taskmanager.repository;
+
+import com.example.taskmanager.readmodel.TaskQuery;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * task_tags（タスクとタグの関連）の一括操作。
+ *
+ * <p>どの操作も対象のタスク数によらず決まった数の SQL で済む。呼び出し側のトランザクション内で使うこと。
+ * 変わったタスクの ID は、キャッシュの無効化と履歴のために先に読んでおく（対象の行はロックする）。
+ */
+@Repository
+public class TagLinkRepository {
+
+    /**
+     * taskIds は関連が変わったタスク、links は追加または削除した task_tags の行数。
+     */
+    public record Changed(List<Long> taskIds, int links) {}
+
+    /**
+     * タグを消したときの結果。linksAdded は統合先に新しく付いた行数。
+     */
+    public record Removed(List<Long> taskIds, int linksAdded, int linksRemoved, int archivedLinksRemoved,
+                          int tagsDeleted) {}
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public TagLinkRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * ids のうち存在するタグを行ロックして返す。
+     */
+    public List<Long> lockTags(Collection<Long> ids) {
+        return jdbcTemplate.queryForList("SELECT id FROM tags WHERE id IN (:ids) FOR UPDATE",
+                new MapSqlParameterSource("ids", ids), Long.class);
+    }
+
+    /**
+     * 条件に合う ownerId（null なら全員）のタスクに tagId を付ける。既に付いているタスクは変わらない。
+     */
+    public Changed assign(long tagId, Long ownerId, TaskQuery query, Collection<Long> taskIds) {
+        if (taskIds != null && taskIds.isEmpty()) {
+            return new Changed(List.of(), 0);
+        }
+        MapSqlParameterSource params = params(tagId, ownerId, query, taskIds);
+        String tasks = "tasks t" + filterJoin(query);
+        String where = where(query, taskIds);
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT t.id FROM " + tasks + " WHERE " + where
+                        + " AND NOT EXISTS (SELECT 1 FROM task_tags x WHERE x.task_id = t.id AND x.tag_id = :tagId) "
+                        + "LOCK IN SHARE MODE", params, Long.class);
+        if (ids.isEmpty()) {
+            return new Changed(List.of(), 0);
+        }
+        int links = jdbcTemplate.update(
+                "INSERT IGNORE INTO task_tags (task_id, tag_id) SELECT t.id, :tagId FROM " + tasks + " WHERE " + where, params);
+        return new Changed(ids, links);
+    }
+
+    /**
+     * 条件に合う ownerId（null なら全員）のタスクから tagId を外す。
+     */
+    public Changed unassign(long tagId, Long ownerId, TaskQuery query, Collection<Long> taskIds) {
+        if (taskIds != null && taskIds.isEmpty()) {
+            return new Changed(List.of(), 0);
+        }
+        MapSqlParameterSource params = params(tagId, ownerId, query, taskIds);
+        String join = " JOIN tasks t ON t.id = x.task_id" + filterJoin(query);
+        String where = "x.tag_id = :tagId AND " + where(query, taskIds);
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT t.id FROM task_tags x" + join + " WHERE " + where + " FOR UPDATE", params, Long.class);
+        if (ids.isEmpty()) {
+            return new Changed(List.of(), 0);
+        }
+        int links = jdbcTemplate.update("DELETE x FROM task_tags x" + join + " WHERE " + where, params);
+        return new Changed(ids, links);
+    }
+
+    /**
+     * sourceId の関連を targetId へ付け替えて（既に両方付いていれば1つにまとめて）、sourceId を消す。
+     */
+    public Removed merge(long sourceId, long targetId) {
+        MapSqlParameterSource params = new MapSqlParameterSource("sourceId", sourceId).addValue("targetId", targetId);
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT task_id FROM task_tags WHERE tag_id = :sourceId FOR UPDATE", params, Long.class);
+        int added = jdbcTemplate.update("INSERT IGNORE INTO task_tags (task_id, tag_id) "
+                + "SELECT task_id, :targetId FROM task_tags WHERE tag_id = :sourceId", params);
+        jdbcTemplate.update("INSERT IGNORE INTO task_tags_archive (task_id, tag_id) "
+                + "SELECT task_id, :targetId FROM task_tags_archive WHERE tag_id = :sourceId", params);
+        Removed removed = delete(sourceId);
+        return new Removed(ids, added, removed.linksRemoved(), removed.archivedLinksRemoved(), removed.tagsDeleted());
+    }
+
+    /**
+     * タグと、アーカイブ済みのものを含むすべての関連を消す。
+     */
+    public Removed delete(long tagId) {
+        MapSqlParameterSource params = new MapSqlParameterSource("tagId", tagId);
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT task_id FROM task_tags WHERE tag_id = :tagId FOR UPDATE", params, Long.class);
+        int links = jdbcTemplate.update("DELETE FROM task_tags WHERE tag_id = :tagId", params);
+        int archivedLinks = jdbcTemplate.update("DELETE FROM task_tags_archive WHERE tag_id = :tagId", params);
+        int tags = jdbcTemplate.update("DELETE FROM tags WHERE id = :tagId", params);
+        return new Removed(ids, 0, links, archivedLinks, tags);
+    }
+
+    private static MapSqlParameterSource params(long tagId, Long ownerId, TaskQuery query, Collection<Long> taskIds) {
+        return new MapSqlParameterSource("tagId", tagId)
+                .addValue("ownerId", ownerId != null ? ownerId : -1)
+                .addValue("taskIds", taskIds)
+                .addValue("completed", query.completed())
+                .addValue("filterTagId", query.tagId())
+                .addValue("dueFrom", query.dueFrom())
+                .addValue("dueTo", query.dueTo());
+    }
+
+    // 絞り込みのタグは結合で表す（DELETE の対象と同じ task_tags をサブクエリで参照できないため）
+    private static String filterJoin(TaskQuery query) {
+        return query.tagId() != null ? " JOIN task_tags f ON f.task_id = t.id AND f.tag_id = :filterTagId" : "";
+    }
+
+    // タスクの別名は t
+    private static String where(TaskQuery query, Collection<Long> taskIds) {
+        List<String> conditions = new ArrayList<>();
+        conditions.add("(:ownerId < 0 OR t.owner_id = :ownerId)");
+        if (taskIds != null) {
+            conditions.add("t.id IN (:taskIds)");
+        }
+        if (query.completed() != null) {
+            conditions.add("t.completed = :completed");
+        }
+        if (query.dueFrom() != null) {
+            conditions.add("t.due_date >= :dueFrom");
+        }
+        if (query.dueTo() != null) {
+            conditions.add("t.due_date <= :dueTo");
+        }
+        return String.join(" AND ", conditions);
+    }
+}
@@ -1,10 +1,25 @@
 package com.example.taskmanager.repository;
 
 import com.example.taskmanager.model.Tag;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface TagRepository extends JpaRepository<Tag, Long> {
     // 必要に応じてカスタムクエリを追加できます
+
+    // TaskRepository#findAllOwnedBy と同じく、所有者をクエリキャッシュのキーに含める
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT t FROM Tag t WHERE :ownerId < 0 OR t.ownerId = :ownerId")
+    List<Tag> findAllOwnedBy(@Param("ownerId") long ownerId);
+
+    Optional<Tag> findByNormalizedName(String normalizedName);
 }
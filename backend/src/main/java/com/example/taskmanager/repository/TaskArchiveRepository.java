@@ -0,0 +1,56 @@
+package com.example.taskmanager.repository;
+
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.sharding.ShardContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * アーカイブ済みタスク（tasks_archive / task_tags_archive）の読み取り。所有者が設定されていればその行だけを返す。
+ */
+@Repository
+public class TaskArchiveRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TaskArchiveRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<TaskDTO> findAll() {
+        Map<Long, TaskDTO> tasks = new LinkedHashMap<>();
+        Long owner = ShardContext.currentOwner();
+        long ownerId = owner != null ? owner : -1;
+        jdbcTemplate.query("SELECT id, title, description, completed, due_date, series_id, occurrence_date FROM tasks_archive "
+                + "WHERE ? < 0 OR owner_id = ? ORDER BY id", rs -> {
+            TaskDTO dto = new TaskDTO();
+            dto.id = rs.getLong("id");
+            dto.title = rs.getString("title");
+            dto.description = rs.getString("description");
+            dto.completed = rs.getBoolean("completed");
+            Date dueDate = rs.getDate("due_date");
+            dto.dueDate = dueDate != null ? dueDate.toLocalDate().toString() : null;
+            long seriesId = rs.getLong("series_id");
+            dto.seriesId = rs.wasNull() ? null : seriesId;
+            Date occurrenceDate = rs.getDate("occurrence_date");
+            dto.occurrenceDate = occurrenceDate != null ? occurrenceDate.toLocalDate().toString() : null;
+            dto.tagIds = new HashSet<>();
+            dto.archived = true;
+            tasks.put(dto.id, dto);
+        }, ownerId, ownerId);
+        jdbcTemplate.query("SELECT tt.task_id, tt.tag_id FROM task_tags_archive tt "
+                + "JOIN tasks_archive a ON a.id = tt.task_id WHERE ? < 0 OR a.owner_id = ?", rs -> {
+            TaskDTO dto = tasks.get(rs.getLong("task_id"));
+            if (dto != null) {
+                dto.tagIds.add(rs.getLong("tag_id"));
+            }
+        }, ownerId, ownerId);
+        return List.copyOf(tasks.values());
+    }
+}
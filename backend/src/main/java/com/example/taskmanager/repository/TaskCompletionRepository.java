@@ -0,0 +1,72 @@
+package com.example.taskmanager.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 完了状態をまとめて書き換える。書き込み遅延のバッチから、タスクの件数によらず1文で反映する。
+ */
+@Repository
+public class TaskCompletionRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public TaskCompletionRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 今の値を反転する。どのノードから積まれた切り替えも、順序によらず同じ結果になる。
+     */
+    public int toggle(Collection<Long> taskIds) {
+        if (taskIds.isEmpty()) {
+            return 0;
+        }
+        // MySQL の UPDATE は SET を左から評価するので、completed_at は反転前の completed を見る
+        return jdbcTemplate.update("UPDATE tasks SET completed_at = CASE WHEN completed THEN NULL ELSE NOW(6) END, "
+                + "completed = NOT completed WHERE id IN (:ids)", Map.of("ids", taskIds));
+    }
+
+    /**
+     * writeIds のうちまだ反映していないものを反映済みとして記録し、それを返す。反映と同じトランザクションで呼ぶこと。
+     */
+    public Set<String> claim(Collection<String> writeIds) {
+        if (writeIds.isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+        Set<String> fresh = new LinkedHashSet<>(writeIds);
+        fresh.removeAll(jdbcTemplate.queryForList("SELECT write_id FROM task_writes_applied WHERE write_id IN (:ids)",
+                Map.of("ids", fresh), String.class));
+        jdbcTemplate.batchUpdate("INSERT INTO task_writes_applied (write_id, applied_at) VALUES (:id, NOW(6))",
+                fresh.stream().map(id -> new MapSqlParameterSource("id", id)).toArray(SqlParameterSource[]::new));
+        return fresh;
+    }
+
+    /**
+     * retention より前に反映した記録を消す。それより後に再配送されるメッセージはないものとする。
+     */
+    public int purgeApplied(Duration retention) {
+        return jdbcTemplate.update("DELETE FROM task_writes_applied WHERE applied_at < NOW(6) - INTERVAL :seconds SECOND",
+                Map.of("seconds", retention.toSeconds()));
+    }
+
+    /**
+     * 値を直接設定する（切り替え前の形式のメッセージ用）。
+     */
+    public int setCompleted(Collection<Long> taskIds, boolean completed) {
+        if (taskIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update("UPDATE tasks SET completed_at = CASE WHEN :completed THEN COALESCE(completed_at, NOW(6)) "
+                + "ELSE NULL END, completed = :completed WHERE id IN (:ids)",
+                Map.of("ids", taskIds, "completed", completed));
+    }
+}
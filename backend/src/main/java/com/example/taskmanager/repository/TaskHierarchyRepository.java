@@ -0,0 +1,140 @@
+package com.example.taskmanager.repository;
+
+import com.example.taskmanager.dto.TaskDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * task_closure（祖先・子孫の全組み合わせと深さ）によるタスク階層の操作。
+ *
+ * <p>どの操作も木の大きさによらず決まった数の SQL で済む。呼び出し側のトランザクション内で使うこと。
+ */
+@Repository
+public class TaskHierarchyRepository {
+
+    public record Progress(long total, long completed, double percent) {
+        static Progress of(long total, long completed) {
+            return new Progress(total, completed, total == 0 ? 0 : completed * 100.0 / total);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TaskHierarchyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 新しいタスクを parentId の子（null ならルート）として登録する。
+     */
+    public void insertNode(long id, Long parentId) {
+        jdbcTemplate.update("INSERT INTO task_closure (ancestor_id, descendant_id, depth) VALUES (?, ?, 0)", id, id);
+        if (parentId != null) {
+            jdbcTemplate.update(
+                    "INSERT INTO task_closure (ancestor_id, descendant_id, depth) "
+                            + "SELECT ancestor_id, ?, depth + 1 FROM task_closure WHERE descendant_id = ?",
+                    id, parentId);
+        }
+    }
+
+    public boolean isInSubtree(long rootId, long id) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM task_closure WHERE ancestor_id = ? AND descendant_id = ?",
+                Integer.class, rootId, id);
+        return count != null && count > 0;
+    }
+
+    public List<Long> findSubtreeIds(long rootId) {
+        return jdbcTemplate.queryForList("SELECT descendant_id FROM task_closure WHERE ancestor_id = ?",
+                Long.class, rootId);
+    }
+
+    /**
+     * rootId を含む部分木を、浅い順に返す。
+     */
+    public List<TaskDTO> findSubtree(long rootId) {
+        Map<Long, TaskDTO> tasks = new LinkedHashMap<>();
+        jdbcTemplate.query(
+                "SELECT t.id, t.title, t.description, t.completed, t.due_date, t.parent_id "
+                        + "FROM task_closure c JOIN tasks t ON t.id = c.descendant_id "
+                        + "WHERE c.ancestor_id = ? ORDER BY c.depth, t.id",
+                rs -> {
+                    TaskDTO dto = new TaskDTO();
+                    dto.id = rs.getLong("id");
+                    dto.title = rs.getString("title");
+                    dto.description = rs.getString("description");
+                    dto.completed = rs.getBoolean("completed");
+                    Date dueDate = rs.getDate("due_date");
+                    dto.dueDate = dueDate != null ? dueDate.toLocalDate().toString() : null;
+                    dto.parentId = rs.getObject("parent_id", Long.class);
+                    dto.tagIds = new HashSet<>();
+                    tasks.put(dto.id, dto);
+                },
+                rootId);
+        jdbcTemplate.query(
+                "SELECT tt.task_id, tt.tag_id FROM task_closure c JOIN task_tags tt ON tt.task_id = c.descendant_id "
+                        + "WHERE c.ancestor_id = ?",
+                rs -> {
+                    TaskDTO dto = tasks.get(rs.getLong("task_id"));
+                    if (dto != null) {
+                        dto.tagIds.add(rs.getLong("tag_id"));
+                    }
+                },
+                rootId);
+        return List.copyOf(tasks.values());
+    }
+
+    public Progress progress(long rootId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*), COALESCE(SUM(t.completed), 0) "
+                        + "FROM task_closure c JOIN tasks t ON t.id = c.descendant_id WHERE c.ancestor_id = ?",
+                (rs, rowNum) -> Progress.of(rs.getLong(1), rs.getLong(2)),
+                rootId);
+    }
+
+    /**
+     * id の部分木を newParentId の下（null ならルート）へ移す。循環しないことは呼び出し側で確認しておく。
+     */
+    public void move(long id, Long newParentId) {
+        // 部分木の外の祖先から部分木の中への経路をすべて外す
+        jdbcTemplate.update(
+                "DELETE a FROM task_closure a "
+                        + "JOIN task_closure d ON d.descendant_id = a.descendant_id "
+                        + "LEFT JOIN task_closure x ON x.ancestor_id = d.ancestor_id AND x.descendant_id = a.ancestor_id "
+                        + "WHERE d.ancestor_id = ? AND x.ancestor_id IS NULL",
+                id);
+        if (newParentId != null) {
+            // 新しい親の祖先 × 部分木の子孫
+            jdbcTemplate.update(
+                    "INSERT INTO task_closure (ancestor_id, descendant_id, depth) "
+                            + "SELECT p.ancestor_id, s.descendant_id, p.depth + s.depth + 1 "
+                            + "FROM task_closure p CROSS JOIN task_closure s "
+                            + "WHERE p.descendant_id = ? AND s.ancestor_id = ?",
+                    newParentId, id);
+        }
+        jdbcTemplate.update("UPDATE tasks SET parent_id = ? WHERE id = ?", newParentId, id);
+    }
+
+    /**
+     * rootId の部分木をタスク・タグの関連ごと削除し、削除したタスクの件数を返す。
+     */
+    public int deleteSubtree(long rootId) {
+        jdbcTemplate.update(
+                "DELETE tt FROM task_tags tt JOIN task_closure c ON c.descendant_id = tt.task_id WHERE c.ancestor_id = ?",
+                rootId);
+        int deleted = jdbcTemplate.update(
+                "DELETE t FROM tasks t JOIN task_closure c ON c.descendant_id = t.id WHERE c.ancestor_id = ?",
+                rootId);
+        jdbcTemplate.update(
+                "DELETE a FROM task_closure a JOIN task_closure d ON d.descendant_id = a.descendant_id "
+                        + "WHERE d.ancestor_id = ?",
+                rootId);
+        return deleted;
+    }
+}
@@ -1,8 +1,71 @@
 package com.example.taskmanager.repository;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import com.example.taskmanager.model.Task;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
 public interface TaskRepository extends JpaRepository<Task, Long> {
+
+    // 一覧はクエリキャッシュに載せる（tasks の更新で自動的に無効化される）。
+    // 所有者のフィルターの値はキャッシュのキーに入らないので、所有者（-1 なら全員）を引数で渡してキーに含める
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT t FROM Task t WHERE :ownerId < 0 OR t.ownerId = :ownerId")
+    List<Task> findAllOwnedBy(@Param("ownerId") long ownerId);
+
+    @Modifying
+    @Query("UPDATE Task t SET t.completed = :completed, "
+            + "t.completedAt = CASE WHEN :completed = true THEN COALESCE(t.completedAt, LOCAL DATETIME) ELSE NULL END "
+            + "WHERE t.id = :id")
+    int updateCompleted(@Param("id") Long id, @Param("completed") boolean completed);
+
+    // 期間内の実タスク（実体化済みの回を含む）を期限順に
+    @Query("SELECT DISTINCT t FROM Task t LEFT JOIN FETCH t.tags "
+            + "WHERE t.dueDate BETWEEN :from AND :to ORDER BY t.dueDate, t.id")
+    List<Task> findByDueDateBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    Optional<Task> findBySeriesIdAndOccurrenceDate(Long seriesId, LocalDate occurrenceDate);
+
+    // 手動の並び順。いずれも (position, id) の索引だけで引ける
+    @Query("SELECT MAX(t.position) FROM Task t")
+    String findMaxPosition();
+
+    // 永続化コンテキストではなく DB の値を返す（JDBC で振り直した直後にも使うため）。
+    // 並び替えが読んだキーを同時の移動や振り直しに変えられないよう、以下の3つは行をロックして読む
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t.position FROM Task t WHERE t.id = :id")
+    Optional<String> findPositionById(@Param("id") Long id);
+
+    // (position, id) より後ろのキー。excludeId は移動中のタスク自身を外すのに使う
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t.position FROM Task t WHERE (t.position > :position OR (t.position = :position AND t.id > :id)) "
+            + "AND t.id <> :excludeId ORDER BY t.position, t.id")
+    List<String> findPositionsAfter(@Param("position") String position, @Param("id") Long id,
+                                    @Param("excludeId") Long excludeId, Limit limit);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t.position FROM Task t WHERE (t.position < :position OR (t.position = :position AND t.id < :id)) "
+            + "AND t.id <> :excludeId ORDER BY t.position DESC, t.id DESC")
+    List<String> findPositionsBefore(@Param("position") String position, @Param("id") Long id,
+                                     @Param("excludeId") Long excludeId, Limit limit);
+
+    // キーセットページング
+    List<Task> findAllByOrderByPositionAscIdAsc(Limit limit);
+
+    @Query("SELECT t FROM Task t WHERE t.position > :position OR (t.position = :position AND t.id > :id) "
+            + "ORDER BY t.position, t.id")
+    List<Task> findPageAfter(@Param("position") String position, @Param("id") Long id, Limit limit);
 }
@@ -0,0 +1,46 @@
+package com.example.taskmanager.repository;
+
+import com.example.taskmanager.model.TaskSeries;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface TaskSeriesRepository extends JpaRepository<TaskSeries, Long> {
+
+    @Query("SELECT s FROM TaskSeries s WHERE s.startDate <= :to AND (s.endDate IS NULL OR s.endDate >= :from)")
+    List<TaskSeries> findActiveBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * 期間内で仮想の回を出してはいけない回（実体化済み・アーカイブ済みまたは削除済み）を {@code <seriesId>|<yyyy-MM-dd>} で返す。
+     */
+    @Query(value = "SELECT CONCAT(series_id, '|', occurrence_date) FROM tasks "
+            + "WHERE series_id IS NOT NULL AND occurrence_date BETWEEN :from AND :to "
+            + "UNION ALL "
+            + "SELECT CONCAT(series_id, '|', occurrence_date) FROM tasks_archive "
+            + "WHERE series_id IS NOT NULL AND occurrence_date BETWEEN :from AND :to "
+            + "UNION ALL "
+            + "SELECT CONCAT(series_id, '|', occurrence_date) FROM task_series_exdates "
+            + "WHERE occurrence_date BETWEEN :from AND :to", nativeQuery = true)
+    List<String> findOverriddenOccurrences(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO task_series_exdates (series_id, occurrence_date) VALUES (:seriesId, :date)",
+            nativeQuery = true)
+    void addExdate(@Param("seriesId") Long seriesId, @Param("date") LocalDate date);
+
+    @Query(value = "SELECT COUNT(*) FROM task_series_exdates WHERE series_id = :seriesId AND occurrence_date = :date",
+            nativeQuery = true)
+    long countExdates(@Param("seriesId") Long seriesId, @Param("date") LocalDate date);
+
+    @Query(value = "SELECT COUNT(*) FROM tasks_archive WHERE series_id = :seriesId AND occurrence_date = :date",
+            nativeQuery = true)
+    long countArchivedOccurrences(@Param("seriesId") Long seriesId, @Param("date") LocalDate date);
+
+    @Modifying
+    @Query(value = "DELETE FROM task_series_exdates WHERE series_id = :seriesId", nativeQuery = true)
+    void deleteExdates(@Param("seriesId") Long seriesId);
+}
@@ -0,0 +1,47 @@
+package com.example.taskmanager.resilience;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.amqp.core.Message;
+import org.springframework.stereotype.Component;
+
+/**
+ * RabbitMQ のコンシューマーを "amqp" バルクヘッドに通すアドバイス。枠が空くまで待つので、
+ * 溢れた分はブローカー側に残る。送信側が付けた期限（x-deadline）を過ぎたメッセージは処理せずに捨てる。
+ */
+@Component
+public class AmqpBulkheadAdvice implements MethodInterceptor {
+
+    private final BulkheadRegistry registry;
+
+    public AmqpBulkheadAdvice(BulkheadRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Bulkhead bulkhead = registry.get(BulkheadRegistry.AMQP);
+        if (isExpired(invocation.getArguments())) {
+            Deadline.countExceeded("amqp-consume");
+            return null;
+        }
+        if (bulkhead == null) {
+            return invocation.proceed();
+        }
+        bulkhead.acquire();
+        try (Deadline.Scope ignored = Deadline.start(bulkhead.timeout())) {
+            return invocation.proceed();
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    // ContainerDelegate#invokeListener(Channel, Object) の第2引数がメッセージ（バッチの場合は List）
+    private static boolean isExpired(Object[] arguments) {
+        if (arguments.length < 2 || !(arguments[1] instanceof Message message)) {
+            return false;
+        }
+        Object deadline = message.getMessageProperties().getHeader(Deadline.HEADER);
+        return deadline instanceof Number millis && millis.longValue() < System.currentTimeMillis();
+    }
+}
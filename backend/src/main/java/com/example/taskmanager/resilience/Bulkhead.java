@@ -0,0 +1,83 @@
+package com.example.taskmanager.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * エンドポイントのグループごとの同時実行数の上限。あふれた分は maxWait だけ待ってから断る。
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final Duration maxWait;
+    private final Duration timeout;
+    private final Semaphore permits;
+    private final Counter rejected;
+    private final Timer waitTime;
+
+    public Bulkhead(String name, int maxConcurrent, Duration maxWait, Duration timeout, MeterRegistry registry) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWait = maxWait;
+        this.timeout = timeout;
+        this.permits = new Semaphore(maxConcurrent, true);
+        Gauge.builder("bulkhead.active", this, Bulkhead::active).tag("group", name).register(registry);
+        Gauge.builder("bulkhead.limit", this, b -> b.maxConcurrent).tag("group", name).register(registry);
+        Gauge.builder("bulkhead.queued", permits, Semaphore::getQueueLength).tag("group", name).register(registry);
+        this.rejected = Counter.builder("bulkhead.rejected").tag("group", name).register(registry);
+        this.waitTime = Timer.builder("bulkhead.wait").tag("group", name).register(registry);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    // このグループのリクエストに与える期限
+    public Duration timeout() {
+        return timeout;
+    }
+
+    public int active() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * maxWait（残りの期限の方が短ければそちら）まで待って枠を取る。取れなければ false。
+     */
+    public boolean tryAcquire() {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            long waitMillis = Math.min(maxWait.toMillis(), Math.max(0, Deadline.remainingMillis()));
+            acquired = permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        waitTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            rejected.increment();
+        }
+        return acquired;
+    }
+
+    /**
+     * 枠が空くまで待つ。メッセージのコンシューマーのように、断るより待たせたい場合に使う。
+     */
+    public void acquire() throws InterruptedException {
+        long start = System.nanoTime();
+        permits.acquire();
+        waitTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    public void release() {
+        permits.release();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.taskmanager.resilience;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * リクエストをグループのバルクヘッドに通し、グループの timeout を期限として設定する。
+ * 枠が空かなければ 503 を返してすぐにスレッドを解放する。JwtAuthenticationFilter の前に置き、
+ * 認証でのユーザーの読み込みもグループの同時実行数と期限に含める。
+ */
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private final BulkheadRegistry registry;
+
+    public BulkheadFilter(BulkheadRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        Bulkhead bulkhead = registry.resolve(request.getMethod(), request.getRequestURI());
+        if (bulkhead == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (!bulkhead.tryAcquire()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Service busy");
+            return;
+        }
+        try (Deadline.Scope ignored = Deadline.start(bulkhead.timeout())) {
+            filterChain.doFilter(request, response);
+        } catch (DeadlineExceededException | QueryTimeoutException e) {
+            // コントローラーに届く前（認証でのユーザーの読み込みなど）の期限切れは ResilienceExceptionHandler を通らない
+            if (response.isCommitted()) {
+                throw e;
+            }
+            response.setStatus(HttpStatus.GATEWAY_TIMEOUT.value());
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Deadline exceeded");
+        } finally {
+            bulkhead.release();
+        }
+    }
+}
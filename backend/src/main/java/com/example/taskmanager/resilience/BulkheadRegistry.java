@@ -0,0 +1,60 @@
+package com.example.taskmanager.resilience;
+
+import com.example.taskmanager.config.BulkheadProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * バルクヘッドのグループと、リクエストのパス・メソッドからグループへの対応を保持する。
+ */
+@Component
+public class BulkheadRegistry {
+
+    public static final String AMQP = "amqp";
+
+    private record Route(String pattern, Set<String> methods, Bulkhead bulkhead) {}
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<String, Bulkhead> bulkheads = new LinkedHashMap<>();
+    private final List<Route> routes;
+
+    public BulkheadRegistry(BulkheadProperties properties, MeterRegistry meterRegistry) {
+        if (properties.isEnabled()) {
+            properties.getGroups().forEach((name, group) -> bulkheads.put(name, new Bulkhead(
+                    name, group.getMaxConcurrent(), group.getMaxWait(), group.getTimeout(), meterRegistry)));
+        }
+        this.routes = properties.getRoutes().stream()
+                .filter(route -> bulkheads.containsKey(route.getGroup()))
+                .map(route -> new Route(route.getPattern(),
+                        route.getMethods().stream().map(String::toUpperCase).collect(Collectors.toSet()),
+                        bulkheads.get(route.getGroup())))
+                .toList();
+    }
+
+    /**
+     * グループ名からバルクヘッドを返す。無効化されているか未定義なら null。
+     */
+    public Bulkhead get(String group) {
+        return bulkheads.get(group);
+    }
+
+    /**
+     * リクエストに適用するバルクヘッドを返す。対象外なら null。
+     */
+    public Bulkhead resolve(String method, String path) {
+        for (Route route : routes) {
+            if ((route.methods().isEmpty() || route.methods().contains(method))
+                    && pathMatcher.match(route.pattern(), path)) {
+                return route.bulkhead();
+            }
+        }
+        return null;
+    }
+}
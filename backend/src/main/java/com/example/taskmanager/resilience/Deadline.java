@@ -0,0 +1,92 @@
+package com.example.taskmanager.resilience;
+
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.amqp.core.MessagePostProcessor;
+
+import java.time.Duration;
+
+/**
+ * 処理中のリクエスト（またはメッセージ）の期限。スレッドに紐づけ、JDBC のクエリタイムアウトや
+ * RabbitMQ への送信に引き継ぐ。期限が設定されていないスレッドでは何も制限しない。
+ */
+public final class Deadline {
+
+    public static final String HEADER = "x-deadline";
+
+    private static final ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+
+    /** {@link #start} の戻り値。閉じると以前の期限に戻す。 */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private Deadline() {
+    }
+
+    /**
+     * 今から timeout 後を期限にする。外側にもっと早い期限があればそちらを使う。
+     */
+    public static Scope start(Duration timeout) {
+        Long previous = CURRENT.get();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        CURRENT.set(previous != null && previous - deadline < 0 ? previous : deadline);
+        return () -> {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    public static boolean isSet() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * 残り時間（ミリ秒、切り上げ）。期限がなければ Long.MAX_VALUE、過ぎていれば 0 以下。
+     */
+    public static long remainingMillis() {
+        Long deadline = CURRENT.get();
+        if (deadline == null) {
+            return Long.MAX_VALUE;
+        }
+        long remaining = deadline - System.nanoTime();
+        return remaining <= 0 ? 0 : (remaining + 999_999) / 1_000_000;
+    }
+
+    /**
+     * 期限が過ぎていれば {@link DeadlineExceededException} を投げる。where はメトリクスのタグになる。
+     */
+    public static void check(String where) {
+        if (remainingMillis() <= 0) {
+            throw exceeded(where);
+        }
+    }
+
+    public static DeadlineExceededException exceeded(String where) {
+        countExceeded(where);
+        return new DeadlineExceededException("Deadline exceeded before " + where);
+    }
+
+    public static void countExceeded(String where) {
+        Metrics.counter("deadline.exceeded", "where", where).increment();
+    }
+
+    /**
+     * 送信するメッセージに残り時間を TTL として付ける。期限を過ぎたメッセージはブローカーが捨てる。
+     * 受け取った側が処理しなくても困らないメッセージにだけ使うこと。
+     */
+    public static MessagePostProcessor expireMessage() {
+        return message -> {
+            long remaining = remainingMillis();
+            if (remaining != Long.MAX_VALUE) {
+                check("amqp-publish");
+                message.getMessageProperties().setExpiration(String.valueOf(remaining));
+                message.getMessageProperties().setHeader(HEADER, System.currentTimeMillis() + remaining);
+            }
+            return message;
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.taskmanager.resilience;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+
+/**
+ * スレッドに期限があれば、作成した Statement に残り時間をクエリタイムアウトとして設定する DataSource。
+ * 期限を過ぎていれば接続の取得・Statement の作成の時点で失敗させる。
+ */
+public class DeadlineDataSource extends DelegatingDataSource {
+
+    public DeadlineDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        checkDeadline("jdbc-connection");
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        checkDeadline("jdbc-connection");
+        return wrap(super.getConnection(username, password));
+    }
+
+    private static Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(DeadlineDataSource.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("unwrap") && args[0] == Connection.class) {
+                        return connection;
+                    }
+                    boolean createsStatement = name.equals("createStatement")
+                            || name.equals("prepareStatement") || name.equals("prepareCall");
+                    if (createsStatement && Deadline.isSet()) {
+                        checkDeadline("jdbc-statement");
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                    if (createsStatement && Deadline.isSet()) {
+                        // JDBC のタイムアウトは秒単位なので切り上げる
+                        long remaining = Deadline.remainingMillis();
+                        ((Statement) result).setQueryTimeout((int) Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000));
+                    }
+                    return result;
+                });
+    }
+
+    private static void checkDeadline(String where) throws SQLTimeoutException {
+        if (Deadline.isSet() && Deadline.remainingMillis() <= 0) {
+            throw new SQLTimeoutException(Deadline.exceeded(where).getMessage());
+        }
+    }
+}
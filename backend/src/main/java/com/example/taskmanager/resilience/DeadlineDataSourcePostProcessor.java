@@ -0,0 +1,21 @@
+package com.example.taskmanager.resilience;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * アプリケーションの DataSource を {@link DeadlineDataSource} で包む。
+ */
+@Component
+public class DeadlineDataSourcePostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof DeadlineDataSource)) {
+            return new DeadlineDataSource(dataSource);
+        }
+        return bean;
+    }
+}
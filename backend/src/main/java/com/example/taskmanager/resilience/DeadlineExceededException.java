@@ -0,0 +1,8 @@
+package com.example.taskmanager.resilience;
+
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
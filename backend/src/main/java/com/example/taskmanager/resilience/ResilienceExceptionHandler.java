@@ -0,0 +1,32 @@
+package com.example.taskmanager.resilience;
+
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.sql.SQLTimeoutException;
+
+/**
+ * 期限切れ（クエリタイムアウトを含む）を 504 にする。
+ */
+@RestControllerAdvice
+public class ResilienceExceptionHandler {
+
+    @ExceptionHandler({DeadlineExceededException.class, QueryTimeoutException.class})
+    public ResponseEntity<String> handleDeadlineExceeded(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body("Deadline exceeded");
+    }
+
+    // トランザクション開始時の接続取得で期限切れになった場合
+    @ExceptionHandler(CannotCreateTransactionException.class)
+    public ResponseEntity<String> handleCannotCreateTransaction(CannotCreateTransactionException e) {
+        if (NestedExceptionUtils.getRootCause(e) instanceof SQLTimeoutException) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body("Deadline exceeded");
+        }
+        throw e;
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.stereotype.Service;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 import java.util.Base64;
@@ -18,17 +19,28 @@ import java.nio.charset.StandardCharsets;
 
 @Service
 public class JwtService {
+    /** 発行時刻のミリ秒。iat は秒単位なので、同じ秒のうちの失効とログインを区別するために持つ */
+    public static final String ISSUED_AT_MILLIS = "iat_ms";
+
     private final Key key = Keys
             .hmacShaKeyFor("my-super-secure-key-1234567890-abcdefg-xyz".getBytes(StandardCharsets.UTF_8));
     private final long expirationMs = 86400000; // 1日
 
     public String extractUsername(String token) {
+        return extractClaims(token).getSubject();
+    }
+
+    // 署名と期限を検証してクレームを返す
+    public Claims extractClaims(String token) {
         return Jwts.parserBuilder()
                 .setSigningKey(key)
                 .build()
                 .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+                .getBody();
+    }
+
+    public long getExpirationMs() {
+        return expirationMs;
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
@@ -37,10 +49,13 @@ public class JwtService {
     }
 
     public String generateToken(UserDetails userDetails) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userDetails.getUsername())
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + expirationMs))
+                .setIssuedAt(new Date(now))
+                .claim(ISSUED_AT_MILLIS, now)
+                .setExpiration(new Date(now + expirationMs))
                 .signWith(key)
                 .compact();
     }
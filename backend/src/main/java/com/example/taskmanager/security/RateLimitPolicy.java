@@ -0,0 +1,48 @@
+package com.example.taskmanager.security;
+
+import com.example.taskmanager.config.RateLimitProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.List;
+
+/**
+ * パスごとのレート制限ルールと、それぞれのトークンバケットを保持する。
+ */
+@Component
+public class RateLimitPolicy {
+
+    public record Route(String pattern, TokenBucketRateLimiter limiter) {}
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final List<Route> routes;
+
+    public RateLimitPolicy(RateLimitProperties properties) {
+        this.routes = properties.isEnabled()
+                ? properties.getRules().stream()
+                        .map(rule -> new Route(rule.getPattern(), new TokenBucketRateLimiter(
+                                rule.getCapacity(), rule.getPeriod().toNanos(),
+                                properties.getStripes(), properties.getMaxKeys())))
+                        .toList()
+                : List.of();
+    }
+
+    /**
+     * パスに適用するルールを返す。制限対象外なら null。
+     */
+    public Route resolve(String path) {
+        for (Route route : routes) {
+            if (pathMatcher.match(route.pattern(), path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.idle-eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        routes.forEach(route -> route.limiter().evictIdle(now));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.taskmanager.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * キーごとのトークンバケット。ロックを使わず、各バケットを「理論到着時刻（TAT）」1つの AtomicLong で表す
+ * （GCRA。容量 capacity、period あたり capacity トークン補充のトークンバケットと等価）。
+ *
+ * <p>TAT が現在時刻以下のバケットは満杯の新規バケットと区別できないため、いつ捨てても挙動は変わらない。
+ * これを利用してアイドルなバケットを追い出し、キー数の上限を超えた分はストライプ共有のバケットにまとめる。
+ * 上限に達したストライプでの追い出しは全件の走査になるので、要求の中では一定間隔に1回だけ行う。
+ */
+public class TokenBucketRateLimiter {
+
+    // 上限に達したストライプを要求の中で走査する最短の間隔
+    private static final long INLINE_EVICTION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long emissionIntervalNanos;
+    private final long burstNanos;
+    private final int maxKeysPerStripe;
+    private final Stripe[] stripes;
+
+    public TokenBucketRateLimiter(long capacity, long periodNanos, int stripeCount, int maxKeys) {
+        if (capacity <= 0 || periodNanos <= 0) {
+            throw new IllegalArgumentException("capacity and period must be positive");
+        }
+        int stripesPow2 = Integer.highestOneBit(Math.max(1, stripeCount - 1) << 1);
+        this.emissionIntervalNanos = Math.max(1, periodNanos / capacity);
+        this.burstNanos = emissionIntervalNanos * capacity;
+        this.maxKeysPerStripe = Math.max(1, maxKeys / stripesPow2);
+        this.stripes = new Stripe[stripesPow2];
+        for (int i = 0; i < stripesPow2; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * トークンを1つ取得する。
+     *
+     * @return 取得できた場合は 0、できなかった場合は次のトークンまでの待ち時間（ナノ秒）
+     */
+    public long tryAcquire(String key, long nowNanos) {
+        AtomicLong bucket = bucketFor(key, nowNanos);
+        while (true) {
+            long tat = bucket.get();
+            long next = Math.max(tat, nowNanos) + emissionIntervalNanos;
+            long excess = next - nowNanos - burstNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (bucket.compareAndSet(tat, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 満杯に戻ったバケットを捨てる。
+     */
+    public void evictIdle(long nowNanos) {
+        for (Stripe stripe : stripes) {
+            stripe.evictIdle(nowNanos);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.buckets.size();
+        }
+        return size;
+    }
+
+    private AtomicLong bucketFor(String key, long nowNanos) {
+        int h = key.hashCode();
+        Stripe stripe = stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+        AtomicLong bucket = stripe.buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (stripe.buckets.size() >= maxKeysPerStripe) {
+            // 走査は間隔ごとに1スレッドだけが行い、残りは待たずに共有のバケットを使う
+            long last = stripe.lastEviction.get();
+            if (nowNanos - last < INLINE_EVICTION_INTERVAL_NANOS || !stripe.lastEviction.compareAndSet(last, nowNanos)) {
+                return stripe.overflow;
+            }
+            stripe.evictIdle(nowNanos);
+            if (stripe.buckets.size() >= maxKeysPerStripe) {
+                return stripe.overflow;
+            }
+        }
+        return stripe.buckets.computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+    }
+
+    private static final class Stripe {
+        private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        // キー数の上限を超えたときに使う共有バケット（大量のキーで上限をすり抜けられないようにする）
+        private final AtomicLong overflow = new AtomicLong(Long.MIN_VALUE / 2);
+        private final AtomicLong lastEviction = new AtomicLong(Long.MIN_VALUE / 2);
+
+        private void evictIdle(long nowNanos) {
+            buckets.values().removeIf(bucket -> bucket.get() <= nowNanos);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.taskmanager.security;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 失効させた JWT の ID（jti）をメモリに持つ。
+ *
+ * <p>ID はトークンの有効期限ごとのウィンドウに分けて持ち、ウィンドウごとに Bloom フィルタと正確な集合を置く。
+ * 失効していないトークン（ほぼすべてのリクエスト）は Bloom フィルタの数回のビット参照だけで判定が終わり、
+ * 偽陽性は正確な集合で落とす。期限を過ぎたトークンは署名の検証で弾かれるので、期限切れのウィンドウは丸ごと捨てられる。
+ *
+ * <p>ユーザー単位の「この時刻までに発行されたトークンはすべて無効」も持つ（すべての端末からのログアウト）。
+ */
+public class TokenDenylist {
+
+    private final long windowMillis;
+    private final long tokenLifetimeMillis;
+    private final int expectedPerWindow;
+    private final double falsePositiveRate;
+    private final Map<Long, Window> windows = new ConcurrentHashMap<>();
+    // subject -> この時刻（エポックミリ秒）以前に発行されたトークンを無効にする
+    private final Map<String, Long> issuedBefore = new ConcurrentHashMap<>();
+
+    public TokenDenylist(long windowMillis, long tokenLifetimeMillis, int expectedPerWindow, double falsePositiveRate) {
+        if (windowMillis <= 0 || expectedPerWindow <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid denylist settings");
+        }
+        this.windowMillis = windowMillis;
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+        this.expectedPerWindow = expectedPerWindow;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public void revoke(UUID tokenId, long expiresAtMillis) {
+        windows.computeIfAbsent(Math.floorDiv(expiresAtMillis, windowMillis), index -> new Window())
+                .add(tokenId.getMostSignificantBits(), tokenId.getLeastSignificantBits());
+    }
+
+    public void revokeIssuedBefore(String subject, long issuedAtMillis) {
+        issuedBefore.merge(subject, issuedAtMillis, Math::max);
+    }
+
+    /**
+     * @param tokenId ID を持たない古いトークンは null
+     */
+    public boolean isRevoked(UUID tokenId, long expiresAtMillis, String subject, long issuedAtMillis) {
+        if (!issuedBefore.isEmpty()) {
+            Long cutoff = issuedBefore.get(subject);
+            if (cutoff != null && issuedAtMillis <= cutoff) {
+                return true;
+            }
+        }
+        if (tokenId == null) {
+            return false;
+        }
+        Window window = windows.get(Math.floorDiv(expiresAtMillis, windowMillis));
+        return window != null && window.contains(tokenId.getMostSignificantBits(), tokenId.getLeastSignificantBits());
+    }
+
+    /**
+     * 期限切れのトークンしか含まないウィンドウと、効果のなくなったユーザー単位の失効を捨てる。
+     */
+    public void purgeExpired(long nowMillis) {
+        windows.keySet().removeIf(index -> (index + 1) * windowMillis <= nowMillis);
+        issuedBefore.values().removeIf(cutoff -> cutoff + tokenLifetimeMillis < nowMillis);
+    }
+
+    public long size() {
+        return windows.values().stream().mapToLong(Window::size).sum();
+    }
+
+    public int windowCount() {
+        return windows.size();
+    }
+
+    private final class Window {
+
+        private final UuidSet exact = new UuidSet();
+        private volatile BloomFilter bloom = new BloomFilter(expectedPerWindow, falsePositiveRate);
+
+        synchronized void add(long msb, long lsb) {
+            if (!exact.add(msb, lsb)) {
+                return;
+            }
+            if (exact.size() > bloom.capacity) {
+                // 想定件数を超えたら倍の大きさで作り直し、偽陽性率を保つ
+                BloomFilter larger = new BloomFilter(bloom.capacity * 2, falsePositiveRate);
+                exact.forEach(larger::put);
+                bloom = larger;
+            } else {
+                bloom.put(msb, lsb);
+            }
+        }
+
+        boolean contains(long msb, long lsb) {
+            if (!bloom.mightContain(msb, lsb)) {
+                return false;
+            }
+            synchronized (this) {
+                return exact.contains(msb, lsb);
+            }
+        }
+
+        synchronized int size() {
+            return exact.size();
+        }
+    }
+
+    /**
+     * 2つのハッシュから k 個の位置を作る（double hashing）Bloom フィルタ。
+     */
+    static final class BloomFilter {
+
+        final int capacity;
+        private final long bitCount;
+        private final int hashCount;
+        private final AtomicLongArray bits;
+
+        BloomFilter(int capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            long m = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bitCount = Math.max(64, (m + 63) / 64 * 64);
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+            this.bits = new AtomicLongArray((int) (bitCount / 64));
+        }
+
+        void put(long msb, long lsb) {
+            long h1 = mix(lsb);
+            long h2 = mix(msb) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = bits.get(word);
+                } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(long msb, long lsb) {
+            long h1 = mix(lsb);
+            long h2 = mix(msb) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+            z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+            return z ^ (z >>> 33);
+        }
+    }
+
+    /**
+     * UUID を2つの long のまま持つオープンアドレス法の集合（1件あたり 16 バイト + 空き）。
+     */
+    static final class UuidSet {
+
+        interface Visitor {
+            void accept(long msb, long lsb);
+        }
+
+        private long[] slots = new long[32];
+        private boolean[] used = new boolean[16];
+        private int size;
+
+        boolean add(long msb, long lsb) {
+            if ((size + 1) * 4 > used.length * 3) {
+                grow();
+            }
+            int i = indexOf(msb, lsb);
+            if (used[i]) {
+                return false;
+            }
+            used[i] = true;
+            slots[2 * i] = msb;
+            slots[2 * i + 1] = lsb;
+            size++;
+            return true;
+        }
+
+        boolean contains(long msb, long lsb) {
+            return used[indexOf(msb, lsb)];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void forEach(Visitor visitor) {
+            for (int i = 0; i < used.length; i++) {
+                if (used[i]) {
+                    visitor.accept(slots[2 * i], slots[2 * i + 1]);
+                }
+            }
+        }
+
+        // 値が入っている位置か、入るべき空きの位置
+        private int indexOf(long msb, long lsb) {
+            int mask = used.length - 1;
+            int i = (int) BloomFilter.mix(msb ^ lsb) & mask;
+            while (used[i] && (slots[2 * i] != msb || slots[2 * i + 1] != lsb)) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        private void grow() {
+            long[] oldSlots = slots;
+            boolean[] oldUsed = used;
+            slots = new long[oldSlots.length * 2];
+            used = new boolean[oldUsed.length * 2];
+            size = 0;
+            for (int i = 0; i < oldUsed.length; i++) {
+                if (oldUsed[i]) {
+                    add(oldSlots[2 * i], oldSlots[2 * i + 1]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.taskmanager.security;
+
+import com.example.taskmanager.service.SchedulerLease;
+import com.example.taskmanager.sharding.ShardContext;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JWT の失効（ログアウト）。判定はメモリ上の {@link TokenDenylist} だけで行い、リクエストごとの DB アクセスはない。
+ *
+ * <p>失効は token_revocations テーブル（シャーディング時はシャード 0）に記録し、RabbitMQ の fanout exchange で他ノードへ通知する。
+ * 各ノードは起動時に有効な失効をすべて読み込み、通知を取りこぼした場合に備えて定期的に新しい行を読み直す。
+ * メッセージ形式: {@code <送信元ノードID>|J|<有効期限ミリ秒>|<jti>} または {@code <送信元ノードID>|A|<発行時刻ミリ秒>|<ユーザー名>}
+ * （以前の {@code U|<発行時刻の秒>} も受け付ける）
+ */
+@Service
+public class TokenRevocationService {
+
+    public static final String EXCHANGE = "tokenRevocation";
+    private static final String LEASE = "token-revocation-purge";
+    // ノード間の時計のずれを見込んで、前回読んだ時刻より少し前から読み直す
+    private static final long SYNC_LOOKBACK_MS = 60_000;
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final TokenDenylist denylist;
+    private final JwtService jwtService;
+    private final JdbcTemplate jdbcTemplate;
+    private final RabbitTemplate rabbitTemplate;
+    private final SchedulerLease lease;
+    private final AtomicLong syncedUpTo = new AtomicLong();
+
+    public TokenRevocationService(JwtService jwtService,
+                                  JdbcTemplate jdbcTemplate,
+                                  RabbitTemplate rabbitTemplate,
+                                  SchedulerLease lease,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.auth.revocation.window:1h}") Duration window,
+                                  @Value("${app.auth.revocation.expected-per-window:100000}") int expectedPerWindow,
+                                  @Value("${app.auth.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.jwtService = jwtService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.rabbitTemplate = rabbitTemplate;
+        this.lease = lease;
+        this.denylist = new TokenDenylist(window.toMillis(), jwtService.getExpirationMs(), expectedPerWindow,
+                falsePositiveRate);
+        Gauge.builder("auth.revoked.tokens", denylist, TokenDenylist::size).register(meterRegistry);
+    }
+
+    // Flyway の後に作られるので、リクエストを受ける前に読み込んでおける
+    @PostConstruct
+    public void load() {
+        sync(0);
+    }
+
+    public boolean isRevoked(Claims claims) {
+        return denylist.isRevoked(tokenId(claims), claims.getExpiration().getTime(), claims.getSubject(),
+                issuedAtMillis(claims));
+    }
+
+    /**
+     * そのトークンだけを失効させる。
+     *
+     * @throws IllegalArgumentException トークンが ID（jti）を持たない
+     */
+    public void revoke(Claims claims) {
+        UUID tokenId = tokenId(claims);
+        if (tokenId == null) {
+            throw new IllegalArgumentException("Token has no id");
+        }
+        long expiresAt = claims.getExpiration().getTime();
+        ShardContext.callOn(ShardContext.DIRECTORY, () -> jdbcTemplate.update(
+                "INSERT IGNORE INTO token_revocations (jti, expires_at, revoked_at) VALUES (?, ?, ?)",
+                tokenId.toString(), expiresAt, System.currentTimeMillis()));
+        denylist.revoke(tokenId, expiresAt);
+        send(nodeId + "|J|" + expiresAt + "|" + tokenId);
+    }
+
+    /**
+     * ユーザーがこれまでに発行されたトークンをすべて失効させる。判定はミリ秒単位で、直後にログインし直して
+     * 発行されたトークンは有効。
+     */
+    public void revokeAll(String username) {
+        long now = System.currentTimeMillis();
+        ShardContext.callOn(ShardContext.DIRECTORY, () -> jdbcTemplate.update(
+                "INSERT INTO token_revocations (username, issued_before, expires_at, revoked_at) VALUES (?, ?, ?, ?)",
+                username, now, now + jwtService.getExpirationMs(), now));
+        denylist.revokeIssuedBefore(username, now);
+        send(nodeId + "|A|" + now + "|" + username);
+    }
+
+    @RabbitListener(queues = "#{tokenRevocationQueue.name}", containerFactory = "cacheInvalidationContainerFactory")
+    public void receive(String message) {
+        String[] parts = message.split("\\|", 4);
+        if (parts.length != 4 || nodeId.equals(parts[0])) {
+            return;
+        }
+        if ("J".equals(parts[1])) {
+            denylist.revoke(UUID.fromString(parts[3]), Long.parseLong(parts[2]));
+        } else if ("A".equals(parts[1])) {
+            denylist.revokeIssuedBefore(parts[3], Long.parseLong(parts[2]));
+        } else if ("U".equals(parts[1])) {
+            // 秒単位の以前の形式。その秒の終わりまでに発行されたものを失効させていた
+            denylist.revokeIssuedBefore(parts[3], Long.parseLong(parts[2]) * 1000 + 999);
+        }
+    }
+
+    // 通知を取りこぼしたノードも、この間隔で追いつく
+    @Scheduled(fixedDelayString = "${app.auth.revocation.sync-interval-ms:60000}",
+            initialDelayString = "${app.auth.revocation.sync-interval-ms:60000}")
+    public void refresh() {
+        sync(Math.max(0, syncedUpTo.get() - SYNC_LOOKBACK_MS));
+        long now = System.currentTimeMillis();
+        denylist.purgeExpired(now);
+        if (lease.tryAcquire(LEASE, Duration.ofMinutes(5))) {
+            int deleted = ShardContext.callOn(ShardContext.DIRECTORY, () ->
+                    jdbcTemplate.update("DELETE FROM token_revocations WHERE expires_at < ?", now));
+            if (deleted > 0) {
+                logger.info("Purged {} expired token revocations", deleted);
+            }
+        }
+    }
+
+    private void sync(long since) {
+        long now = System.currentTimeMillis();
+        ShardContext.callOn(ShardContext.DIRECTORY, () -> {
+            jdbcTemplate.query("""
+                    SELECT jti, username, issued_before, expires_at FROM token_revocations
+                    WHERE revoked_at >= ? AND expires_at > ?
+                    """, rs -> {
+                String jti = rs.getString(1);
+                if (jti != null) {
+                    denylist.revoke(UUID.fromString(jti), rs.getLong(4));
+                } else {
+                    denylist.revokeIssuedBefore(rs.getString(2), rs.getLong(3));
+                }
+            }, since, now);
+            return null;
+        });
+        syncedUpTo.accumulateAndGet(now, Math::max);
+    }
+
+    private void send(String message) {
+        try {
+            rabbitTemplate.convertAndSend(EXCHANGE, "", message);
+        } catch (AmqpException e) {
+            // 他ノードは次の定期読み込みで反映する
+            logger.warn("Failed to broadcast token revocation {}", message, e);
+        }
+    }
+
+    // ミリ秒を持たない以前のトークンは、iat の秒の始まりに発行されたものとして扱う
+    private static long issuedAtMillis(Claims claims) {
+        Number millis = claims.get(JwtService.ISSUED_AT_MILLIS, Number.class);
+        if (millis != null) {
+            return millis.longValue();
+        }
+        return claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0;
+    }
+
+    private static UUID tokenId(Claims claims) {
+        String id = claims.getId();
+        if (id == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
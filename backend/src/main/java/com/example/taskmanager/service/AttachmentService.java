@@ -0,0 +1,84 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.attachment.AttachmentStore;
+import com.example.taskmanager.model.Attachment;
+import com.example.taskmanager.repository.AttachmentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * タスクの添付ファイル。タスクが見えないユーザーには、添付ファイルも存在しないものとして扱う。
+ *
+ * <p>受信中に DB 接続を持ち続けないよう、このクラスにはトランザクションを張らない。
+ * 本体を保存してから行を INSERT するので、途中で失敗すると参照されない本体が残るが、それは AttachmentSweeper が消す。
+ */
+@Service
+public class AttachmentService {
+
+    private final AttachmentRepository attachmentRepository;
+    private final AttachmentStore store;
+    private final TaskService taskService;
+
+    @Value("${app.attachments.max-size:100MB}")
+    private DataSize maxSize;
+
+    public AttachmentService(AttachmentRepository attachmentRepository,
+                             AttachmentStore store,
+                             TaskService taskService) {
+        this.attachmentRepository = attachmentRepository;
+        this.store = store;
+        this.taskService = taskService;
+    }
+
+    public Optional<Attachment> upload(Long taskId, String filename, String contentType, InputStream content)
+            throws IOException {
+        if (taskService.getTaskById(taskId).isEmpty()) {
+            return Optional.empty();
+        }
+        AttachmentStore.StoredObject stored = store.store(content, maxSize.toBytes());
+
+        Attachment attachment = new Attachment();
+        attachment.setTaskId(taskId);
+        attachment.setFilename(filename);
+        attachment.setContentType(contentType);
+        attachment.setSize(stored.size());
+        attachment.setSha256(stored.sha256());
+        attachment.setCreatedAt(LocalDateTime.now());
+        return Optional.of(attachmentRepository.save(attachment));
+    }
+
+    public Optional<List<Attachment>> list(Long taskId) {
+        if (taskService.getTaskById(taskId).isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(attachmentRepository.findByTaskIdOrderByIdAsc(taskId));
+    }
+
+    public Optional<Attachment> find(Long taskId, Long id) {
+        if (taskService.getTaskById(taskId).isEmpty()) {
+            return Optional.empty();
+        }
+        return attachmentRepository.findByIdAndTaskId(id, taskId);
+    }
+
+    /**
+     * 行だけを消す。本体は他の行が参照していることがあるので、AttachmentSweeper に任せる。
+     */
+    public boolean delete(Long taskId, Long id) {
+        Optional<Attachment> attachment = find(taskId, id);
+        attachment.ifPresent(attachmentRepository::delete);
+        return attachment.isPresent();
+    }
+
+    public Path path(Attachment attachment) {
+        return store.path(attachment.getSha256());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.attachment.AttachmentStore;
+import com.example.taskmanager.sharding.ShardTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 参照されなくなった添付ファイルを消す。
+ *
+ * <p>まず各シャードで、タスクが tasks にも tasks_archive にもない行を消す（タスクの削除では行を残すため）。
+ * 次に全シャードから参照中のハッシュを集め、どれにも含まれず {@code orphan-grace} より古い本体を消す。
+ * 実行はリースを持つ1ノードだけが行う。
+ */
+@Service
+public class AttachmentSweeper {
+
+    private static final String LEASE = "attachment-sweeper";
+    private static final int DELETE_BATCH = 1000;
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentSweeper.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AttachmentStore store;
+    private final SchedulerLease lease;
+    private final ShardTemplate shardTemplate;
+
+    @Value("${app.attachments.orphan-grace:1h}")
+    private Duration orphanGrace;
+
+    public AttachmentSweeper(JdbcTemplate jdbcTemplate,
+                             AttachmentStore store,
+                             SchedulerLease lease,
+                             ShardTemplate shardTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.store = store;
+        this.lease = lease;
+        this.shardTemplate = shardTemplate;
+    }
+
+    @Scheduled(initialDelayString = "${app.attachments.sweep-initial-delay-ms:120000}",
+            fixedDelayString = "${app.attachments.sweep-interval-ms:3600000}")
+    public void run() {
+        if (!lease.tryAcquire(LEASE, Duration.ofMinutes(10))) {
+            return;
+        }
+        try {
+            sweep();
+        } catch (IOException e) {
+            logger.warn("Attachment sweep failed", e);
+        } finally {
+            lease.release(LEASE);
+        }
+    }
+
+    private void sweep() throws IOException {
+        // 行より先に本体を消さないよう、猶予の起点は参照を集める前に決める
+        Instant olderThan = Instant.now().minus(orphanGrace);
+        int[] rows = {0};
+        shardTemplate.forEachShard(shard -> rows[0] += deleteOrphanRows());
+
+        Set<String> referenced = new HashSet<>();
+        shardTemplate.gather(shard -> jdbcTemplate.queryForList("SELECT DISTINCT sha256 FROM attachments", String.class))
+                .forEach(referenced::addAll);
+        int files = store.deleteUnreferenced(referenced, olderThan);
+        if (rows[0] > 0 || files > 0) {
+            logger.info("Swept {} orphan attachment rows and {} unreferenced files", rows[0], files);
+        }
+    }
+
+    private int deleteOrphanRows() {
+        int total = 0;
+        int deleted;
+        do {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT a.id FROM attachments a "
+                            + "WHERE NOT EXISTS (SELECT 1 FROM tasks t WHERE t.id = a.task_id) "
+                            + "AND NOT EXISTS (SELECT 1 FROM tasks_archive ta WHERE ta.id = a.task_id) "
+                            + "LIMIT " + DELETE_BATCH, Long.class);
+            if (ids.isEmpty()) {
+                break;
+            }
+            deleted = jdbcTemplate.update("DELETE FROM attachments WHERE id IN ("
+                    + String.join(",", ids.stream().map(String::valueOf).toList()) + ")");
+            total += deleted;
+        } while (deleted == DELETE_BATCH);
+        return total;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.taskmanager.service;
+
+/**
+ * 手動の並び順に使う分数インデックス。キーは base62（0-9A-Za-z、ASCII 順）の文字列で、
+ * 任意の2つのキーの間に必ず新しいキーを作れるよう、末尾が '0' のキーは使わない。
+ *
+ * <p>間への挿入は中間の桁を選ぶので、同じ場所に挿入し続けるとおよそ6回に1文字ずつ長くなる。
+ * 先頭・末尾への追加は隣の桁を選ぶので、61回に1文字しか伸びない。
+ */
+public final class FractionalIndex {
+
+    static final String DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final int BASE = DIGITS.length();
+
+    private FractionalIndex() {
+    }
+
+    /**
+     * a と b の間のキーを返す。a が null なら先頭、b が null なら末尾に置くキー。
+     */
+    public static String between(String a, String b) {
+        if (a != null) {
+            validate(a);
+        }
+        if (b != null) {
+            validate(b);
+        }
+        if (a != null && b != null && a.compareTo(b) >= 0) {
+            throw new IllegalArgumentException("Key " + a + " must sort before " + b);
+        }
+        if (a == null && b == null) {
+            return String.valueOf(DIGITS.charAt(BASE / 2));
+        }
+        if (b == null) {
+            return after(a);
+        }
+        if (a == null) {
+            return before(b);
+        }
+        return midpoint(a, b);
+    }
+
+    public static boolean isValid(String key) {
+        if (key == null || key.isEmpty() || key.charAt(key.length() - 1) == '0') {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (DIGITS.indexOf(key.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String after(String a) {
+        for (int i = 0; i < a.length(); i++) {
+            int digit = digit(a.charAt(i));
+            if (digit < BASE - 1) {
+                return a.substring(0, i) + DIGITS.charAt(digit + 1);
+            }
+        }
+        return a + DIGITS.charAt(1);
+    }
+
+    private static String before(String b) {
+        for (int i = 0; i < b.length(); i++) {
+            int digit = digit(b.charAt(i));
+            if (digit >= 2) {
+                return b.substring(0, i) + DIGITS.charAt(digit - 1);
+            }
+            if (digit == 1) {
+                // b がこの桁で終わっていなければ、ここまでの接頭辞が b より前になる
+                return i < b.length() - 1
+                        ? b.substring(0, i + 1)
+                        : b.substring(0, i) + DIGITS.charAt(0) + DIGITS.charAt(BASE - 1);
+            }
+        }
+        throw new IllegalStateException("unreachable: key ends with '0'");
+    }
+
+    // a（空文字列は 0 とみなす）< b。b が null なら上限なし
+    private static String midpoint(String a, String b) {
+        if (b != null) {
+            int n = 0;
+            while (n < b.length() && (n < a.length() ? a.charAt(n) : DIGITS.charAt(0)) == b.charAt(n)) {
+                n++;
+            }
+            if (n > 0) {
+                return b.substring(0, n) + midpoint(n < a.length() ? a.substring(n) : "", b.substring(n));
+            }
+        }
+        int digitA = a.isEmpty() ? 0 : digit(a.charAt(0));
+        int digitB = b != null ? digit(b.charAt(0)) : BASE;
+        if (digitB - digitA > 1) {
+            return String.valueOf(DIGITS.charAt((digitA + digitB) / 2));
+        }
+        if (b != null && b.length() > 1) {
+            return b.substring(0, 1);
+        }
+        return DIGITS.charAt(digitA) + midpoint(a.isEmpty() ? "" : a.substring(1), null);
+    }
+
+    private static int digit(char c) {
+        return DIGITS.indexOf(c);
+    }
+
+    private static void validate(String key) {
+        if (!isValid(key)) {
+            throw new IllegalArgumentException("Invalid position key: " + key);
+        }
+    }
+}
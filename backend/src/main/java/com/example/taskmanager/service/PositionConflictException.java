@@ -0,0 +1,11 @@
+package com.example.taskmanager.service;
+
+/**
+ * 手動の並び順で、挿入先の前後のタスクが同じキーを持っていて間に入れられない。キーの振り直しの後に再試行する。
+ */
+public class PositionConflictException extends RuntimeException {
+
+    public PositionConflictException(String position) {
+        super("Neighbouring tasks share position " + position);
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.mapper.TaskMapper;
+import com.example.taskmanager.model.Task;
+import com.example.taskmanager.model.TaskSeries;
+import com.example.taskmanager.repository.TaskRepository;
+import com.example.taskmanager.repository.TaskSeriesRepository;
+import com.example.taskmanager.sharding.ShardContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 繰り返しタスク。各回は要求された期間の月ごとに展開し、展開結果は件数上限つきの LRU にキャッシュする。
+ *
+ * <p>個別に完了・編集した回だけを tasks に実体化（series_id + occurrence_date）し、
+ * 削除した回は task_series_exdates に記録する。一覧ではそれらを除いた仮想の回を実タスクとマージする。
+ */
+@Service
+public class RecurringTaskService {
+
+    private static final Comparator<TaskDTO> BY_DUE_DATE = Comparator
+            .comparing((TaskDTO dto) -> dto.dueDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(dto -> dto.id, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(dto -> dto.seriesId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final TaskSeriesRepository seriesRepository;
+    private final TaskRepository taskRepository;
+    private final TaskService taskService;
+    private final Map<String, List<LocalDate>> expansions;
+
+    public RecurringTaskService(TaskSeriesRepository seriesRepository,
+                                TaskRepository taskRepository,
+                                TaskService taskService,
+                                @Value("${app.recurrence.cache-size:10000}") int cacheSize) {
+        this.seriesRepository = seriesRepository;
+        this.taskRepository = taskRepository;
+        this.taskService = taskService;
+        this.expansions = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<LocalDate>> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public List<TaskSeries> getAllSeries() {
+        return seriesRepository.findAll();
+    }
+
+    // ID での読み込みには所有者のフィルターが効かないので、ここで確かめる
+    @Transactional(readOnly = true)
+    public Optional<TaskSeries> getSeries(Long id) {
+        return seriesRepository.findById(id).filter(series -> ShardContext.canSee(series.getOwnerId()));
+    }
+
+    @Transactional
+    public TaskSeries saveSeries(TaskSeries series) {
+        return seriesRepository.save(series);
+    }
+
+    // 実体化済みの回は通常のタスクとして残す
+    @Transactional
+    public void deleteSeries(Long id) {
+        seriesRepository.deleteExdates(id);
+        seriesRepository.deleteById(id);
+    }
+
+    /**
+     * from〜to（両端含む）の実タスクと仮想の回を期限順にマージして返す。
+     */
+    @Transactional(readOnly = true)
+    public List<TaskDTO> getTasksBetween(LocalDate from, LocalDate to) {
+        List<TaskDTO> real = taskRepository.findByDueDateBetween(from, to).stream()
+                .map(TaskMapper::toDTO)
+                .toList();
+
+        Set<String> overridden = new HashSet<>(seriesRepository.findOverriddenOccurrences(from, to));
+        List<TaskDTO> virtual = new ArrayList<>();
+        for (TaskSeries series : seriesRepository.findActiveBetween(from, to)) {
+            for (LocalDate date : expand(series, from, to)) {
+                if (!overridden.contains(series.getId() + "|" + date)) {
+                    virtual.add(toVirtualDTO(series, date));
+                }
+            }
+        }
+        virtual.sort(BY_DUE_DATE);
+        return merge(real, virtual);
+    }
+
+    /**
+     * その回をタスクとして実体化する（済みならそれを返す）。その日に回がないか、アーカイブ済みなら空。
+     */
+    @Transactional
+    public Optional<Task> materialize(Long seriesId, LocalDate date) {
+        Optional<Task> existing = taskRepository.findBySeriesIdAndOccurrenceDate(seriesId, date);
+        if (existing.isPresent()) {
+            return existing;
+        }
+        Optional<TaskSeries> series = getSeries(seriesId);
+        if (series.isEmpty() || !series.get().occursOn(date) || seriesRepository.countExdates(seriesId, date) > 0
+                || seriesRepository.countArchivedOccurrences(seriesId, date) > 0) {
+            return Optional.empty();
+        }
+        Task task = new Task();
+        task.setTitle(series.get().getTitle());
+        task.setDescription(series.get().getDescription());
+        task.setDueDate(date);
+        task.setSeriesId(seriesId);
+        task.setOccurrenceDate(date);
+        task.setTags(new HashSet<>());
+        return Optional.of(taskService.createTask(task));
+    }
+
+    /**
+     * その回を削除する。実体化済みならそのタスクも削除する。
+     */
+    @Transactional
+    public boolean deleteOccurrence(Long seriesId, LocalDate date) {
+        Optional<TaskSeries> series = getSeries(seriesId);
+        if (series.isEmpty() || !series.get().occursOn(date)) {
+            return false;
+        }
+        taskRepository.findBySeriesIdAndOccurrenceDate(seriesId, date)
+                .ifPresent(task -> taskService.deleteTask(task.getId()));
+        seriesRepository.addExdate(seriesId, date);
+        return true;
+    }
+
+    private List<LocalDate> expand(TaskSeries series, LocalDate from, LocalDate to) {
+        List<LocalDate> dates = new ArrayList<>();
+        for (YearMonth month = YearMonth.from(from); !month.isAfter(YearMonth.from(to)); month = month.plusMonths(1)) {
+            String key = series.getId() + ":" + series.getVersion() + ":" + month;
+            YearMonth m = month;
+            for (LocalDate date : expansions.computeIfAbsent(key, k -> List.copyOf(series.occurrencesIn(m)))) {
+                if (!date.isBefore(from) && !date.isAfter(to)) {
+                    dates.add(date);
+                }
+            }
+        }
+        return dates;
+    }
+
+    private static TaskDTO toVirtualDTO(TaskSeries series, LocalDate date) {
+        TaskDTO dto = new TaskDTO();
+        dto.title = series.getTitle();
+        dto.description = series.getDescription();
+        dto.dueDate = date.toString();
+        dto.tagIds = new HashSet<>();
+        dto.seriesId = series.getId();
+        dto.occurrenceDate = date.toString();
+        return dto;
+    }
+
+    // どちらも期限順に並んでいる前提
+    private static List<TaskDTO> merge(List<TaskDTO> a, List<TaskDTO> b) {
+        List<TaskDTO> merged = new ArrayList<>(a.size() + b.size());
+        int i = 0;
+        int j = 0;
+        while (i < a.size() && j < b.size()) {
+            merged.add(BY_DUE_DATE.compare(a.get(i), b.get(j)) <= 0 ? a.get(i++) : b.get(j++));
+        }
+        merged.addAll(a.subList(i, a.size()));
+        merged.addAll(b.subList(j, b.size()));
+        return merged;
+    }
+}
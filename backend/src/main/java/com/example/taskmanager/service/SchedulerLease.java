@@ -0,0 +1,38 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.sharding.ShardContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * scheduler_leases テーブルを使った簡易リース。期限は DB の時刻で判定するので、ノード間の時計のずれに影響されない。
+ * シャーディング時も、リースはシャード 0 の表だけを使う。
+ */
+@Component
+public class SchedulerLease {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String owner = UUID.randomUUID().toString();
+
+    public SchedulerLease(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * リースを取得または延長する。他ノードが有効なリースを持っていれば false。
+     */
+    public boolean tryAcquire(String name, Duration ttl) {
+        return ShardContext.callOn(ShardContext.DIRECTORY, () -> jdbcTemplate.update(
+                "UPDATE scheduler_leases SET owner = ?, expires_at = NOW(6) + INTERVAL ? SECOND "
+                        + "WHERE name = ? AND (owner = ? OR owner IS NULL OR expires_at < NOW(6))",
+                owner, ttl.toSeconds(), name, owner)) == 1;
+    }
+
+    public void release(String name) {
+        ShardContext.callOn(ShardContext.DIRECTORY, () ->
+                jdbcTemplate.update("UPDATE scheduler_leases SET owner = NULL WHERE name = ? AND owner = ?", name, owner));
+    }
+}
@@ -1,12 +1,29 @@
 package com.example.taskmanager.service;
 
+import com.example.taskmanager.cache.ClusterCacheInvalidator;
+import com.example.taskmanager.dto.TagBulkResultDTO;
 import com.example.taskmanager.dto.TagDTO;
+import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.history.HistoryEvent;
+import com.example.taskmanager.history.HistoryLog;
 import com.example.taskmanager.model.Tag;
+import com.example.taskmanager.model.Task;
+import com.example.taskmanager.repository.TagLinkRepository;
 import com.example.taskmanager.repository.TagRepository;
+import com.example.taskmanager.sharding.ShardContext;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -16,29 +33,180 @@ public class TagService {
     @Autowired
     private TagRepository tagRepository;
 
+    @Autowired
+    private HistoryLog historyLog;
+
+    @Autowired
+    private TagSuggestIndex suggestIndex;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TagLinkRepository tagLinkRepository;
+
+    @Autowired
+    private ClusterCacheInvalidator cacheInvalidator;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional(readOnly = true)
     public List<TagDTO> getAllTags() {
-        List<Tag> tags = tagRepository.findAll();
+        List<Tag> tags = tagRepository.findAllOwnedBy(ShardContext.currentOwnerOrAll());
         return tags.stream()
                 .map(tag -> new TagDTO(tag.getId(), tag.getName()))
                 .collect(Collectors.toList());
     }
 
+    // ID での読み込みには所有者のフィルターが効かないので、ここで確かめる
+    @Transactional(readOnly = true)
     public Optional<Tag> getTagById(Long id) {
-        return tagRepository.findById(id);
+        return tagRepository.findById(id).filter(tag -> ShardContext.canSee(tag.getOwnerId()));
+    }
+
+    // findAllById と違い、二次キャッシュにあるタグは DB に問い合わせない
+    @Transactional(readOnly = true)
+    public List<Tag> getTagsByIds(Collection<Long> ids) {
+        return entityManager.unwrap(Session.class)
+                .byMultipleIds(Tag.class)
+                .multiLoad(List.copyOf(ids))
+                .stream()
+                .filter(Objects::nonNull)
+                .filter(tag -> ShardContext.canSee(tag.getOwnerId()))
+                .collect(Collectors.toList());
     }
 
+    public List<TagDTO> suggestTags(String prefix, int limit) {
+        Long owner = ShardContext.currentOwner();
+        return owner != null ? suggestIndex.suggest(owner, prefix, limit) : List.of();
+    }
+
+    /**
+     * 同じ正規化名のタグがあればそれを返す。同時に作られて一意制約に当たった場合も、先に作られた方を返す。
+     */
     public Tag createTag(Tag tag) {
-        return tagRepository.save(tag);
+        String normalizedName = Tag.normalize(tag.getName());
+        Optional<Tag> existing = tagRepository.findByNormalizedName(normalizedName);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        try {
+            return transactionTemplate.execute(status -> {
+                Tag saved = tagRepository.save(tag);
+                record(HistoryEvent.Op.CREATE, saved);
+                suggestIndex.put(saved);
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            return tagRepository.findByNormalizedName(normalizedName).orElseThrow(() -> e);
+        }
     }
 
+    // 別のタグと同じ名前への変更は一意制約違反（DataIntegrityViolationException）になる
+    @Transactional
     public Tag updateTag(Long id, Tag updatedTag) {
-        return tagRepository.findById(id).map(tag -> {
+        return getTagById(id).map(tag -> {
             tag.setName(updatedTag.getName());
-            return tagRepository.save(tag);
+            Tag saved = tagRepository.saveAndFlush(tag);
+            record(HistoryEvent.Op.UPDATE, saved);
+            suggestIndex.put(saved);
+            return saved;
         }).orElse(null);
     }
 
-    public void deleteTag(Long id) {
-        tagRepository.deleteById(id);
+    /**
+     * filter に合う自分のタスクにまとめてタグを付ける。タグが見えなければ null。
+     */
+    public TagBulkResultDTO assignTag(Long id, TaskFilterDTO filter) {
+        if (getTagById(id).isEmpty()) {
+            return null;
+        }
+        TagLinkRepository.Changed changed = transactionTemplate.execute(status ->
+                tagLinkRepository.assign(id, ShardContext.currentOwner(), filter.toQuery(), filter.taskIds));
+        afterLinksChanged(id, HistoryEvent.Op.ASSIGN, changed.taskIds(), Map.of("taskIds", changed.taskIds()));
+        TagBulkResultDTO result = new TagBulkResultDTO(id);
+        result.linksAdded = changed.links();
+        return result;
+    }
+
+    /**
+     * filter に合う自分のタスクからまとめてタグを外す。タグが見えなければ null。
+     */
+    public TagBulkResultDTO unassignTag(Long id, TaskFilterDTO filter) {
+        if (getTagById(id).isEmpty()) {
+            return null;
+        }
+        TagLinkRepository.Changed changed = transactionTemplate.execute(status ->
+                tagLinkRepository.unassign(id, ShardContext.currentOwner(), filter.toQuery(), filter.taskIds));
+        afterLinksChanged(id, HistoryEvent.Op.UNASSIGN, changed.taskIds(), Map.of("taskIds", changed.taskIds()));
+        TagBulkResultDTO result = new TagBulkResultDTO(id);
+        result.linksRemoved = changed.links();
+        return result;
+    }
+
+    /**
+     * id のタグを targetId のタグへまとめて、id を消す。どちらかが見えなければ null。
+     */
+    public TagBulkResultDTO mergeTag(Long id, Long targetId) {
+        if (getTagById(id).isEmpty() || getTagById(targetId).isEmpty()) {
+            return null;
+        }
+        TagLinkRepository.Removed removed = transactionTemplate.execute(status ->
+                tagLinkRepository.lockTags(List.of(id, targetId)).size() == 2
+                        ? tagLinkRepository.merge(id, targetId)
+                        : null);
+        if (removed == null) {
+            return null;
+        }
+        afterLinksChanged(id, HistoryEvent.Op.MERGE, removed.taskIds(),
+                Map.of("into", targetId, "taskIds", removed.taskIds()));
+        afterTagDeleted(id);
+        TagBulkResultDTO result = new TagBulkResultDTO(id);
+        result.linksAdded = removed.linksAdded();
+        result.linksRemoved = removed.linksRemoved();
+        result.archivedLinksRemoved = removed.archivedLinksRemoved();
+        result.tagsDeleted = removed.tagsDeleted();
+        return result;
+    }
+
+    /**
+     * タグとすべてのタスクとの関連を消す。関連はエンティティを読み込まずに SQL でまとめて消す。タグが見えなければ null。
+     */
+    public TagBulkResultDTO deleteTag(Long id) {
+        if (getTagById(id).isEmpty()) {
+            return null;
+        }
+        TagLinkRepository.Removed removed = transactionTemplate.execute(status ->
+                tagLinkRepository.lockTags(List.of(id)).isEmpty() ? null : tagLinkRepository.delete(id));
+        if (removed == null) {
+            return null;
+        }
+        afterLinksChanged(id, HistoryEvent.Op.UNASSIGN, removed.taskIds(), Map.of("taskIds", removed.taskIds()));
+        afterTagDeleted(id);
+        TagBulkResultDTO result = new TagBulkResultDTO(id);
+        result.linksRemoved = removed.linksRemoved();
+        result.archivedLinksRemoved = removed.archivedLinksRemoved();
+        result.tagsDeleted = removed.tagsDeleted();
+        return result;
+    }
+
+    // コミット後に呼ぶ。変わったタスクの Task.tags をキャッシュから追い出し、読み取りモデルにも反映させる
+    private void afterLinksChanged(long id, HistoryEvent.Op op, List<Long> taskIds, Map<String, Object> details) {
+        if (taskIds.isEmpty()) {
+            return;
+        }
+        cacheInvalidator.invalidateAll(Task.class, taskIds);
+        historyLog.record(HistoryEvent.EntityType.TAG, op, id, details);
+    }
+
+    private void afterTagDeleted(long id) {
+        cacheInvalidator.invalidate(Tag.class, id);
+        historyLog.record(HistoryEvent.EntityType.TAG, HistoryEvent.Op.DELETE, id, null);
+        suggestIndex.remove(id);
+    }
+
+    private void record(HistoryEvent.Op op, Tag tag) {
+        historyLog.record(HistoryEvent.EntityType.TAG, op, tag.getId(), new TagDTO(tag.getId(), tag.getName()));
     }
 }
@@ -0,0 +1,243 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dto.TagDTO;
+import com.example.taskmanager.model.Tag;
+import com.example.taskmanager.sharding.ShardTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * タグ名の前方一致補完用のインメモリ索引。使われているタスク数の多い順に返す。
+ *
+ * <p>本体は正規化名でソートした配列のスナップショットで、二分探索で範囲を求めて走査する。
+ * 使用数と他ノードでの変更は {@code refresh-interval-ms} ごとの再構築で取り込み、
+ * このノードでの作成・変更・削除は再構築までの間、差分として重ねる。
+ *
+ * <p>タグはユーザーごとなので、キーは所有者 ID と正規化名をつないだもの（{@link #key}）にし、
+ * 同じ所有者のタグが連続した範囲に並ぶようにしている。
+ */
+@Component
+public class TagSuggestIndex {
+
+    /** 索引の1件。normalizedName は {@link Tag#normalize} 済みの名前。 */
+    public record Usage(long id, long ownerId, String normalizedName, String name, int usage) {}
+
+    private record Candidate(long id, String key, String name, int usage) {}
+
+    // key が null の場合は削除
+    private record Change(long seq, long id, String key, String name, int usage) {}
+
+    private record Snapshot(String[] keys, long[] ids, String[] names, int[] usages, Map<Long, Integer> positions) {}
+
+    private static final Logger logger = LoggerFactory.getLogger(TagSuggestIndex.class);
+
+    private static final Comparator<Candidate> RANK = Comparator
+            .comparingInt(Candidate::usage).reversed()
+            .thenComparing(Candidate::key);
+
+    private static final Snapshot EMPTY = new Snapshot(new String[0], new long[0], new String[0], new int[0], Map.of());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardTemplate shardTemplate;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Change> changes = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Change> changedKeys = new ConcurrentSkipListMap<>();
+    private volatile Snapshot snapshot = EMPTY;
+
+    public TagSuggestIndex(JdbcTemplate jdbcTemplate, ShardTemplate shardTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardTemplate = shardTemplate;
+    }
+
+    /**
+     * ownerId のタグのうち prefix で始まるものを使用数の多い順に最大 limit 件返す。大文字小文字と前後の空白は区別しない。
+     */
+    public List<TagDTO> suggest(long ownerId, String prefix, int limit) {
+        String normalized = Tag.normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String key = key(ownerId, normalized);
+        // 順位の低いものを先頭に置き、limit 件を超えたら捨てる
+        PriorityQueue<Candidate> top = new PriorityQueue<>(limit + 1, RANK.reversed());
+
+        // 範囲の両端を二分探索で求め、範囲内は使用数の配列だけを見て候補を絞る
+        Snapshot current = snapshot;
+        int[] usages = current.usages();
+        int end = lowerBound(current.keys(), key + Character.MAX_VALUE);
+        for (int i = lowerBound(current.keys(), key); i < end; i++) {
+            if (top.size() == limit && usages[i] <= top.peek().usage()) {
+                continue;
+            }
+            if (!changes.isEmpty() && changes.containsKey(current.ids()[i])) {
+                continue;
+            }
+            offer(top, new Candidate(current.ids()[i], current.keys()[i], current.names()[i], usages[i]), limit);
+        }
+        for (Change change : changedKeys.subMap(key, key + Character.MAX_VALUE).values()) {
+            offer(top, new Candidate(change.id(), change.key(), change.name(), change.usage()), limit);
+        }
+
+        List<Candidate> ranked = new ArrayList<>(top);
+        ranked.sort(RANK);
+        return ranked.stream().map(entry -> new TagDTO(entry.id(), entry.name())).toList();
+    }
+
+    /**
+     * タグの作成・名前の変更を反映する。トランザクション中ならコミット後に反映する。
+     */
+    public void put(Tag tag) {
+        long id = tag.getId();
+        String key = key(tag.getOwnerId() != null ? tag.getOwnerId() : 0, Tag.normalize(tag.getName()));
+        String name = tag.getName();
+        afterCommit(() -> apply(id, key, name));
+    }
+
+    public void remove(long id) {
+        afterCommit(() -> apply(id, null, null));
+    }
+
+    public int size() {
+        return snapshot.keys().length;
+    }
+
+    /**
+     * 全シャードの DB からスナップショットを作り直す。開始前に反映済みの差分は DB にもあるので捨てる。
+     */
+    @Scheduled(fixedDelayString = "${app.tags.suggest.refresh-interval-ms:60000}")
+    public void refresh() {
+        long seq = sequence.get();
+        // シャード間の移動中は同じタグが両方にあるので id でまとめる
+        Map<Long, Usage> usages = new LinkedHashMap<>();
+        try {
+            for (List<Usage> shard : shardTemplate.gather(shard -> loadShard())) {
+                shard.forEach(usage -> usages.putIfAbsent(usage.id(), usage));
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Failed to refresh tag suggest index", e);
+            return;
+        }
+        rebuild(seq, List.copyOf(usages.values()));
+    }
+
+    private List<Usage> loadShard() {
+        List<Usage> usages = new ArrayList<>();
+        jdbcTemplate.query("""
+                SELECT t.id, t.owner_id, t.name, t.normalized_name,
+                       (SELECT COUNT(*) FROM task_tags tt WHERE tt.tag_id = t.id) AS usage_count
+                FROM tags t
+                """, rs -> {
+            usages.add(new Usage(rs.getLong("id"), rs.getLong("owner_id"), rs.getString("normalized_name"),
+                    rs.getString("name"), rs.getInt("usage_count")));
+        });
+        return usages;
+    }
+
+    /**
+     * 与えた一覧でスナップショットを置き換える。
+     */
+    public void load(List<Usage> usages) {
+        rebuild(sequence.get(), usages);
+    }
+
+    // seq までの差分は usages に含まれている
+    private void rebuild(long seq, List<Usage> usages) {
+        List<Usage> entries = new ArrayList<>(usages);
+        // DB の照合順序に頼らず Java の文字列順でそろえる
+        entries.sort(Comparator.comparing(entry -> key(entry.ownerId(), entry.normalizedName())));
+
+        int size = entries.size();
+        String[] keys = new String[size];
+        long[] ids = new long[size];
+        String[] names = new String[size];
+        int[] counts = new int[size];
+        Map<Long, Integer> positions = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            Usage entry = entries.get(i);
+            keys[i] = key(entry.ownerId(), entry.normalizedName());
+            ids[i] = entry.id();
+            names[i] = entry.name();
+            counts[i] = entry.usage();
+            positions.put(entry.id(), i);
+        }
+        synchronized (this) {
+            snapshot = new Snapshot(keys, ids, names, counts, positions);
+            for (Change change : List.copyOf(changes.values())) {
+                if (change.seq() <= seq) {
+                    changes.remove(change.id(), change);
+                    if (change.key() != null) {
+                        changedKeys.remove(change.key(), change);
+                    }
+                }
+            }
+        }
+        logger.debug("Tag suggest index rebuilt with {} tags", size);
+    }
+
+    private synchronized void apply(long id, String key, String name) {
+        Change previous = changes.get(id);
+        int usage;
+        if (previous != null) {
+            usage = previous.usage();
+            if (previous.key() != null) {
+                changedKeys.remove(previous.key(), previous);
+            }
+        } else {
+            Integer pos = snapshot.positions().get(id);
+            usage = pos != null ? snapshot.usages()[pos] : 0;
+        }
+        Change change = new Change(sequence.incrementAndGet(), id, key, name, usage);
+        changes.put(id, change);
+        if (key != null) {
+            changedKeys.put(key, change);
+        }
+    }
+
+    // 区切りの NUL 文字はどの文字よりも前に並ぶので、所有者 12 のキーが所有者 1 の範囲に紛れ込むことはない
+    private static String key(long ownerId, String normalizedName) {
+        return ownerId + "\u0000" + normalizedName;
+    }
+
+    private static void offer(PriorityQueue<Candidate> top, Candidate entry, int limit) {
+        top.offer(entry);
+        if (top.size() > limit) {
+            top.poll();
+        }
+    }
+
+    private static int lowerBound(String[] keys, String key) {
+        int pos = Arrays.binarySearch(keys, key);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.ClusterCacheInvalidator;
+import com.example.taskmanager.history.HistoryEvent;
+import com.example.taskmanager.history.HistoryLog;
+import com.example.taskmanager.model.Task;
+import com.example.taskmanager.sharding.ShardContext;
+import com.example.taskmanager.sharding.ShardTemplate;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 完了から一定期間たったタスクを tasks_archive / task_tags_archive へ移す。
+ *
+ * <p>サブタスクを持つタスクは対象外（子が先にアーカイブされると、次の実行で対象になる）。
+ * ロックを長く持たないよう、少数ずつ短いトランザクションで移動し、バッチの間に休みを入れる。
+ * 実行はリースを持つ1ノードだけが行い、シャーディング時はシャードを順に処理する。
+ */
+@Service
+@ConditionalOnProperty(name = "app.archiver.enabled", havingValue = "true")
+public class TaskArchiver {
+
+    public record Report(LocalDateTime finishedAt, int tasksMoved, int tagLinksMoved, int batches,
+                         long minBatchMs, long maxBatchMs, long avgBatchMs,
+                         Long listQueryMsBefore, Long listQueryMsAfter) {}
+
+    private static final String LEASE = "task-archiver";
+    private static final Logger logger = LoggerFactory.getLogger(TaskArchiver.class);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLease lease;
+    private final ClusterCacheInvalidator cacheInvalidator;
+    private final HistoryLog historyLog;
+    private final ShardTemplate shardTemplate;
+    private final ExecutorService manualRuns =
+            Executors.newSingleThreadExecutor(Thread.ofPlatform().name("task-archiver").daemon().factory());
+    private final AtomicBoolean runRequested = new AtomicBoolean();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Report lastReport;
+
+    @Value("${app.archiver.max-age:30d}")
+    private Duration maxAge;
+
+    @Value("${app.archiver.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.archiver.batch-pause-ms:200}")
+    private long batchPauseMs;
+
+    @Value("${app.archiver.max-batches-per-run:500}")
+    private int maxBatchesPerRun;
+
+    @Value("${app.archiver.measure-list-latency:true}")
+    private boolean measureListLatency;
+
+    public TaskArchiver(NamedParameterJdbcTemplate jdbcTemplate,
+                        TransactionTemplate transactionTemplate,
+                        SchedulerLease lease,
+                        ClusterCacheInvalidator cacheInvalidator,
+                        HistoryLog historyLog,
+                        ShardTemplate shardTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.lease = lease;
+        this.cacheInvalidator = cacheInvalidator;
+        this.historyLog = historyLog;
+        this.shardTemplate = shardTemplate;
+    }
+
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * 手動実行を受け付けて、別スレッドで実行する。まだ始まっていない依頼があればそれにまとめる。
+     */
+    public void requestRun() {
+        if (runRequested.compareAndSet(false, true)) {
+            manualRuns.execute(() -> {
+                runRequested.set(false);
+                try {
+                    run();
+                } catch (RuntimeException e) {
+                    logger.warn("Manual archive run failed", e);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        manualRuns.shutdownNow();
+    }
+
+    @Scheduled(initialDelayString = "${app.archiver.initial-delay-ms:60000}",
+            fixedDelayString = "${app.archiver.interval-ms:600000}")
+    public void run() {
+        // リースはノード単位なので、同じノードの定期実行と手動実行はここで重ならないようにする
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            runWithLease();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void runWithLease() {
+        Duration leaseTtl = Duration.ofMillis(Math.max(60_000, batchPauseMs * 10));
+        if (!lease.tryAcquire(LEASE, leaseTtl)) {
+            return;
+        }
+        try {
+            Report report = archive(leaseTtl);
+            if (report.batches() > 0) {
+                lastReport = report;
+                logger.info("Archived {} tasks ({} tag links) in {} batches; batch ms min/avg/max = {}/{}/{}; "
+                                + "list query ms before/after = {}/{}",
+                        report.tasksMoved(), report.tagLinksMoved(), report.batches(),
+                        report.minBatchMs(), report.avgBatchMs(), report.maxBatchMs(),
+                        report.listQueryMsBefore(), report.listQueryMsAfter());
+            }
+        } finally {
+            lease.release(LEASE);
+        }
+    }
+
+    // 全シャードの合計。一覧クエリの時間は最初に対象のあったシャードで測る
+    private static final class Totals {
+        int tasksMoved;
+        int tagLinksMoved;
+        int batches;
+        long minMs = Long.MAX_VALUE;
+        long maxMs;
+        long totalMs;
+        Long listBefore;
+        Integer measuredShard;
+        boolean stopped;
+    }
+
+    private Report archive(Duration leaseTtl) {
+        LocalDateTime cutoff = LocalDateTime.now().minus(maxAge);
+        Totals totals = new Totals();
+        shardTemplate.forEachShard(shard -> {
+            if (!totals.stopped) {
+                archiveShard(shard, cutoff, leaseTtl, totals);
+            }
+        });
+
+        Long listAfter = totals.measuredShard != null
+                ? ShardContext.callOn(totals.measuredShard, this::measureListQuery)
+                : null;
+        int batches = totals.batches;
+        return new Report(LocalDateTime.now(), totals.tasksMoved, totals.tagLinksMoved, batches,
+                batches > 0 ? totals.minMs : 0, totals.maxMs, batches > 0 ? totals.totalMs / batches : 0,
+                totals.listBefore, listAfter);
+    }
+
+    private void archiveShard(int shard, LocalDateTime cutoff, Duration leaseTtl, Totals totals) {
+        while (totals.batches < maxBatchesPerRun) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM tasks t WHERE completed = 1 AND completed_at < :cutoff "
+                            + "AND NOT EXISTS (SELECT 1 FROM task_closure c WHERE c.ancestor_id = t.id AND c.depth > 0) "
+                            + "ORDER BY completed_at LIMIT :limit",
+                    new MapSqlParameterSource("cutoff", cutoff).addValue("limit", batchSize), Long.class);
+            if (ids.isEmpty()) {
+                return;
+            }
+            if (totals.measuredShard == null && measureListLatency) {
+                totals.listBefore = measureListQuery();
+                totals.measuredShard = shard;
+            }
+
+            long start = System.nanoTime();
+            int[] moved = transactionTemplate.execute(status -> moveBatch(ids));
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            ids.forEach(id -> {
+                cacheInvalidator.invalidate(Task.class, id);
+                historyLog.record(HistoryEvent.EntityType.TASK, HistoryEvent.Op.ARCHIVE, id, null);
+            });
+
+            totals.tasksMoved += moved[0];
+            totals.tagLinksMoved += moved[1];
+            totals.batches++;
+            totals.minMs = Math.min(totals.minMs, elapsedMs);
+            totals.maxMs = Math.max(totals.maxMs, elapsedMs);
+            totals.totalMs += elapsedMs;
+
+            if (!lease.tryAcquire(LEASE, leaseTtl) || !pause()) {
+                totals.stopped = true;
+                return;
+            }
+        }
+    }
+
+    private int[] moveBatch(List<Long> ids) {
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
+        // INSERT ... SELECT が元の行に共有ロックを取るので、DELETE までの間に完了状態が変わることはない
+        int tasks = jdbcTemplate.update(
+                "INSERT INTO tasks_archive (id, title, description, completed, due_date, completed_at, parent_id, owner_id, "
+                        + "series_id, occurrence_date, archived_at) "
+                        + "SELECT id, title, description, completed, due_date, completed_at, parent_id, owner_id, "
+                        + "series_id, occurrence_date, NOW(6) "
+                        + "FROM tasks t WHERE id IN (:ids) AND completed = 1 "
+                        + "AND NOT EXISTS (SELECT 1 FROM task_closure c WHERE c.ancestor_id = t.id AND c.depth > 0)",
+                params);
+        int tagLinks = jdbcTemplate.update(
+                "INSERT INTO task_tags_archive (task_id, tag_id) "
+                        + "SELECT tt.task_id, tt.tag_id FROM task_tags tt JOIN tasks_archive a ON a.id = tt.task_id "
+                        + "WHERE tt.task_id IN (:ids)", params);
+        jdbcTemplate.update(
+                "DELETE tt FROM task_tags tt JOIN tasks_archive a ON a.id = tt.task_id WHERE tt.task_id IN (:ids)",
+                params);
+        jdbcTemplate.update(
+                "DELETE t FROM tasks t JOIN tasks_archive a ON a.id = t.id WHERE t.id IN (:ids)", params);
+        jdbcTemplate.update(
+                "DELETE c FROM task_closure c JOIN tasks_archive a ON a.id = c.descendant_id "
+                        + "WHERE c.descendant_id IN (:ids)", params);
+        return new int[] {tasks, tagLinks};
+    }
+
+    // GET /api/tasks と同じく tasks を全件読む時間
+    private long measureListQuery() {
+        long start = System.nanoTime();
+        jdbcTemplate.getJdbcTemplate().query("SELECT id, title, description, completed, due_date FROM tasks",
+                rs -> { });
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(batchPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.ClusterCacheInvalidator;
+import com.example.taskmanager.model.Task;
+import com.example.taskmanager.sharding.ShardContext;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 並び順のキーが長くなったら、全タスクのキーを今の順序のまま短い等間隔のキーに振り直す。
+ *
+ * <p>長いキーを作ったノードが {@link #request()} で依頼し、次の定期実行でリースを取れた1ノードが実行する。
+ * キーが重なって間に挿入できない場合は {@link #requestNow()} で定期実行を待たずにバックグラウンドで実行する。
+ * 振り直しは ROW_NUMBER を使った1文の UPDATE で、キーが変わる行だけを書き換え、その行だけを読みモデルに通知する。
+ * キーの順序はシャードの中だけで意味を持つので、振り直しもシャードごとに行う。
+ */
+@Service
+public class TaskRebalancer {
+
+    private static final String LEASE = "task-rebalancer";
+    private static final Logger logger = LoggerFactory.getLogger(TaskRebalancer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLease lease;
+    private final ClusterCacheInvalidator cacheInvalidator;
+    // ウィンドウ関数を含む派生テーブルはマージされずに実体化されるので、更新対象と同じ表を読める。
+    // 作ったキーは接続の文字セットになるので、列と同じ ascii_bin に揃えて比べる
+    private static final String RENUMBERED = """
+            SELECT id, position,
+                   CONVERT(CONCAT(LPAD(CONV(ROW_NUMBER() OVER (ORDER BY position, id), 10, 36), 7, '0'), 'V')
+                           USING ascii) COLLATE ascii_bin AS new_position
+            FROM tasks""";
+
+    private final Set<Integer> requestedShards = ConcurrentHashMap.newKeySet();
+    private final ExecutorService immediate =
+            Executors.newSingleThreadExecutor(Thread.ofPlatform().name("task-rebalancer").daemon().factory());
+    private final AtomicBoolean immediateQueued = new AtomicBoolean();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${app.ordering.max-key-length:32}")
+    private int maxKeyLength;
+
+    public TaskRebalancer(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, SchedulerLease lease,
+                          ClusterCacheInvalidator cacheInvalidator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.lease = lease;
+        this.cacheInvalidator = cacheInvalidator;
+    }
+
+    /**
+     * 作ったキーが長すぎれば振り直しを依頼する。
+     */
+    public void checkKey(String position) {
+        if (position.length() > maxKeyLength) {
+            request();
+        }
+    }
+
+    // 今のシャードの振り直しを依頼する
+    public void request() {
+        requestedShards.add(ShardContext.currentShard());
+    }
+
+    /**
+     * 今のシャードの振り直しを依頼し、定期実行を待たずにバックグラウンドで実行する。完了は待たない。
+     */
+    public void requestNow() {
+        request();
+        if (immediateQueued.compareAndSet(false, true)) {
+            immediate.execute(() -> {
+                immediateQueued.set(false);
+                try {
+                    runIfRequested();
+                } catch (RuntimeException e) {
+                    logger.warn("Rebalancing task positions failed", e);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        immediate.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${app.ordering.rebalance-check-interval-ms:60000}")
+    public void runIfRequested() {
+        if (requestedShards.isEmpty()) {
+            return;
+        }
+        // リースはノード単位なので、同じノードの定期実行とすぐの実行はここで重ならないようにする。
+        // 実行中に来た依頼は、実行中の側がループで拾う
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (!lease.tryAcquire(LEASE, Duration.ofMinutes(5))) {
+                // 他ノードが実行中。終わっていなければ次回もう一度
+                return;
+            }
+            try {
+                while (!requestedShards.isEmpty()) {
+                    for (Integer shard : Set.copyOf(requestedShards)) {
+                        requestedShards.remove(shard);
+                        ShardContext.callOn(shard, this::rebalance);
+                    }
+                }
+            } finally {
+                lease.release(LEASE);
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 今のシャードのすべてのキーを (position, id) の順に 7桁の base36 + 'V' で振り直し、更新した行数を返す。
+     * 'V' で終わるので、隣り合うキーの間にも前後にも 1文字足すだけで挿入できる。
+     */
+    public int rebalance() {
+        long start = System.nanoTime();
+        List<Long> changed = transactionTemplate.execute(status -> {
+            // 変わる行を読んでから書き換えるまでに移動や追加が割り込まないよう、シャードの全行をロックしておく
+            jdbcTemplate.query("SELECT id FROM tasks FOR UPDATE", rs -> { });
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT r.id FROM (" + RENUMBERED + ") r WHERE r.position <> r.new_position", Long.class);
+            if (!ids.isEmpty()) {
+                jdbcTemplate.update("""
+                        UPDATE tasks t
+                        JOIN (%s) r ON r.id = t.id
+                        SET t.position = r.new_position
+                        WHERE t.position <> r.new_position
+                        """.formatted(RENUMBERED));
+            }
+            return ids;
+        });
+        // 位置は読みモデルにも載っているので、全体の作り直しではなく変わった行だけを知らせる
+        cacheInvalidator.invalidateAll(Task.class, changed);
+        int updated = changed.size();
+        logger.info("Rebalanced task positions: {} rows updated in {} ms",
+                updated, (System.nanoTime() - start) / 1_000_000);
+        return updated;
+    }
+}
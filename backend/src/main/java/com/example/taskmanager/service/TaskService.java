@@ -1,9 +1,18 @@
 package com.example.taskmanager.service;
 
+import com.example.taskmanager.cache.ClusterCacheInvalidator;
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.history.HistoryEvent;
+import com.example.taskmanager.history.HistoryLog;
+import com.example.taskmanager.mapper.TaskMapper;
 import com.example.taskmanager.model.Task;
+import com.example.taskmanager.repository.TaskHierarchyRepository;
 import com.example.taskmanager.repository.TaskRepository;
+import com.example.taskmanager.sharding.ShardContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,29 +21,154 @@ import java.util.Optional;
 public class TaskService {
 
     private final TaskRepository taskRepository;
+    private final TaskHierarchyRepository hierarchyRepository;
+    private final ClusterCacheInvalidator cacheInvalidator;
+    private final HistoryLog historyLog;
+    private final TaskRebalancer rebalancer;
 
     @Autowired
-    public TaskService(TaskRepository taskRepository) {
+    public TaskService(TaskRepository taskRepository,
+                       TaskHierarchyRepository hierarchyRepository,
+                       ClusterCacheInvalidator cacheInvalidator,
+                       HistoryLog historyLog,
+                       TaskRebalancer rebalancer) {
         this.taskRepository = taskRepository;
+        this.hierarchyRepository = hierarchyRepository;
+        this.cacheInvalidator = cacheInvalidator;
+        this.historyLog = historyLog;
+        this.rebalancer = rebalancer;
     }
 
+    @Transactional(readOnly = true)
     public List<Task> getAllTasks() {
-        return taskRepository.findAll();
+        return taskRepository.findAllOwnedBy(ShardContext.currentOwnerOrAll());
     }
 
+    // 並び順を指定しなければ末尾に追加する
+    @Transactional
     public Task createTask(Task task) {
-        return taskRepository.save(task);
+        if (task.getPosition() == null) {
+            task.setPosition(FractionalIndex.between(taskRepository.findMaxPosition(), null));
+            rebalancer.checkKey(task.getPosition());
+        }
+        Task saved = taskRepository.save(task);
+        hierarchyRepository.insertNode(saved.getId(), saved.getParentId());
+        record(HistoryEvent.Op.CREATE, saved);
+        return saved;
     }
 
+    // 更新前の読み込みにも使われるため、レプリカではなくプライマリから読む。
+    // ID での読み込みには所有者のフィルターが効かないので、ここで確かめる
+    @Transactional
     public Optional<Task> getTaskById(Long id) {
-        return taskRepository.findById(id);
+        return taskRepository.findById(id).filter(task -> ShardContext.canSee(task.getOwnerId()));
     }
 
+    @Transactional
     public Task saveTask(Task task) {
-        return taskRepository.save(task);
+        Task saved = taskRepository.save(task);
+        // タグだけを変えた場合は @PostUpdate が呼ばれないので、ここでも通知する
+        cacheInvalidator.broadcast(Task.class, saved.getId());
+        record(HistoryEvent.Op.UPDATE, saved);
+        return saved;
     }
 
+    @Transactional
+    public Task toggleTask(Task task) {
+        task.setCompleted(!task.isCompleted());
+        Task saved = taskRepository.save(task);
+        record(HistoryEvent.Op.TOGGLE, saved);
+        return saved;
+    }
+
+    // サブタスクも含めて削除する
+    @Transactional
     public void deleteTask(Long id) {
-        taskRepository.deleteById(id);
+        List<Long> ids = hierarchyRepository.findSubtreeIds(id);
+        hierarchyRepository.deleteSubtree(id);
+        cacheInvalidator.invalidateAll(Task.class, ids);
+        ids.forEach(deleted -> historyLog.record(HistoryEvent.EntityType.TASK, HistoryEvent.Op.DELETE, deleted, null));
+    }
+
+    @Transactional(readOnly = true)
+    public List<TaskDTO> getSubtree(Long id) {
+        return hierarchyRepository.findSubtree(id);
+    }
+
+    @Transactional(readOnly = true)
+    public TaskHierarchyRepository.Progress getProgress(Long id) {
+        return hierarchyRepository.progress(id);
+    }
+
+    /**
+     * id の部分木を newParentId の下（null ならルート）へ移す。自分の子孫の下へは移せない。
+     */
+    @Transactional
+    public void moveTask(Long id, Long newParentId) {
+        if (newParentId != null && hierarchyRepository.isInSubtree(id, newParentId)) {
+            throw new IllegalArgumentException("Cannot move task " + id + " under its own subtree");
+        }
+        hierarchyRepository.move(id, newParentId);
+        cacheInvalidator.invalidate(Task.class, id);
+        // parent_id は JDBC で更新したので、キャッシュを追い出してから読み直す
+        taskRepository.findById(id).ifPresent(task -> record(HistoryEvent.Op.MOVE, task));
+    }
+
+    /**
+     * 手動の並び順で、id のタスクを afterId の直後（afterId が null なら beforeId の直前）へ移す。
+     * 更新するのはそのタスクの position だけ。基準と隣のタスクの行はコミットまでロックする。
+     * タスクか基準のタスクがなければ空。
+     * 挿入先の前後のキーが重なっていれば {@link PositionConflictException}（振り直しの後に再試行する）。
+     */
+    @Transactional
+    public Optional<Task> reorderTask(Long id, Long afterId, Long beforeId) {
+        Long anchorId = afterId != null ? afterId : beforeId;
+        Optional<Task> optionalTask = getTaskById(id);
+        Optional<String> anchorPosition = taskRepository.findPositionById(anchorId);
+        if (optionalTask.isEmpty() || anchorPosition.isEmpty()) {
+            return Optional.empty();
+        }
+        String anchor = anchorPosition.get();
+        String prev;
+        String next;
+        if (afterId != null) {
+            prev = anchor;
+            next = first(taskRepository.findPositionsAfter(anchor, anchorId, id, Limit.of(1)));
+        } else {
+            prev = first(taskRepository.findPositionsBefore(anchor, anchorId, id, Limit.of(1)));
+            next = anchor;
+        }
+        if (prev != null && prev.equals(next)) {
+            // 同時に末尾へ追加されたタスクはキーが重なることがあり、その間には入れられない。
+            // 振り直しは表全体の UPDATE なので、このトランザクションでは行わずバックグラウンドに任せる
+            rebalancer.requestNow();
+            throw new PositionConflictException(prev);
+        }
+        String position = FractionalIndex.between(prev, next);
+
+        Task task = optionalTask.get();
+        task.setPosition(position);
+        Task saved = taskRepository.save(task);
+        rebalancer.checkKey(position);
+        record(HistoryEvent.Op.MOVE, saved);
+        return Optional.of(saved);
+    }
+
+    /**
+     * 手動の並び順で、(afterPosition, afterId) より後ろを最大 limit 件返す。afterPosition が null なら先頭から。
+     */
+    @Transactional(readOnly = true)
+    public List<Task> getTasksInOrder(String afterPosition, Long afterId, int limit) {
+        return afterPosition == null
+                ? taskRepository.findAllByOrderByPositionAscIdAsc(Limit.of(limit))
+                : taskRepository.findPageAfter(afterPosition, afterId, Limit.of(limit));
+    }
+
+    private static String first(List<String> positions) {
+        return positions.isEmpty() ? null : positions.get(0);
+    }
+
+    private void record(HistoryEvent.Op op, Task task) {
+        historyLog.record(HistoryEvent.EntityType.TASK, op, task.getId(), TaskMapper.toDTO(task));
     }
 }
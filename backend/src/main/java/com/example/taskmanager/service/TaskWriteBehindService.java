@@ -0,0 +1,289 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.ClusterCacheInvalidator;
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.history.HistoryEvent;
+import com.example.taskmanager.history.HistoryLog;
+import com.example.taskmanager.mapper.TaskMapper;
+import com.example.taskmanager.resilience.Deadline;
+import com.example.taskmanager.model.Task;
+import com.example.taskmanager.repository.TaskCompletionRepository;
+import com.example.taskmanager.sharding.ShardContext;
+import com.example.taskmanager.sharding.ShardTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 完了状態の切り替えを書き込み遅延（write-behind）で処理する。
+ *
+ * <p>切り替えは「反転する」という相対的な操作として RabbitMQ の永続キューに積み、ブローカーの確認
+ * （publisher confirm）を受けてから応答する。コンシューマーはバッチ単位で受け取り、同じタスクへの切り替えを
+ * 回数の偶奇にまとめてから、シャードごとに1文の UPDATE で反映する。値そのものではなく反転を送るので、
+ * 複数ノードからの切り替えや、重ねていた状態が期限切れになった後の切り替えが互いを上書きしない。
+ * 反転は二度当てると元に戻るので、各切り替えの ID（ノードID:seq）をシャードごとに反転と同じトランザクションで記録し、
+ * 再配送されたものは読み飛ばす。
+ *
+ * <p>DB に反映されるまでの間は、このノードの一覧取得に未反映の状態を重ねて返す。
+ */
+@Service
+@ConditionalOnProperty(name = "app.write-behind.enabled", havingValue = "true")
+public class TaskWriteBehindService {
+
+    public static final String QUEUE = "taskWriteQueue";
+
+    private static final String TOGGLE = "toggle";
+    private static final String PURGE_LEASE = "task-writes-applied-purge";
+    private static final Logger logger = LoggerFactory.getLogger(TaskWriteBehindService.class);
+
+    /**
+     * キューに流すメッセージ。形式: {@code <taskId>,toggle,<seq>,<shard>,<node>}。seq はノード内の連番で、
+     * node はプロセスごとの ID。2番目が true / false のものは値を直接設定する古い形式（shard がなければシャード 0）。
+     * node のない古いメッセージは重複を判定できないのでそのまま反映する。
+     */
+    record TaskWrite(long taskId, Boolean completed, long seq, int shard, String node) {
+
+        static TaskWrite toggle(long taskId, long seq, int shard, String node) {
+            return new TaskWrite(taskId, null, seq, shard, node);
+        }
+
+        String format() {
+            return taskId + "," + (completed != null ? completed : TOGGLE) + "," + seq + "," + shard
+                    + (node != null ? "," + node : "");
+        }
+
+        String writeId() {
+            return node != null ? node + ":" + seq : null;
+        }
+
+        static TaskWrite parse(String message) {
+            String[] parts = message.split(",");
+            return new TaskWrite(Long.parseLong(parts[0]), TOGGLE.equals(parts[1]) ? null : Boolean.valueOf(parts[1]),
+                    Long.parseLong(parts[2]), parts.length > 3 ? Integer.parseInt(parts[3]) : ShardContext.DIRECTORY,
+                    parts.length > 4 ? parts[4] : null);
+        }
+    }
+
+    /** バッチ内の同じタスクへの書き込みをまとめたもの。completed が null なら今の値を flip だけ反転する */
+    private static final class Net {
+
+        Boolean completed;
+        boolean flip;
+
+        void add(TaskWrite write) {
+            if (write.completed() != null) {
+                completed = write.completed();
+                flip = false;
+            } else {
+                flip = !flip;
+            }
+        }
+    }
+
+    private record Pending(Task snapshot, long seq, long queuedAt) {
+
+        boolean completed() {
+            return snapshot.isCompleted();
+        }
+    }
+
+    private final TaskService taskService;
+    private final TaskCompletionRepository completionRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ClusterCacheInvalidator cacheInvalidator;
+    private final HistoryLog historyLog;
+    private final SchedulerLease lease;
+    private final ShardTemplate shardTemplate;
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    // seq は再起動で 0 に戻るので、切り替えの ID はプロセスごとの ID と組にする
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLong seq = new AtomicLong();
+
+    @Value("${app.write-behind.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs = 5000;
+
+    @Value("${app.write-behind.overlay-ttl-ms:10000}")
+    private long overlayTtlMs = 10000;
+
+    // 反映済みの切り替えの記録を残す期間。これより後に再配送されたメッセージは二度反映される
+    @Value("${app.write-behind.applied-retention:24h}")
+    private Duration appliedRetention = Duration.ofHours(24);
+
+    public TaskWriteBehindService(TaskService taskService,
+                                  TaskCompletionRepository completionRepository,
+                                  RabbitTemplate rabbitTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  ClusterCacheInvalidator cacheInvalidator,
+                                  HistoryLog historyLog,
+                                  SchedulerLease lease,
+                                  ShardTemplate shardTemplate) {
+        this.taskService = taskService;
+        this.completionRepository = completionRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheInvalidator = cacheInvalidator;
+        this.historyLog = historyLog;
+        this.lease = lease;
+        this.shardTemplate = shardTemplate;
+    }
+
+    /**
+     * 完了状態を反転してキューに積む。タスクが存在しなければ empty。
+     */
+    public Optional<Task> toggle(Long id) {
+        // DB の読み取りと確認待ちは compute の外で行う（compute 中は同じビンの他のキーも待たされる）
+        Pending current = pending.get(id);
+        // 重ねている状態は所有者で絞られていないので、他人のタスクなら所有者で絞る DB の読み取りに任せる
+        Task base = current != null && ShardContext.canSee(current.snapshot().getOwnerId())
+                ? current.snapshot() : taskService.getTaskById(id).orElse(null);
+        if (base == null) {
+            return Optional.empty();
+        }
+        long next = seq.incrementAndGet();
+        publish(TaskWrite.toggle(id, next, ShardContext.currentShard(), nodeId));
+        // 積んだ反転を重ねている状態にも当てる。並んだ切り替えはここで順に反転される
+        Pending result = pending.compute(id, (key, latest) -> {
+            Task toggled = copyOf(latest != null ? latest.snapshot() : base);
+            toggled.setCompleted(!toggled.isCompleted());
+            return new Pending(toggled, Math.max(next, latest != null ? latest.seq() : 0),
+                    System.currentTimeMillis());
+        });
+        // キューに積んだ時点で反映は確定しているので、まとめられる前の切り替えもすべて記録する
+        historyLog.record(HistoryEvent.EntityType.TASK, HistoryEvent.Op.TOGGLE, id, TaskMapper.toDTO(result.snapshot()));
+        return Optional.of(result.snapshot());
+    }
+
+    /**
+     * まだ DB に反映されていない切り替えを DTO に重ねる。
+     */
+    public TaskDTO applyPending(TaskDTO dto) {
+        Pending write = pending.get(dto.id);
+        if (write != null) {
+            dto.completed = write.completed();
+        }
+        return dto;
+    }
+
+    @RabbitListener(queues = QUEUE, containerFactory = "taskWriteContainerFactory")
+    public void applyBatch(List<String> messages) {
+        // トランザクションはシャードごと。キューはシングルアクティブコンシューマーなので、到着順に畳み込める。
+        // 途中のシャードで失敗するとバッチ全体が再配送されるので、先に反映したシャードの分は ID で読み飛ばす
+        Map<Integer, List<TaskWrite>> byShard = new TreeMap<>();
+        Map<Long, Long> ownSeq = new HashMap<>();
+        for (String message : messages) {
+            TaskWrite write = TaskWrite.parse(message);
+            byShard.computeIfAbsent(write.shard(), shard -> new ArrayList<>()).add(write);
+            if (nodeId.equals(write.node())) {
+                ownSeq.merge(write.taskId(), write.seq(), Math::max);
+            }
+        }
+        byShard.forEach((shard, writes) -> ShardContext.callOn(shard, () -> {
+            transactionTemplate.executeWithoutResult(status -> applyShard(writes));
+            return null;
+        }));
+        // 後続の切り替えが積まれていなければ重ねていた状態を外す（重ねているのはこのノードの切り替えだけ）
+        ownSeq.forEach((taskId, applied) -> pending.computeIfPresent(taskId,
+                (key, current) -> current.seq() <= applied ? null : current));
+    }
+
+    private void applyShard(List<TaskWrite> writes) {
+        Set<String> fresh = completionRepository.claim(
+                writes.stream().map(TaskWrite::writeId).filter(Objects::nonNull).toList());
+        Map<Long, Net> nets = new LinkedHashMap<>();
+        for (TaskWrite write : writes) {
+            // 反映済み、または同じバッチに重複して届いたもの
+            if (write.writeId() != null && !fresh.remove(write.writeId())) {
+                continue;
+            }
+            nets.computeIfAbsent(write.taskId(), taskId -> new Net()).add(write);
+        }
+        List<Long> toggled = new ArrayList<>();
+        Map<Boolean, List<Long>> assigned = new TreeMap<>();
+        nets.forEach((taskId, net) -> {
+            if (net.completed != null) {
+                assigned.computeIfAbsent(net.completed != net.flip, value -> new ArrayList<>()).add(taskId);
+            } else if (net.flip) {
+                toggled.add(taskId);
+            }
+            // 偶数回の反転は何もしない
+        });
+        completionRepository.toggle(toggled);
+        assigned.forEach((completed, taskIds) -> completionRepository.setCompleted(taskIds, completed));
+        List<Long> changed = new ArrayList<>(toggled);
+        assigned.values().forEach(changed::addAll);
+        cacheInvalidator.invalidateAll(Task.class, changed);
+    }
+
+    @Scheduled(fixedDelayString = "${app.write-behind.applied-purge-interval-ms:3600000}")
+    public void purgeApplied() {
+        if (!lease.tryAcquire(PURGE_LEASE, Duration.ofMinutes(5))) {
+            return;
+        }
+        try {
+            shardTemplate.forEachShard(shard -> {
+                int deleted = completionRepository.purgeApplied(appliedRetention);
+                if (deleted > 0) {
+                    logger.info("Purged {} applied task writes on shard {}", deleted, shard);
+                }
+            });
+        } finally {
+            lease.release(PURGE_LEASE);
+        }
+    }
+
+    // 別ノードのコンシューマーが反映した分は通知されないので、一定時間で捨てる
+    @Scheduled(fixedDelayString = "${app.write-behind.overlay-ttl-ms:10000}")
+    public void expireOverlay() {
+        long threshold = System.currentTimeMillis() - overlayTtlMs;
+        pending.values().removeIf(write -> write.queuedAt() < threshold);
+    }
+
+    // 応答した切り替えは必ず反映するので TTL は付けない。期限切れなら送る前に失敗させ、確認待ちも期限までにする
+    private void publish(TaskWrite write) {
+        Deadline.check("amqp-publish");
+        rabbitTemplate.invoke(operations -> {
+            operations.convertAndSend("", QUEUE, write.format());
+            operations.waitForConfirmsOrDie(Math.max(1, Math.min(confirmTimeoutMs, Deadline.remainingMillis())));
+            return null;
+        });
+    }
+
+    private static Task copyOf(Task task) {
+        Task copy = new Task();
+        copy.setId(task.getId());
+        copy.setTitle(task.getTitle());
+        copy.setDescription(task.getDescription());
+        copy.setDueDate(task.getDueDate());
+        copy.setParentId(task.getParentId());
+        copy.setSeriesId(task.getSeriesId());
+        copy.setOccurrenceDate(task.getOccurrenceDate());
+        copy.setTags(task.getTags() != null ? new HashSet<>(task.getTags()) : null);
+        copy.setPosition(task.getPosition());
+        copy.setOwnerId(task.getOwnerId());
+        copy.setCompleted(task.isCompleted());
+        copy.setCompletedAt(task.getCompletedAt());
+        return copy;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.taskmanager.service;
 
+import com.example.taskmanager.resilience.Deadline;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -11,6 +12,7 @@ public class TodoSender {
     private RabbitTemplate rabbitTemplate;
 
     public void send(String message) {
-        rabbitTemplate.convertAndSend("todoQueue", message);
+        // リクエストの期限を過ぎたら届ける意味がないので TTL を付ける
+        rabbitTemplate.convertAndSend("todoQueue", (Object) message, Deadline.expireMessage());
     }
 }
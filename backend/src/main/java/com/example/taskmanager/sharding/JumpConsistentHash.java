@@ -0,0 +1,27 @@
+package com.example.taskmanager.sharding;
+
+/**
+ * Jump consistent hash（Lamping &amp; Veach）。表を持たずに key を 0〜buckets-1 に割り当てる。
+ *
+ * <p>buckets を n から n+1 に増やしたとき、割り当てが変わるのは約 1/(n+1) のキーだけで、
+ * 変わるキーはすべて新しいバケット n へ移る。
+ */
+public final class JumpConsistentHash {
+
+    private JumpConsistentHash() {
+    }
+
+    public static int bucket(long key, int buckets) {
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("buckets must be positive: " + buckets);
+        }
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.taskmanager.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * {@link com.example.taskmanager.model.Owned#FILTER} の ownerId。所有者が設定されていなければ -1（絞り込まない）。
+ */
+public class OwnerIdResolver implements Supplier<Long> {
+
+    @Override
+    public Long get() {
+        return ShardContext.currentOwnerOrAll();
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.taskmanager.sharding;
+
+import com.example.taskmanager.model.Owned;
+import jakarta.persistence.PrePersist;
+
+/**
+ * 新しい行に今の所有者を設定する。所有者のないスレッドで作った行は 0（どのユーザーからも見えない）になる。
+ */
+public class OwnerStampListener {
+
+    @PrePersist
+    public void stamp(Object entity) {
+        if (entity instanceof Owned owned && owned.getOwnerId() == null) {
+            Long owner = ShardContext.currentOwner();
+            owned.setOwnerId(owner != null ? owner : 0L);
+        }
+    }
+}
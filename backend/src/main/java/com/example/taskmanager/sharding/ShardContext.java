@@ -0,0 +1,79 @@
+package com.example.taskmanager.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * 処理中のスレッドが使うシャードと、データの所有者（ユーザー ID）。
+ *
+ * <p>リクエストでは {@link ShardContextFilter} が認証済みユーザーから設定する。設定されていないスレッド
+ * （ログイン、スケジューラ、起動処理など）はディレクトリのあるシャード 0 を使い、所有者では絞り込まない。
+ * トランザクションはシャードを決めてから開始すること（接続は開始時のシャードに固定される）。
+ */
+public final class ShardContext {
+
+    /** users / scheduler_leases / user_shards を置くシャード。 */
+    public static final int DIRECTORY = 0;
+
+    private record Binding(int shard, Long ownerId) {}
+
+    private static final ThreadLocal<Binding> CURRENT = new ThreadLocal<>();
+
+    /** {@link #bind} の戻り値。閉じると以前の状態に戻す。 */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private ShardContext() {
+    }
+
+    /**
+     * shard を使い、ownerId のデータだけを見るようにする。ownerId が null なら所有者で絞り込まない。
+     */
+    public static Scope bind(int shard, Long ownerId) {
+        Binding previous = CURRENT.get();
+        CURRENT.set(new Binding(shard, ownerId));
+        return () -> {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    /**
+     * action を shard 上で所有者を絞り込まずに実行する。
+     */
+    public static <T> T callOn(int shard, Supplier<T> action) {
+        try (Scope ignored = bind(shard, null)) {
+            return action.get();
+        }
+    }
+
+    public static int currentShard() {
+        Binding binding = CURRENT.get();
+        return binding != null ? binding.shard() : DIRECTORY;
+    }
+
+    public static Long currentOwner() {
+        Binding binding = CURRENT.get();
+        return binding != null ? binding.ownerId() : null;
+    }
+
+    /**
+     * クエリの ownerId として渡す今の所有者。設定されていなければ -1（絞り込まない）。
+     */
+    public static long currentOwnerOrAll() {
+        Long owner = currentOwner();
+        return owner != null ? owner : -1L;
+    }
+
+    /**
+     * 今の所有者から ownerId のデータが見えるか。所有者が設定されていなければすべて見える。
+     */
+    public static boolean canSee(Long ownerId) {
+        Long current = currentOwner();
+        return current == null || current.equals(ownerId);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.taskmanager.sharding;
+
+import com.example.taskmanager.security.CustomUserDetails;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * 認証済みユーザーのシャードと所有者をリクエストの間 {@link ShardContext} に設定する。JwtAuthenticationFilter の後ろに置く。
+ *
+ * <p>別のシャードへ移動中のユーザーの書き込みは 503 で断る（読み取りは移動元から返す）。
+ * /api/auth/** は users を読み書きするので、シャード 0 のまま通す。
+ */
+public class ShardContextFilter extends OncePerRequestFilter {
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final ShardDirectory directory;
+
+    public ShardContextFilter(ShardDirectory directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/api/auth/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        Long userId = currentUserId();
+        if (userId == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (directory.isMoving(userId) && !SAFE_METHODS.contains(request.getMethod())) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "5");
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Data is being moved to another shard");
+            return;
+        }
+        try (ShardContext.Scope ignored = ShardContext.bind(directory.shardFor(userId), userId)) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails details) {
+            return details.getUser().getId();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.taskmanager.sharding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ユーザー（所有者）がどのシャードにいるか。
+ *
+ * <p>通常はユーザー ID の {@link JumpConsistentHash} で決まるので表を引かない。
+ * 移動中・移動済みのユーザーと、シャード数が変わってハッシュの結果が変わる既存ユーザーだけをシャード 0 の user_shards
+ * に持ち、各ノードは {@code directory-refresh-interval-ms} ごとに読み直す。移動中のユーザーへの書き込みは
+ * {@link ShardContextFilter} が断る。
+ */
+@Component
+public class ShardDirectory {
+
+    /** user_shards の1行。movingTo は移動中のみ設定される。 */
+    public record Assignment(int shard, Integer movingTo) {}
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardDirectory.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int shardCount;
+    private volatile Map<Long, Assignment> overrides = Map.of();
+
+    public ShardDirectory(JdbcTemplate jdbcTemplate,
+                          @Value("${app.sharding.enabled:false}") boolean enabled,
+                          @Value("${app.sharding.urls:}") List<String> shardUrls) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardCount = enabled ? shardUrls.size() + 1 : 1;
+    }
+
+    /**
+     * シャード数が shard_layout に記録した数から変わっていれば、既存のユーザーを前の数で決まるシャードに固定し、記録を更新する。
+     * 起動時、シャードへのルーティングを始める前に directory（シャード 0）へ直接実行する。
+     * 固定しないと、既存のユーザーが空のシャードへ振り分けられる。
+     *
+     * @throws IllegalStateException シャードを減らそうとしている、またはなくなるシャードに割り当てられたユーザーがいる
+     */
+    public static void pinExistingUsers(DataSource directory, int shardCount) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(directory);
+        new TransactionTemplate(new DataSourceTransactionManager(directory)).executeWithoutResult(status -> {
+            // 複数のノードが同時に起動しても、固定と記録の更新は1ノードずつ行う
+            int previous = jdbcTemplate.queryForObject(
+                    "SELECT shard_count FROM shard_layout WHERE id = 1 FOR UPDATE", Integer.class);
+            if (previous == shardCount) {
+                return;
+            }
+            if (previous > shardCount) {
+                throw new IllegalStateException("Shard count cannot be reduced from " + previous + " to " + shardCount
+                        + "; move the users off the removed shards first");
+            }
+            Integer orphaned = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM user_shards WHERE shard >= ? OR moving_to >= ?",
+                    Integer.class, shardCount, shardCount);
+            if (orphaned > 0) {
+                throw new IllegalStateException(orphaned + " users are assigned to shards beyond " + (shardCount - 1));
+            }
+            List<Long> moved = jdbcTemplate.queryForList(
+                            "SELECT id FROM users WHERE id NOT IN (SELECT user_id FROM user_shards)", Long.class)
+                    .stream()
+                    .filter(id -> JumpConsistentHash.bucket(id, previous) != JumpConsistentHash.bucket(id, shardCount))
+                    .toList();
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO user_shards (user_id, shard, moving_to, updated_at) VALUES (?, ?, NULL, NOW(6))",
+                    moved, 500, (ps, id) -> {
+                        ps.setLong(1, id);
+                        ps.setInt(2, JumpConsistentHash.bucket(id, previous));
+                    });
+            jdbcTemplate.update("UPDATE shard_layout SET shard_count = ?, updated_at = NOW(6) WHERE id = 1", shardCount);
+            logger.info("Shard count changed from {} to {}; pinned {} existing users to their current shard",
+                    previous, shardCount, moved.size());
+        });
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public int shardFor(long userId) {
+        Assignment assignment = overrides.get(userId);
+        return assignment != null ? assignment.shard() : JumpConsistentHash.bucket(userId, shardCount);
+    }
+
+    public boolean isMoving(long userId) {
+        Assignment assignment = overrides.get(userId);
+        return assignment != null && assignment.movingTo() != null;
+    }
+
+    public Assignment assignment(long userId) {
+        Assignment assignment = overrides.get(userId);
+        return assignment != null ? assignment : new Assignment(shardFor(userId), null);
+    }
+
+    /**
+     * user_shards を更新し、このノードにはすぐ反映する。他ノードには次の読み直しで反映される。
+     */
+    public synchronized void assign(long userId, int shard, Integer movingTo) {
+        ShardContext.callOn(ShardContext.DIRECTORY, () -> jdbcTemplate.update(
+                "INSERT INTO user_shards (user_id, shard, moving_to, updated_at) VALUES (?, ?, ?, NOW(6)) "
+                        + "ON DUPLICATE KEY UPDATE shard = VALUES(shard), moving_to = VALUES(moving_to), "
+                        + "updated_at = VALUES(updated_at)",
+                userId, shard, movingTo));
+        Map<Long, Assignment> next = new HashMap<>(overrides);
+        next.put(userId, new Assignment(shard, movingTo));
+        overrides = Map.copyOf(next);
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    @Scheduled(fixedDelayString = "${app.sharding.directory-refresh-interval-ms:5000}")
+    public void refresh() {
+        if (shardCount == 1) {
+            return;
+        }
+        Map<Long, Assignment> loaded = new HashMap<>();
+        try {
+            ShardContext.callOn(ShardContext.DIRECTORY, () -> {
+                jdbcTemplate.query("SELECT user_id, shard, moving_to FROM user_shards", rs -> {
+                    loaded.put(rs.getLong("user_id"),
+                            new Assignment(rs.getInt("shard"), rs.getObject("moving_to", Integer.class)));
+                });
+                return null;
+            });
+        } catch (DataAccessException e) {
+            logger.warn("Failed to refresh shard directory", e);
+            return;
+        }
+        for (Map.Entry<Long, Assignment> entry : loaded.entrySet()) {
+            if (entry.getValue().shard() >= shardCount) {
+                logger.error("User {} is assigned to shard {} but only {} shards are configured",
+                        entry.getKey(), entry.getValue().shard(), shardCount);
+            }
+        }
+        synchronized (this) {
+            overrides = Map.copyOf(loaded);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.taskmanager.sharding;
+
+import com.example.taskmanager.cache.ClusterCacheInvalidator;
+import com.example.taskmanager.model.Tag;
+import com.example.taskmanager.model.Task;
+import com.example.taskmanager.service.SchedulerLease;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSetMetaData;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ユーザーのデータを別のシャードへ移す（オンラインのリシャーディング）。
+ *
+ * <ol>
+ *   <li>user_shards に移動中と記録し、全ノードが読み直して書き込みを止めるまで待つ（読み取りは移動元で続く）</li>
+ *   <li>移動先に1トランザクションでコピーし、件数を移動元と照合する</li>
+ *   <li>割り当てを移動先に切り替え、全ノードが読み直すまで待ってから移動元の行を消す</li>
+ * </ol>
+ * 途中で失敗した場合は移動先の行を消して元の割り当てに戻す。移動はリースを持つ1ノードで1件ずつ行う。
+ */
+@Service
+public class ShardMover {
+
+    public record Report(long userId, int fromShard, int toShard, Map<String, Integer> rowsMoved, long elapsedMs) {}
+
+    // コピー順（親が先）。削除は逆順
+    private record Table(String name, String condition) {}
+
+    private static final List<Table> TABLES = List.of(
+            new Table("tags", "owner_id = ?"),
+            new Table("task_series", "owner_id = ?"),
+            new Table("task_series_exdates", "series_id IN (SELECT id FROM task_series WHERE owner_id = ?)"),
+            new Table("tasks", "owner_id = ?"),
+            new Table("task_tags", "task_id IN (SELECT id FROM tasks WHERE owner_id = ?)"),
+            new Table("task_closure", "descendant_id IN (SELECT id FROM tasks WHERE owner_id = ?)"),
+            new Table("attachments", "owner_id = ?"),
+            new Table("tasks_archive", "owner_id = ?"),
+            new Table("task_tags_archive", "task_id IN (SELECT id FROM tasks_archive WHERE owner_id = ?)"));
+
+    private static final String LEASE = "shard-mover";
+    private static final int BATCH_SIZE = 500;
+    private static final Logger logger = LoggerFactory.getLogger(ShardMover.class);
+
+    private final ShardDirectory directory;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLease lease;
+    private final ClusterCacheInvalidator cacheInvalidator;
+
+    // 他ノードが user_shards を読み直し、実行中の書き込みが終わるまで待つ時間
+    @Value("${app.sharding.move-settle:15s}")
+    private Duration settle;
+
+    public ShardMover(ShardDirectory directory,
+                      JdbcTemplate jdbcTemplate,
+                      TransactionTemplate transactionTemplate,
+                      SchedulerLease lease,
+                      ClusterCacheInvalidator cacheInvalidator) {
+        this.directory = directory;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.lease = lease;
+        this.cacheInvalidator = cacheInvalidator;
+    }
+
+    /**
+     * userId のデータを target シャードへ移す。既にそこにいれば何もしない。
+     *
+     * @throws IllegalArgumentException target が存在しない
+     * @throws IllegalStateException    他の移動が実行中
+     */
+    public Report move(long userId, int target) {
+        if (target < 0 || target >= directory.shardCount()) {
+            throw new IllegalArgumentException("No such shard: " + target);
+        }
+        Duration leaseTtl = settle.multipliedBy(4).plusMinutes(10);
+        if (!lease.tryAcquire(LEASE, leaseTtl)) {
+            throw new IllegalStateException("Another shard move is in progress");
+        }
+        try {
+            long start = System.nanoTime();
+            int source = directory.shardFor(userId);
+            if (source == target) {
+                return new Report(userId, source, target, Map.of(), 0);
+            }
+
+            directory.assign(userId, source, target);
+            Map<String, Integer> rows;
+            try {
+                waitForSettle();
+                rows = copy(userId, source, target);
+            } catch (RuntimeException e) {
+                logger.warn("Moving user {} from shard {} to {} failed; rolling back", userId, source, target, e);
+                ShardContext.callOn(target, () -> transactionTemplate.execute(status -> purge(userId)));
+                directory.assign(userId, source, null);
+                throw e;
+            }
+
+            directory.assign(userId, target, null);
+            cacheInvalidator.invalidate(Task.class, null);
+            cacheInvalidator.invalidate(Tag.class, null);
+            waitForSettle();
+            ShardContext.callOn(source, () -> transactionTemplate.execute(status -> purge(userId)));
+
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            logger.info("Moved user {} from shard {} to {} in {} ms: {}", userId, source, target, elapsedMs, rows);
+            return new Report(userId, source, target, rows, elapsedMs);
+        } finally {
+            lease.release(LEASE);
+        }
+    }
+
+    private Map<String, Integer> copy(long userId, int source, int target) {
+        Map<String, List<Object[]>> data = new LinkedHashMap<>();
+        Map<String, List<String>> columns = new LinkedHashMap<>();
+        ShardContext.callOn(source, () -> {
+            for (Table table : TABLES) {
+                List<Object[]> rows = new ArrayList<>();
+                jdbcTemplate.query("SELECT * FROM " + table.name() + " WHERE " + table.condition(), rs -> {
+                    ResultSetMetaData meta = rs.getMetaData();
+                    if (!columns.containsKey(table.name())) {
+                        List<String> names = new ArrayList<>();
+                        for (int i = 1; i <= meta.getColumnCount(); i++) {
+                            names.add(meta.getColumnName(i));
+                        }
+                        columns.put(table.name(), names);
+                    }
+                    Object[] row = new Object[meta.getColumnCount()];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = rs.getObject(i + 1);
+                    }
+                    rows.add(row);
+                }, userId);
+                data.put(table.name(), rows);
+            }
+            return null;
+        });
+
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        ShardContext.callOn(target, () -> transactionTemplate.execute(status -> {
+            // 前回失敗した移動の残りがあれば消してから入れる
+            purge(userId);
+            for (Table table : TABLES) {
+                List<Object[]> rows = data.get(table.name());
+                if (!rows.isEmpty()) {
+                    List<String> names = columns.get(table.name());
+                    String sql = "INSERT INTO " + table.name() + " (" + String.join(", ", names) + ") VALUES ("
+                            + String.join(", ", Collections.nCopies(names.size(), "?")) + ")";
+                    for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+                        jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(rows.size(), from + BATCH_SIZE)));
+                    }
+                }
+                verifyCount(table, userId, rows.size(), "target shard " + target);
+                counts.put(table.name(), rows.size());
+            }
+            return null;
+        }));
+
+        // 書き込みを止める前に始まった更新が紛れ込んでいないか
+        ShardContext.callOn(source, () -> {
+            for (Table table : TABLES) {
+                verifyCount(table, userId, counts.get(table.name()), "source shard " + source);
+            }
+            return null;
+        });
+        return counts;
+    }
+
+    private void verifyCount(Table table, long userId, int expected, String where) {
+        Integer actual = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + table.name() + " WHERE " + table.condition(), Integer.class, userId);
+        if (actual == null || actual != expected) {
+            throw new IllegalStateException(table.name() + " on " + where + " has " + actual
+                    + " rows for user " + userId + ", expected " + expected);
+        }
+    }
+
+    private int purge(long userId) {
+        int deleted = 0;
+        for (Table table : TABLES.reversed()) {
+            deleted += jdbcTemplate.update("DELETE FROM " + table.name() + " WHERE " + table.condition(), userId);
+        }
+        return deleted;
+    }
+
+    private void waitForSettle() {
+        try {
+            Thread.sleep(settle.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for nodes to settle", e);
+        }
+    }
+}
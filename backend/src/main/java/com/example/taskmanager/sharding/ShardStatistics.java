@@ -0,0 +1,34 @@
+package com.example.taskmanager.sharding;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * シャードごとの行数（管理用）。全シャードへ並行に問い合わせて集める。
+ */
+@Component
+public class ShardStatistics {
+
+    public record Stats(int shard, long owners, long tasks, long archivedTasks, long tags, long series) {}
+
+    private final ShardTemplate shardTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    public ShardStatistics(ShardTemplate shardTemplate, JdbcTemplate jdbcTemplate) {
+        this.shardTemplate = shardTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<Stats> collect() {
+        return shardTemplate.gather(shard -> jdbcTemplate.queryForObject("""
+                SELECT (SELECT COUNT(DISTINCT owner_id) FROM tasks),
+                       (SELECT COUNT(*) FROM tasks),
+                       (SELECT COUNT(*) FROM tasks_archive),
+                       (SELECT COUNT(*) FROM tags),
+                       (SELECT COUNT(*) FROM task_series)
+                """, (rs, rowNum) -> new Stats(shard, rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4),
+                rs.getLong(5))));
+    }
+}
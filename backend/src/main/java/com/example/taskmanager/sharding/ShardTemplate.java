@@ -0,0 +1,87 @@
+package com.example.taskmanager.sharding;
+
+import com.example.taskmanager.resilience.Deadline;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * 全シャードにまたがる処理。各シャードの処理は所有者で絞り込まずに実行する。
+ */
+@Component
+public class ShardTemplate {
+
+    private final ShardDirectory directory;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ShardTemplate(ShardDirectory directory) {
+        this.directory = directory;
+    }
+
+    public int shardCount() {
+        return directory.shardCount();
+    }
+
+    /**
+     * 各シャードで順番に action を実行する。バックグラウンド処理用。
+     */
+    public void forEachShard(IntConsumer action) {
+        for (int shard = 0; shard < shardCount(); shard++) {
+            try (ShardContext.Scope ignored = ShardContext.bind(shard, null)) {
+                action.accept(shard);
+            }
+        }
+    }
+
+    /**
+     * 全シャードで query を並行に実行し、結果をシャード順に返す（scatter-gather）。
+     * 呼び出し元の期限は各シャードの処理に引き継ぐ。どれかが失敗すればその例外を投げる。
+     */
+    public <T> List<T> gather(IntFunction<T> query) {
+        if (shardCount() == 1) {
+            return List.of(ShardContext.callOn(0, () -> query.apply(0)));
+        }
+        long remaining = Deadline.remainingMillis();
+        List<Future<T>> futures = new ArrayList<>();
+        for (int shard = 0; shard < shardCount(); shard++) {
+            int target = shard;
+            futures.add(executor.submit(() -> {
+                try (Deadline.Scope deadline = remaining == Long.MAX_VALUE ? null : Deadline.start(Duration.ofMillis(remaining));
+                     ShardContext.Scope ignored = ShardContext.bind(target, null)) {
+                    return query.apply(target);
+                }
+            }));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
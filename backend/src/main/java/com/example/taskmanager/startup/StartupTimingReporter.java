@@ -0,0 +1,59 @@
+package com.example.taskmanager.startup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JVM 起動から ready まで、および最初のリクエストまでの時間を計測してログとメトリクスに出す。
+ * ready までの時間は Spring Boot 標準の application.ready.time でも確認できる。
+ */
+@Component
+public class StartupTimingReporter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimingReporter.class);
+
+    private final AtomicLong firstRequestUptimeMs = new AtomicLong(-1);
+
+    public StartupTimingReporter(MeterRegistry meterRegistry) {
+        TimeGauge.builder("application.first.request.time", firstRequestUptimeMs, TimeUnit.MILLISECONDS,
+                        AtomicLong::get)
+                .description("Time from JVM start until the first application request")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        logger.info("Startup: ready {} ms after JVM start (Spring context {} ms)",
+                ManagementFactory.getRuntimeMXBean().getUptime(), event.getTimeTaken().toMillis());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        if (firstRequestUptimeMs.get() < 0 && !request.getRequestURI().startsWith("/actuator")) {
+            long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+            if (firstRequestUptimeMs.compareAndSet(-1, uptime)) {
+                logger.info("Startup: first request {} {} arrived {} ms after JVM start",
+                        request.getMethod(), request.getRequestURI(), uptime);
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+}
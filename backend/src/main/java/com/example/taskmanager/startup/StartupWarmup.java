@@ -0,0 +1,66 @@
+package com.example.taskmanager.startup;
+
+import com.example.taskmanager.mapper.TaskMapper;
+import com.example.taskmanager.model.User;
+import com.example.taskmanager.security.CustomUserDetails;
+import com.example.taskmanager.security.JwtService;
+import com.example.taskmanager.service.TagService;
+import com.example.taskmanager.service.TaskService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 起動直後に主要な処理を繰り返し実行して JIT と二次キャッシュを温める。
+ * ApplicationRunner が終わるまで readiness は ACCEPTING_TRAFFIC にならないため、
+ * ウォームアップ完了前にトラフィックが流れ込むことはない。
+ */
+@Component
+@ConditionalOnProperty(name = "app.warmup.enabled", havingValue = "true")
+public class StartupWarmup implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmup.class);
+
+    private final TaskService taskService;
+    private final TagService tagService;
+    private final JwtService jwtService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.warmup.iterations:200}")
+    private int iterations;
+
+    public StartupWarmup(TaskService taskService, TagService tagService, JwtService jwtService,
+                         ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.taskService = taskService;
+        this.tagService = tagService;
+        this.jwtService = jwtService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        long start = System.nanoTime();
+        CustomUserDetails warmupUser = new CustomUserDetails(new User("warmup", ""));
+        for (int i = 0; i < iterations; i++) {
+            // TaskMapper が tags を遅延ロードするのでトランザクション内で変換する
+            var tasks = transactionTemplate.execute(status -> taskService.getAllTasks().stream()
+                    .map(TaskMapper::toDTO)
+                    .toList());
+            objectMapper.writeValueAsString(tasks);
+            objectMapper.writeValueAsString(tagService.getAllTags());
+            String token = jwtService.generateToken(warmupUser);
+            jwtService.isTokenValid(token, warmupUser);
+        }
+        logger.info("Warm-up finished: {} iterations in {} ms", iterations, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,6 @@
+-- 繰り返しタスクの回もアーカイブで series_id / occurrence_date を保つ。
+-- 仮想の回の展開は tasks とあわせてこの表も見るので、アーカイブされた回が未完了の仮想の回として戻らない
+-- （この列がなかった間にアーカイブされた回は元の回を特定できない）
+ALTER TABLE tasks_archive ADD COLUMN series_id BIGINT NULL, ADD COLUMN occurrence_date DATE NULL;
+CREATE INDEX idx_tasks_archive_series_occurrence ON tasks_archive (series_id, occurrence_date);
+CREATE INDEX idx_tasks_archive_occurrence_date ON tasks_archive (occurrence_date);
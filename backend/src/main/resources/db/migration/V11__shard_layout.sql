@@ -0,0 +1,10 @@
+-- user_shards にないユーザーの既定のシャードを決めたシャード数。シャード 0 のものだけを使う。
+-- シャーディングを有効にする前のデータはすべてシャード 0 にあるので 1 から始める
+CREATE TABLE shard_layout (
+    id          TINYINT     NOT NULL,
+    shard_count INT         NOT NULL,
+    updated_at  DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+INSERT INTO shard_layout (id, shard_count, updated_at) VALUES (1, 1, NOW(6));
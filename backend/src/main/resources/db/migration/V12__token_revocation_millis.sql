@@ -0,0 +1,3 @@
+-- ユーザー単位の失効（issued_before）を秒からエポックミリ秒にする。
+-- 秒の行はその秒に発行されたトークンまで失効させていたので、その秒の最後のミリ秒にする
+UPDATE token_revocations SET issued_before = issued_before * 1000 + 999 WHERE issued_before IS NOT NULL;
@@ -0,0 +1,10 @@
+-- 書き込み遅延で反映済みの切り替え（<ノードID>:<seq>）。反転は繰り返すと結果が変わるので、
+-- 再配送されたメッセージ（他のシャードの失敗や ack 前の停止）を反転と同じトランザクションで記録して二度反映しない
+CREATE TABLE task_writes_applied (
+    write_id   VARCHAR(64) CHARACTER SET ascii COLLATE ascii_bin NOT NULL,
+    applied_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (write_id),
+    INDEX idx_task_writes_applied_at (applied_at)
+) ENGINE = InnoDB;
+
+INSERT INTO scheduler_leases (name, owner, expires_at) VALUES ('task-writes-applied-purge', NULL, '1970-01-01 00:00:00');
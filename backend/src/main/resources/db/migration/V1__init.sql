@@ -0,0 +1,31 @@
+-- 以前 ddl-auto=update で生成されていたスキーマと同じ構成
+CREATE TABLE users (
+    id       BIGINT       NOT NULL AUTO_INCREMENT,
+    username VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username)
+) ENGINE = InnoDB;
+
+CREATE TABLE tasks (
+    id          BIGINT       NOT NULL AUTO_INCREMENT,
+    title       VARCHAR(255),
+    description VARCHAR(255),
+    completed   BIT          NOT NULL,
+    due_date    DATE,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE tags (
+    id   BIGINT       NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE task_tags (
+    task_id BIGINT NOT NULL,
+    tag_id  BIGINT NOT NULL,
+    PRIMARY KEY (task_id, tag_id),
+    CONSTRAINT fk_task_tags_task FOREIGN KEY (task_id) REFERENCES tasks (id),
+    CONSTRAINT fk_task_tags_tag FOREIGN KEY (tag_id) REFERENCES tags (id)
+) ENGINE = InnoDB;
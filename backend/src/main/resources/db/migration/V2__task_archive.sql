@@ -0,0 +1,31 @@
+-- 完了から一定期間たったタスクを退避するアーカイブテーブル
+ALTER TABLE tasks ADD COLUMN completed_at DATETIME(6) NULL;
+UPDATE tasks SET completed_at = NOW(6) WHERE completed = 1;
+CREATE INDEX idx_tasks_completed_at ON tasks (completed, completed_at);
+
+CREATE TABLE tasks_archive (
+    id           BIGINT       NOT NULL,
+    title        VARCHAR(255),
+    description  VARCHAR(255),
+    completed    BIT          NOT NULL,
+    due_date     DATE,
+    completed_at DATETIME(6),
+    archived_at  DATETIME(6)  NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE task_tags_archive (
+    task_id BIGINT NOT NULL,
+    tag_id  BIGINT NOT NULL,
+    PRIMARY KEY (task_id, tag_id)
+) ENGINE = InnoDB;
+
+-- 複数ノードのうち1台だけがバックグラウンド処理を実行するためのリース
+CREATE TABLE scheduler_leases (
+    name       VARCHAR(64) NOT NULL,
+    owner      VARCHAR(64),
+    expires_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (name)
+) ENGINE = InnoDB;
+
+INSERT INTO scheduler_leases (name, owner, expires_at) VALUES ('task-archiver', NULL, '1970-01-01 00:00:00');
@@ -0,0 +1,16 @@
+-- サブタスク。親子関係は parent_id、祖先・子孫の全組み合わせは task_closure に持つ
+ALTER TABLE tasks ADD COLUMN parent_id BIGINT NULL;
+CREATE INDEX idx_tasks_parent_id ON tasks (parent_id);
+
+CREATE TABLE task_closure (
+    ancestor_id   BIGINT NOT NULL,
+    descendant_id BIGINT NOT NULL,
+    depth         INT    NOT NULL,
+    PRIMARY KEY (ancestor_id, descendant_id),
+    KEY idx_task_closure_descendant (descendant_id, depth)
+) ENGINE = InnoDB;
+
+-- 既存のタスクはすべてルート
+INSERT INTO task_closure (ancestor_id, descendant_id, depth) SELECT id, id, 0 FROM tasks;
+
+ALTER TABLE tasks_archive ADD COLUMN parent_id BIGINT NULL;
@@ -0,0 +1,29 @@
+-- 繰り返しタスク。ルールだけを保存し、各回は要求された期間ぶんだけ展開する
+CREATE TABLE task_series (
+    id             BIGINT       NOT NULL AUTO_INCREMENT,
+    title          VARCHAR(255),
+    description    VARCHAR(255),
+    frequency      VARCHAR(32)  NOT NULL,
+    interval_count INT          NOT NULL DEFAULT 1,
+    days_of_week   VARCHAR(64),
+    week_of_month  INT,
+    start_date     DATE         NOT NULL,
+    end_date       DATE,
+    version        BIGINT       NOT NULL DEFAULT 0,
+    PRIMARY KEY (id),
+    KEY idx_task_series_dates (start_date, end_date)
+) ENGINE = InnoDB;
+
+-- 個別に完了・編集された回だけが tasks の行になる
+ALTER TABLE tasks ADD COLUMN series_id BIGINT NULL, ADD COLUMN occurrence_date DATE NULL;
+CREATE UNIQUE INDEX uk_tasks_series_occurrence ON tasks (series_id, occurrence_date);
+CREATE INDEX idx_tasks_occurrence_date ON tasks (occurrence_date);
+CREATE INDEX idx_tasks_due_date ON tasks (due_date);
+
+-- 削除された回
+CREATE TABLE task_series_exdates (
+    series_id       BIGINT NOT NULL,
+    occurrence_date DATE   NOT NULL,
+    PRIMARY KEY (series_id, occurrence_date),
+    KEY idx_task_series_exdates_date (occurrence_date)
+) ENGINE = InnoDB;
@@ -0,0 +1,27 @@
+-- タグ名の重複を防ぐための正規化名（前後の空白を除いて小文字にしたもの）。
+-- 比較は正規化名どうしの完全一致にしたいので、照合順序はバイナリにする
+ALTER TABLE tags ADD COLUMN normalized_name VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NULL;
+UPDATE tags SET normalized_name = LOWER(TRIM(COALESCE(name, '')));
+
+-- 既存の重複は id が最小のタグにまとめる
+CREATE TEMPORARY TABLE tag_merge AS
+SELECT t.id AS from_id, k.keep_id
+FROM tags t
+JOIN (SELECT normalized_name, MIN(id) AS keep_id FROM tags GROUP BY normalized_name) k
+  ON k.normalized_name = t.normalized_name
+WHERE t.id <> k.keep_id;
+
+INSERT IGNORE INTO task_tags (task_id, tag_id)
+SELECT tt.task_id, m.keep_id FROM task_tags tt JOIN tag_merge m ON m.from_id = tt.tag_id;
+DELETE tt FROM task_tags tt JOIN tag_merge m ON m.from_id = tt.tag_id;
+
+INSERT IGNORE INTO task_tags_archive (task_id, tag_id)
+SELECT tt.task_id, m.keep_id FROM task_tags_archive tt JOIN tag_merge m ON m.from_id = tt.tag_id;
+DELETE tt FROM task_tags_archive tt JOIN tag_merge m ON m.from_id = tt.tag_id;
+
+DELETE t FROM tags t JOIN tag_merge m ON m.from_id = t.id;
+DROP TEMPORARY TABLE tag_merge;
+
+ALTER TABLE tags
+    MODIFY normalized_name VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL,
+    ADD CONSTRAINT uk_tags_normalized_name UNIQUE (normalized_name);
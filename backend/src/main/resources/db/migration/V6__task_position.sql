@@ -0,0 +1,13 @@
+-- 手動の並び順。分数インデックス（base62 の文字列）なので、移動で更新するのはその1行だけ。
+-- 文字コード順で比較したいので ascii_bin にする
+ALTER TABLE tasks ADD COLUMN position VARCHAR(255) CHARACTER SET ascii COLLATE ascii_bin NULL;
+
+-- 既存のタスクは作成順。TaskRebalancer と同じ形式（7桁の base36 + 'V'）
+UPDATE tasks SET position = CONCAT(LPAD(CONV(id, 10, 36), 7, '0'), 'V');
+
+ALTER TABLE tasks MODIFY position VARCHAR(255) CHARACTER SET ascii COLLATE ascii_bin NOT NULL;
+
+-- 手動順のキーセットページング（position, id）用
+CREATE INDEX idx_tasks_position ON tasks (position, id);
+
+INSERT INTO scheduler_leases (name, owner, expires_at) VALUES ('task-rebalancer', NULL, '1970-01-01 00:00:00');
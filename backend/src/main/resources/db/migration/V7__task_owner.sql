@@ -0,0 +1,35 @@
+-- タスク・タグ・繰り返しルールの所有者（users.id）。シャーディングではこの値でデータベースを振り分ける。
+-- 既存の行は最初に作られたユーザー（DataInitializer の testuser）のものにする。ユーザーがいなければ 0
+SET @legacy_owner = COALESCE((SELECT MIN(id) FROM users), 0);
+
+ALTER TABLE tasks ADD COLUMN owner_id BIGINT NOT NULL DEFAULT 0;
+UPDATE tasks SET owner_id = @legacy_owner;
+-- 所有者ごとの一覧・手動順のページング・期限順の取得用
+CREATE INDEX idx_tasks_owner_position ON tasks (owner_id, position, id);
+CREATE INDEX idx_tasks_owner_due_date ON tasks (owner_id, due_date);
+
+ALTER TABLE tasks_archive ADD COLUMN owner_id BIGINT NOT NULL DEFAULT 0;
+UPDATE tasks_archive SET owner_id = @legacy_owner;
+CREATE INDEX idx_tasks_archive_owner ON tasks_archive (owner_id);
+
+-- タグ名の一意性は所有者ごと
+ALTER TABLE tags ADD COLUMN owner_id BIGINT NOT NULL DEFAULT 0;
+UPDATE tags SET owner_id = @legacy_owner;
+ALTER TABLE tags
+    DROP INDEX uk_tags_normalized_name,
+    ADD CONSTRAINT uk_tags_owner_normalized_name UNIQUE (owner_id, normalized_name);
+
+ALTER TABLE task_series ADD COLUMN owner_id BIGINT NOT NULL DEFAULT 0;
+UPDATE task_series SET owner_id = @legacy_owner;
+CREATE INDEX idx_task_series_owner ON task_series (owner_id, start_date);
+
+-- ハッシュによる割り当てから外したユーザー（シャード間の移動中・移動済み）。シャード 0 のものだけを使う
+CREATE TABLE user_shards (
+    user_id    BIGINT      NOT NULL,
+    shard      INT         NOT NULL,
+    moving_to  INT         NULL,
+    updated_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (user_id)
+) ENGINE = InnoDB;
+
+INSERT INTO scheduler_leases (name, owner, expires_at) VALUES ('shard-mover', NULL, '1970-01-01 00:00:00');
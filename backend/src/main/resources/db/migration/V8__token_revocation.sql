@@ -0,0 +1,16 @@
+-- 失効させた JWT。jti の行はそのトークンだけ、username の行はそのユーザーの issued_before 秒以前に発行されたトークンすべて。
+-- 時刻はエポックミリ秒（issued_before は秒）。シャーディング時はシャード 0 だけを使う
+CREATE TABLE token_revocations (
+    id            BIGINT       NOT NULL AUTO_INCREMENT,
+    jti           CHAR(36),
+    username      VARCHAR(255),
+    issued_before BIGINT,
+    expires_at    BIGINT       NOT NULL,
+    revoked_at    BIGINT       NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_token_revocations_jti (jti),
+    INDEX idx_token_revocations_revoked_at (revoked_at),
+    INDEX idx_token_revocations_expires_at (expires_at)
+) ENGINE = InnoDB;
+
+INSERT INTO scheduler_leases (name, owner, expires_at) VALUES ('token-revocation-purge', NULL, '1970-01-01 00:00:00');
@@ -0,0 +1,18 @@
+-- タスクの添付ファイルのメタデータ。本体は app.attachments.dir 以下に sha256 の名前で置く（同じ内容は1つだけ）。
+-- タスクの削除では消さず、タスク（アーカイブを含む）がなくなった行は定期的な掃除で消す
+CREATE TABLE attachments (
+    id           BIGINT       NOT NULL AUTO_INCREMENT,
+    task_id      BIGINT       NOT NULL,
+    owner_id     BIGINT       NOT NULL,
+    filename     VARCHAR(255) NOT NULL,
+    content_type VARCHAR(255) NOT NULL,
+    size         BIGINT       NOT NULL,
+    sha256       CHAR(64)     NOT NULL,
+    created_at   DATETIME(6)  NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_attachments_task (task_id),
+    INDEX idx_attachments_owner (owner_id),
+    INDEX idx_attachments_sha256 (sha256)
+) ENGINE = InnoDB;
+
+INSERT INTO scheduler_leases (name, owner, expires_at) VALUES ('attachment-sweeper', NULL, '1970-01-01 00:00:00');
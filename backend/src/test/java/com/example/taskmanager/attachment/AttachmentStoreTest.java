@@ -0,0 +1,69 @@
+package com.example.taskmanager.attachment;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AttachmentStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void storesContentUnderItsHashAndSharesDuplicates() throws IOException {
+        AttachmentStore store = new AttachmentStore(dir);
+
+        AttachmentStore.StoredObject first = store.store(stream("hello"), 1024);
+        AttachmentStore.StoredObject second = store.store(stream("hello"), 1024);
+
+        assertThat(first.sha256()).isEqualTo("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824");
+        assertThat(first.size()).isEqualTo(5);
+        assertThat(second).isEqualTo(first);
+        assertThat(Files.readString(store.path(first.sha256()))).isEqualTo("hello");
+        assertThat(dir.resolve("tmp")).isEmptyDirectory();
+    }
+
+    @Test
+    void rejectsContentOverTheLimitWithoutKeepingIt() throws IOException {
+        AttachmentStore store = new AttachmentStore(dir);
+
+        assertThatThrownBy(() -> store.store(stream("too large"), 4))
+                .isInstanceOf(AttachmentTooLargeException.class);
+        assertThat(dir.resolve("tmp")).isEmptyDirectory();
+        assertThat(dir.resolve("objects")).isEmptyDirectory();
+    }
+
+    @Test
+    void deletesOnlyOldUnreferencedContent() throws IOException {
+        AttachmentStore store = new AttachmentStore(dir);
+        String kept = store.store(stream("kept"), 1024).sha256();
+        String orphan = store.store(stream("orphan"), 1024).sha256();
+        String recent = store.store(stream("recent"), 1024).sha256();
+        Instant old = Instant.now().minus(Duration.ofHours(2));
+        Files.setLastModifiedTime(store.path(kept), FileTime.from(old));
+        Files.setLastModifiedTime(store.path(orphan), FileTime.from(old));
+
+        int deleted = store.deleteUnreferenced(Set.of(kept), Instant.now().minus(Duration.ofHours(1)));
+
+        assertThat(deleted).isEqualTo(1);
+        assertThat(store.path(kept)).exists();
+        assertThat(store.path(orphan)).doesNotExist();
+        assertThat(store.path(recent)).exists();
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
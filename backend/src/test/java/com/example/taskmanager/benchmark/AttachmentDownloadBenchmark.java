@@ -0,0 +1,109 @@
+package com.example.taskmanager.benchmark;
+
+import com.example.taskmanager.attachment.FileRegionSender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 添付ファイル（16MB）をループバックのソケットへ送る速さ。
+ * transferTo はカーネル内でのコピー、streamCopy は byte[] を介した読み書き（InputStreamResource を返す場合と同じ）。
+ * {@code -prof gc} を付けると、1回あたりの割り当て量も比べられる。
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AttachmentDownloadBenchmark {
+
+    private static final int SIZE = 16 * 1024 * 1024;
+
+    @State(Scope.Thread)
+    public static class Connection {
+
+        Path file;
+        FileChannel channel;
+        SocketChannel socket;
+        ServerSocketChannel server;
+        Thread drain;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            file = Files.createTempFile("attachment-bench", ".bin");
+            byte[] content = new byte[SIZE];
+            ThreadLocalRandom.current().nextBytes(content);
+            Files.write(file, content);
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+
+            server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            socket = SocketChannel.open(server.getLocalAddress());
+            SocketChannel peer = server.accept();
+            // 受信側は読み捨てるだけ
+            drain = Thread.ofPlatform().daemon().start(() -> {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+                try (peer) {
+                    while (peer.read(buffer.clear()) >= 0) {
+                        // 読み捨てる
+                    }
+                } catch (IOException e) {
+                    // 終了時にソケットが閉じられた
+                }
+            });
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            socket.close();
+            server.close();
+            channel.close();
+            Files.delete(file);
+        }
+    }
+
+    @Benchmark
+    public void transferTo(Connection connection) throws IOException {
+        FileRegionSender.transfer(connection.channel, 0, SIZE, connection.socket);
+    }
+
+    @Benchmark
+    public long streamCopy(Connection connection) throws IOException {
+        // InputStream#transferTo は相手がチャネルだと transferTo に切り替わるので、サーブレットの出力ストリームと同じく手で回す
+        OutputStream out = Channels.newOutputStream(connection.socket);
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        try (InputStream in = Files.newInputStream(connection.file)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+                total += n;
+            }
+        }
+        return total;
+    }
+}
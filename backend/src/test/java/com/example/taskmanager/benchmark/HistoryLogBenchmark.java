@@ -0,0 +1,92 @@
+package com.example.taskmanager.benchmark;
+
+import com.example.taskmanager.history.HistoryEvent;
+import com.example.taskmanager.history.HistoryLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 履歴ログの追記スループット（書き込み完了まで待つ）と、1タスクの履歴の検索レイテンシ。
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryLogBenchmark {
+
+    private static final int TASKS = 10_000;
+    private static final byte[] PAYLOAD = ("{\"id\":1,\"title\":\"write the quarterly report\",\"description\":null,"
+            + "\"completed\":true,\"dueDate\":\"2026-10-19\",\"tagIds\":[1,2]}").getBytes(StandardCharsets.UTF_8);
+
+    @State(Scope.Benchmark)
+    public static class Log {
+
+        HistoryLog log;
+        Path dir;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("history-bench");
+            log = new HistoryLog(dir, 4 * 1024 * 1024, Duration.ofDays(1), 1000, 1024, 100_000, true);
+            log.start();
+            // 10 万件（約 14MB、4 セグメント弱）を入れておく
+            CompletableFuture<?>[] writes = new CompletableFuture<?>[100_000];
+            for (int i = 0; i < writes.length; i++) {
+                writes[i] = log.append(event(i % TASKS));
+            }
+            CompletableFuture.allOf(writes).join();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            log.stop();
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(Threads.MAX)
+    public void append(Log state) {
+        state.log.append(event(ThreadLocalRandom.current().nextInt(TASKS))).join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<HistoryEvent> latestTenOfOneTask(Log state) {
+        return state.log.history(HistoryEvent.EntityType.TASK, ThreadLocalRandom.current().nextInt(TASKS), 10);
+    }
+
+    private static HistoryEvent event(long taskId) {
+        return new HistoryEvent(System.currentTimeMillis(), HistoryEvent.EntityType.TASK, HistoryEvent.Op.UPDATE,
+                taskId, PAYLOAD);
+    }
+}
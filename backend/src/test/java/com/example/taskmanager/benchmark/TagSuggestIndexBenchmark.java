@@ -0,0 +1,70 @@
+package com.example.taskmanager.benchmark;
+
+import com.example.taskmanager.dto.TagDTO;
+import com.example.taskmanager.model.Tag;
+import com.example.taskmanager.service.TagSuggestIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1ユーザーが10万タグを持つ場合の補完1回あたりの時間。1文字の接頭辞は一致件数が多く、最悪に近いケースになる。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TagSuggestIndexBenchmark {
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz";
+    private static final long OWNER = 1;
+
+    @Param({"1", "3"})
+    public int prefixLength;
+
+    private TagSuggestIndex index;
+    private String[] prefixes;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<TagSuggestIndex.Usage> usages = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int j = 4 + random.nextInt(8); j > 0; j--) {
+                name.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            name.append(i);
+            usages.add(new TagSuggestIndex.Usage(i, OWNER, Tag.normalize(name.toString()), name.toString(),
+                    random.nextInt(1000)));
+        }
+        index = new TagSuggestIndex(null, null);
+        index.load(usages);
+
+        prefixes = new String[1024];
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = usages.get(random.nextInt(usages.size())).name().substring(0, prefixLength).toUpperCase();
+        }
+    }
+
+    @Benchmark
+    public List<TagDTO> suggest() {
+        return index.suggest(OWNER, prefixes[ThreadLocalRandom.current().nextInt(prefixes.length)], 10);
+    }
+}
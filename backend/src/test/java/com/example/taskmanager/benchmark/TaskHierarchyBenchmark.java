@@ -0,0 +1,124 @@
+package com.example.taskmanager.benchmark;
+
+import com.example.taskmanager.repository.TaskHierarchyRepository;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 10 分木・深さ 5（111,111 ノード）の木に対する部分木の取得・進捗・移動。
+ *
+ * <p>MySQL が必要。{@code -p jdbcUrl=...} で使い捨てのスキーマを指定すること（Flyway でマイグレーションする）。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskHierarchyBenchmark {
+
+    private static final int FANOUT = 10;
+    private static final int DEPTH = 5;
+    private static final String TITLE = "hierarchy-benchmark";
+
+    @Param("jdbc:mysql://localhost:3306/taskdb_bench")
+    public String jdbcUrl;
+
+    @Param("root")
+    public String user;
+
+    @Param("password")
+    public String password;
+
+    private TaskHierarchyRepository hierarchy;
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbcTemplate;
+    private long rootId;
+    private long midId;
+    private List<Long> firstLevel;
+    private int moves;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // LAST_INSERT_ID() を使うので接続は1本
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(jdbcUrl, user, password, true);
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        hierarchy = new TaskHierarchyRepository(jdbcTemplate);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        jdbcTemplate.update("INSERT INTO tasks (title, completed, position) VALUES (?, 0, 'V')", TITLE);
+        rootId = jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
+        jdbcTemplate.update("INSERT INTO task_closure (ancestor_id, descendant_id, depth) VALUES (?, ?, 0)",
+                rootId, rootId);
+
+        // 1段ずつ、前の段の各ノードに FANOUT 個の子を set-based に追加する
+        for (int d = 1; d <= DEPTH; d++) {
+            String marker = TITLE + "-" + d;
+            for (int i = 0; i < FANOUT; i++) {
+                jdbcTemplate.update(
+                        "INSERT INTO tasks (title, completed, parent_id, position) "
+                                + "SELECT ?, id % 2, id, 'V' FROM tasks WHERE title = ?",
+                        marker, d == 1 ? TITLE : TITLE + "-" + (d - 1));
+            }
+            jdbcTemplate.update(
+                    "INSERT INTO task_closure (ancestor_id, descendant_id, depth) "
+                            + "SELECT c.ancestor_id, t.id, c.depth + 1 FROM tasks t "
+                            + "JOIN task_closure c ON c.descendant_id = t.parent_id WHERE t.title = ?",
+                    marker);
+            jdbcTemplate.update(
+                    "INSERT INTO task_closure (ancestor_id, descendant_id, depth) "
+                            + "SELECT id, id, 0 FROM tasks WHERE title = ?",
+                    marker);
+            if (d == 1) {
+                firstLevel = jdbcTemplate.queryForList("SELECT id FROM tasks WHERE title = ? ORDER BY id",
+                        Long.class, marker);
+            } else if (d == 2) {
+                midId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM tasks WHERE title = ?", Long.class, marker);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> hierarchy.deleteSubtree(rootId));
+    }
+
+    // 1,111 ノードの部分木
+    @Benchmark
+    public int subtreeOfMidNode() {
+        return hierarchy.findSubtree(midId).size();
+    }
+
+    // 111,111 ノード全体の完了率
+    @Benchmark
+    public double progressOfRoot() {
+        return hierarchy.progress(rootId).percent();
+    }
+
+    // 1,111 ノードの部分木を兄弟の間で行き来させる
+    @Benchmark
+    public void moveMidSubtree() {
+        Long newParent = firstLevel.get(++moves % 2);
+        transactionTemplate.executeWithoutResult(status -> hierarchy.move(midId, newParent));
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.taskmanager.benchmark;
+
+import com.example.taskmanager.security.TokenBucketRateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * リクエストごとにレート制限が追加するコスト。1万ユーザーに分散したアクセスと、1ユーザーへの集中の両方を測る。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenBucketRateLimiterBenchmark {
+
+    private TokenBucketRateLimiter limiter;
+    private String[] keys;
+
+    @Setup
+    public void setUp() {
+        limiter = new TokenBucketRateLimiter(1_000_000, TimeUnit.SECONDS.toNanos(1), 16, 100_000);
+        keys = new String[10_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "user:user" + i;
+        }
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long manyUsers() {
+        String key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+        return limiter.tryAcquire(key, System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long singleHotUser() {
+        return limiter.tryAcquire("user:hot", System.nanoTime());
+    }
+}
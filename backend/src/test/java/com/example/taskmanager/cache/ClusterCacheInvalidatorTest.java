@@ -0,0 +1,87 @@
+package com.example.taskmanager.cache;
+
+import com.example.taskmanager.model.Task;
+import com.example.taskmanager.readmodel.TaskChangedEvent;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ClusterCacheInvalidatorTest {
+
+    private final Cache cache = mock(Cache.class);
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private ClusterCacheInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(cache);
+        invalidator = new ClusterCacheInvalidator(entityManagerFactory, rabbitTemplate, eventPublisher);
+        ReflectionTestUtils.setField(invalidator, "enabled", true);
+    }
+
+    @Test
+    void batchesManyIdsIntoFewMessages() {
+        List<Long> ids = LongStream.rangeClosed(1, 1200).boxed().toList();
+
+        invalidator.invalidateAll(Task.class, ids);
+
+        ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+        verify(rabbitTemplate, times(3)).convertAndSend(eq(ClusterCacheInvalidator.EXCHANGE), eq(""), messages.capture());
+        assertThat(messages.getAllValues().get(2)).endsWith("|Task|" + String.join(",",
+                LongStream.rangeClosed(1001, 1200).mapToObj(String::valueOf).toList()));
+        verify(cache).evictCollectionData(Task.class.getName() + ".tags", 1200L);
+        verify(eventPublisher, times(1200)).publishEvent(any(TaskChangedEvent.class));
+    }
+
+    @Test
+    void evictsAgainAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            invalidator.invalidate(Task.class, 7L);
+            verify(cache, times(1)).evictEntityData(Task.class, 7L);
+            verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), anyString());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(cache, times(2)).evictEntityData(Task.class, 7L);
+        verify(rabbitTemplate).convertAndSend(eq(ClusterCacheInvalidator.EXCHANGE), eq(""), anyString());
+    }
+
+    @Test
+    void evictsEveryIdInAReceivedBatch() {
+        invalidator.receive("other-node|Task|4,5,6");
+
+        verify(cache).evictEntityData(Task.class, 4L);
+        verify(cache).evictCollectionData(Task.class.getName() + ".tags", 6L);
+        verify(eventPublisher).publishEvent(new TaskChangedEvent(TaskChangedEvent.Kind.TASK, 5L, true));
+        verify(rabbitTemplate, times(0)).convertAndSend(anyString(), anyString(), anyString());
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.taskmanager.config;
+
+import com.example.taskmanager.cache.CacheInvalidationListener;
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.model.Task;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * JVM でもネイティブイメージ上（-PnativeTest）でも実行されるヒントのテスト。
+ */
+class NativeRuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    NativeRuntimeHintsTest() {
+        new NativeRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void registersJjwtImplementations() {
+        for (String type : NativeRuntimeHints.JJWT_TYPES) {
+            assertThat(RuntimeHintsPredicates.reflection().onType(TypeReference.of(type))).accepts(hints);
+        }
+    }
+
+    @Test
+    void registersJsonBindingForEntitiesAndDtos() {
+        assertThat(RuntimeHintsPredicates.reflection().onType(Task.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(TaskDTO.class)).accepts(hints);
+    }
+
+    @Test
+    void registersCacheProviderAndConfiguration() {
+        for (String type : NativeRuntimeHints.CACHE_TYPES) {
+            assertThat(RuntimeHintsPredicates.reflection().onType(TypeReference.of(type))).accepts(hints);
+        }
+        assertThat(RuntimeHintsPredicates.reflection().onType(CacheInvalidationListener.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("ehcache.xml")).accepts(hints);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.taskmanager.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica = mock(DataSource.class);
+    private ReplicaHealthMonitor monitor;
+    private ReadYourWritesTracker tracker;
+    private ReadWriteRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica);
+        when(replica.getConnection()).thenReturn(mock(Connection.class, RETURNS_DEEP_STUBS));
+        monitor = new ReplicaHealthMonitor(replicas, 5);
+        monitor.checkReplicas();
+        tracker = new ReadYourWritesTracker(60_000);
+        routing = new ReadWriteRoutingDataSource(primary, replicas, monitor, tracker);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("alice", null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionGoesToReplica() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(routing.chooseReplica()).isEqualTo("replica-0");
+    }
+
+    @Test
+    void readsStickToPrimaryAfterWrite() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        assertThat(routing.chooseReplica()).isNull();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(routing.chooseReplica()).isNull();
+    }
+
+    @Test
+    void fallsBackToPrimaryWhenReplicaIsDown() throws SQLException {
+        Connection primaryConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+        assertThat(monitor.healthyReplicas()).isEmpty();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.taskmanager.history;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HistoryLogTest {
+
+    @TempDir
+    Path dir;
+
+    private HistoryLog log;
+
+    @AfterEach
+    void tearDown() {
+        log.stop();
+    }
+
+    @Test
+    void lookupFollowsBackPointersAcrossSegments() throws IOException {
+        log = start();
+        CompletableFuture<?>[] writes = new CompletableFuture<?>[200];
+        for (int i = 0; i < writes.length; i++) {
+            writes[i] = log.append(event(i % 4, "v" + i));
+        }
+        CompletableFuture.allOf(writes).join();
+
+        // 1 セグメント 2KB なので何度か切り替わっている
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files.filter(p -> p.toString().endsWith(".log")).count()).isGreaterThan(3);
+        }
+        assertThat(log.history(HistoryEvent.EntityType.TASK, 2, 100))
+                .hasSize(50)
+                .extracting(e -> new String(e.payload(), StandardCharsets.UTF_8))
+                .startsWith("v198", "v194", "v190")
+                .endsWith("v2");
+        assertThat(log.history(HistoryEvent.EntityType.TASK, 2, 3)).hasSize(3);
+        assertThat(log.history(HistoryEvent.EntityType.TAG, 2, 10)).isEmpty();
+    }
+
+    @Test
+    void reopensSealedAndActiveSegments() {
+        log = start();
+        CompletableFuture<?>[] writes = new CompletableFuture<?>[100];
+        for (int i = 0; i < writes.length; i++) {
+            writes[i] = log.append(event(i % 2, "v" + i));
+        }
+        CompletableFuture.allOf(writes).join();
+        log.stop();
+
+        log = start();
+        assertThat(log.history(HistoryEvent.EntityType.TASK, 1, 1000)).hasSize(50);
+        log.append(event(1, "after restart")).join();
+        assertThat(new String(log.history(HistoryEvent.EntityType.TASK, 1, 1).get(0).payload(),
+                StandardCharsets.UTF_8)).isEqualTo("after restart");
+    }
+
+    @Test
+    void expiredSegmentsAreDeletedWithoutARollover() throws Exception {
+        log = start(Duration.ofMillis(300));
+        CompletableFuture<?>[] writes = new CompletableFuture<?>[120];
+        for (int i = 0; i < writes.length; i++) {
+            writes[i] = log.append(event(i, "v" + i));
+        }
+        CompletableFuture.allOf(writes).join();
+        long segments = logFiles();
+        assertThat(segments).isGreaterThan(1);
+
+        Thread.sleep(400);
+        log.deleteExpired();
+
+        // 追記中のセグメントだけが残る
+        assertThat(logFiles()).isEqualTo(1);
+        assertThat(log.history(HistoryEvent.EntityType.TASK, 119, 10)).hasSize(1);
+    }
+
+    @Test
+    void recoversFromATornRecord() throws IOException {
+        log = start();
+        log.append(event(1, "before")).join();
+        log.stop();
+
+        // 2件目の書き込み途中で落ちた状態（length まで書かれ、CRC が合わない）
+        Path file = HistorySegment.fileName(dir, 1);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer torn = ByteBuffer.allocate(200);
+            torn.putInt(200).putInt(42);
+            while (torn.hasRemaining()) {
+                torn.put((byte) 7);
+            }
+            channel.write(torn.flip(), HistorySegment.HEADER_SIZE + "before".length());
+        }
+
+        log = start();
+        log.append(event(1, "after")).join();
+        log.stop();
+        log = start();
+        assertThat(log.history(HistoryEvent.EntityType.TASK, 1, 10))
+                .extracting(e -> new String(e.payload(), StandardCharsets.UTF_8))
+                .containsExactly("after", "before");
+    }
+
+    private long logFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(".log")).count();
+        }
+    }
+
+    private HistoryLog start() {
+        return start(Duration.ofDays(1));
+    }
+
+    private HistoryLog start(Duration retention) {
+        HistoryLog history = new HistoryLog(dir, 2048, retention, 10, 64, 1000, true);
+        history.start();
+        return history;
+    }
+
+    private static HistoryEvent event(long taskId, String payload) {
+        return new HistoryEvent(System.currentTimeMillis(), HistoryEvent.EntityType.TASK, HistoryEvent.Op.UPDATE,
+                taskId, payload.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.taskmanager.model;
+
+import com.example.taskmanager.support.TestDatabase;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+/**
+ * spring.jpa.hibernate.ddl-auto=validate と同じ検証を、マイグレーションを当てたスキーマに対して行う。
+ */
+class SchemaValidationTest {
+
+    @Test
+    void entitiesMatchTheMigratedSchema() {
+        TestDatabase database = TestDatabase.create();
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, database.dataSource())
+                .applySetting(AvailableSettings.DIALECT, MySQLDialect.class.getName())
+                .applySetting(AvailableSettings.PHYSICAL_NAMING_STRATEGY, CamelCaseToUnderscoresNamingStrategy.class.getName())
+                .applySetting(AvailableSettings.IMPLICIT_NAMING_STRATEGY, SpringImplicitNamingStrategy.class.getName())
+                .applySetting(AvailableSettings.USE_SECOND_LEVEL_CACHE, false)
+                .build();
+        try {
+            Metadata metadata = new MetadataSources(registry)
+                    .addAnnotatedClasses(Task.class, Tag.class, TaskSeries.class, User.class, Attachment.class)
+                    .buildMetadata();
+
+            assertThatCode(() -> SchemaManagementToolCoordinator.process(metadata, registry,
+                    Map.of(AvailableSettings.HBM2DDL_AUTO, "validate"), action -> { }))
+                    .doesNotThrowAnyException();
+        } finally {
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+    }
+}
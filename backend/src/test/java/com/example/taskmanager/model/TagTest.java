@@ -0,0 +1,23 @@
+package com.example.taskmanager.model;
+
+import com.example.taskmanager.support.TestDatabase;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TagTest {
+
+    @Test
+    void normalizeMatchesTheMigrationBackfill() {
+        JdbcTemplate jdbcTemplate = TestDatabase.create().jdbcTemplate();
+
+        for (String name : List.of("  Work  ", "\tWork", "Work　", " Straße ", "ÉTÉ", "a  b", "   ")) {
+            String migrated = jdbcTemplate.queryForObject(
+                    "SELECT LOWER(TRIM(CONVERT(? USING utf8mb4)))", String.class, name);
+            assertThat(Tag.normalize(name)).as("normalize(%s)", name).isEqualTo(migrated);
+        }
+    }
+}
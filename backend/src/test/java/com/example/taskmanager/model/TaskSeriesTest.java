@@ -0,0 +1,57 @@
+package com.example.taskmanager.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskSeriesTest {
+
+    @Test
+    void dailyEveryThirdDayKeepsPhaseAcrossMonths() {
+        TaskSeries series = series(TaskSeries.Frequency.DAILY, 3, LocalDate.of(2026, 1, 30));
+
+        assertThat(series.occurrencesIn(YearMonth.of(2026, 1)))
+                .containsExactly(LocalDate.of(2026, 1, 30));
+        assertThat(series.occurrencesIn(YearMonth.of(2026, 2)))
+                .startsWith(LocalDate.of(2026, 2, 2), LocalDate.of(2026, 2, 5))
+                .hasSize(9);
+    }
+
+    @Test
+    void everyOtherWeekOnMondayAndFridayUntilEndDate() {
+        TaskSeries series = series(TaskSeries.Frequency.WEEKLY, 2, LocalDate.of(2026, 3, 4));
+        series.setDaysOfWeek(EnumSet.of(DayOfWeek.FRIDAY, DayOfWeek.MONDAY));
+        series.setEndDate(LocalDate.of(2026, 3, 20));
+
+        // 開始週の月曜（3/2）は開始日より前なので含まない
+        assertThat(series.occurrencesIn(YearMonth.of(2026, 3))).containsExactly(
+                LocalDate.of(2026, 3, 6), LocalDate.of(2026, 3, 16), LocalDate.of(2026, 3, 20));
+    }
+
+    @Test
+    void monthlyNthAndLastWeekday() {
+        TaskSeries second = series(TaskSeries.Frequency.MONTHLY_NTH_WEEKDAY, 1, LocalDate.of(2026, 1, 1));
+        second.setDaysOfWeek(EnumSet.of(DayOfWeek.TUESDAY));
+        second.setWeekOfMonth(2);
+        TaskSeries last = series(TaskSeries.Frequency.MONTHLY_NTH_WEEKDAY, 1, LocalDate.of(2026, 1, 1));
+        last.setDaysOfWeek(EnumSet.of(DayOfWeek.FRIDAY));
+        last.setWeekOfMonth(-1);
+
+        assertThat(second.occurrencesIn(YearMonth.of(2026, 10))).containsExactly(LocalDate.of(2026, 10, 13));
+        assertThat(last.occurrencesIn(YearMonth.of(2026, 10))).containsExactly(LocalDate.of(2026, 10, 30));
+        assertThat(last.occursOn(LocalDate.of(2026, 10, 23))).isFalse();
+    }
+
+    private static TaskSeries series(TaskSeries.Frequency frequency, int interval, LocalDate start) {
+        TaskSeries series = new TaskSeries();
+        series.setFrequency(frequency);
+        series.setInterval(interval);
+        series.setStartDate(start);
+        return series;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.taskmanager.readmodel;
+
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.readmodel.TaskProjection.Row;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskProjectionTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 19);
+
+    @Test
+    void listsByDueDateWithUndatedTasksLast() {
+        TaskProjection projection = TaskProjection.of(List.of(
+                row(1, null, false), row(2, TODAY.plusDays(2), false), row(3, TODAY, true), row(4, TODAY, false)));
+
+        assertThat(ids(projection.query(new TaskQuery(null, null, null, null)))).containsExactly(3L, 4L, 2L, 1L);
+        assertThat(ids(projection.query(new TaskQuery(false, null, null, null)))).containsExactly(4L, 2L, 1L);
+    }
+
+    @Test
+    void filtersByDueRangeAndTag() {
+        TaskProjection projection = TaskProjection.of(List.of(
+                row(1, TODAY.minusDays(1), false, 7), row(2, TODAY, false, 5, 7), row(3, TODAY.plusDays(1), false),
+                row(4, null, false, 7)));
+
+        assertThat(ids(projection.query(new TaskQuery(null, null, TODAY, null)))).containsExactly(2L, 3L);
+        assertThat(ids(projection.query(new TaskQuery(null, null, null, TODAY)))).containsExactly(1L, 2L);
+        assertThat(ids(projection.query(new TaskQuery(null, 7L, null, null)))).containsExactly(1L, 2L, 4L);
+        assertThat(projection.query(new TaskQuery(null, 5L, null, null)).get(0).tagIds).containsExactlyInAnyOrder(5L, 7L);
+    }
+
+    @Test
+    void appliesUpsertsAndRemovalsAsANewSnapshot() {
+        TaskProjection projection = TaskProjection.of(List.of(row(1, TODAY, false), row(2, TODAY, false)));
+
+        TaskProjection updated = projection.apply(List.of(row(1, TODAY.plusDays(3), true), row(5, TODAY, false)), Set.of(2L));
+
+        assertThat(ids(updated.query(new TaskQuery(null, null, null, null)))).containsExactly(5L, 1L);
+        assertThat(updated.contains(2L)).isFalse();
+        assertThat(updated.idSum()).isEqualTo(6);
+        assertThat(ids(projection.query(new TaskQuery(null, null, null, null)))).containsExactly(1L, 2L);
+        assertThat(Set.copyOf(updated.rows())).isEqualTo(Set.of(row(1, TODAY.plusDays(3), true), row(5, TODAY, false)));
+    }
+
+    private static Row row(long id, LocalDate due, boolean completed, int... tagIds) {
+        return new Row(id, 1, "task " + id, null, completed,
+                due != null ? (int) due.toEpochDay() : TaskProjection.NO_DATE, 0, 0, TaskProjection.NO_DATE,
+                "a" + id, tagIds);
+    }
+
+    private static List<Long> ids(List<TaskDTO> tasks) {
+        return tasks.stream().map(dto -> dto.id).toList();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.taskmanager.repository;
+
+import com.example.taskmanager.readmodel.TaskQuery;
+import com.example.taskmanager.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TagLinkRepositoryTest {
+
+    private static final TaskQuery ALL = new TaskQuery(null, null, null, null);
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private TagLinkRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase database = TestDatabase.create();
+        jdbcTemplate = database.jdbcTemplate();
+        transactionTemplate = database.transactionTemplate();
+        repository = new TagLinkRepository(database.namedJdbcTemplate());
+    }
+
+    @Test
+    void assignSkipsLinkedTasksAndOtherOwners() {
+        long tag = tag("work", 1);
+        long open = task("open", false, 1);
+        task("done", true, 1);
+        long linked = task("linked", false, 1);
+        task("others", false, 2);
+        link(linked, tag);
+
+        TagLinkRepository.Changed changed = transactionTemplate.execute(status ->
+                repository.assign(tag, 1L, new TaskQuery(false, null, null, null), null));
+
+        assertThat(changed.taskIds()).containsExactly(open);
+        assertThat(changed.links()).isEqualTo(1);
+        assertThat(linkedTasks(tag)).containsExactly(open, linked);
+    }
+
+    @Test
+    void assignWithoutOwnerCoversEveryOwnerAndCountsOnlyNewLinks() {
+        long tag = tag("work", 1);
+        long mine = task("mine", false, 1);
+        long others = task("others", false, 2);
+        link(mine, tag);
+
+        TagLinkRepository.Changed changed = transactionTemplate.execute(status ->
+                repository.assign(tag, null, ALL, List.of(mine, others)));
+
+        assertThat(changed.taskIds()).containsExactly(others);
+        assertThat(changed.links()).isEqualTo(1);
+        assertThat(linkedTasks(tag)).containsExactly(mine, others);
+    }
+
+    @Test
+    void unassignRemovesOnlyTheOwnersLinks() {
+        long tag = tag("work", 1);
+        long mine = task("mine", false, 1);
+        long others = task("others", false, 2);
+        link(mine, tag);
+        link(others, tag);
+
+        TagLinkRepository.Changed changed = transactionTemplate.execute(status ->
+                repository.unassign(tag, 1L, ALL, null));
+
+        assertThat(changed.taskIds()).containsExactly(mine);
+        assertThat(changed.links()).isEqualTo(1);
+        assertThat(linkedTasks(tag)).containsExactly(others);
+    }
+
+    @Test
+    void mergeIntoATagAlreadyOnTheTaskKeepsOneLink() {
+        long source = tag("Work", 1);
+        long target = tag("work", 1);
+        long both = task("both", false, 1);
+        long sourceOnly = task("source only", false, 1);
+        link(both, source);
+        link(both, target);
+        link(sourceOnly, source);
+        jdbcTemplate.update("INSERT INTO task_tags_archive (task_id, tag_id) VALUES (900, ?), (900, ?), (901, ?)",
+                source, target, source);
+
+        TagLinkRepository.Removed removed = transactionTemplate.execute(status -> repository.merge(source, target));
+
+        assertThat(removed.taskIds()).containsExactlyInAnyOrder(both, sourceOnly);
+        assertThat(removed.linksAdded()).isEqualTo(1);
+        assertThat(removed.linksRemoved()).isEqualTo(2);
+        assertThat(removed.archivedLinksRemoved()).isEqualTo(2);
+        assertThat(removed.tagsDeleted()).isEqualTo(1);
+        assertThat(linkedTasks(target)).containsExactly(both, sourceOnly);
+        assertThat(jdbcTemplate.queryForList("SELECT task_id FROM task_tags_archive WHERE tag_id = ? ORDER BY task_id",
+                Long.class, target)).containsExactly(900L, 901L);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tags", Long.class)).isEqualTo(1);
+    }
+
+    private long tag(String name, long ownerId) {
+        jdbcTemplate.update("INSERT INTO tags (name, normalized_name, owner_id) VALUES (?, ?, ?)", name, name, ownerId);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM tags", Long.class);
+    }
+
+    private long task(String title, boolean completed, long ownerId) {
+        jdbcTemplate.update("INSERT INTO tasks (title, completed, position, owner_id) VALUES (?, ?, 'a0', ?)",
+                title, completed, ownerId);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM tasks", Long.class);
+    }
+
+    private void link(long taskId, long tagId) {
+        jdbcTemplate.update("INSERT INTO task_tags (task_id, tag_id) VALUES (?, ?)", taskId, tagId);
+    }
+
+    private List<Long> linkedTasks(long tagId) {
+        return jdbcTemplate.queryForList("SELECT task_id FROM task_tags WHERE tag_id = ? ORDER BY task_id",
+                Long.class, tagId);
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.taskmanager.resilience;
+
+import com.example.taskmanager.config.BulkheadProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkheadFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void saturatedGroupIsRejectedWhileOtherGroupsStillPass() throws Exception {
+        BulkheadFilter filter = new BulkheadFilter(new BulkheadRegistry(properties(), meterRegistry));
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        List<MockHttpServletResponse> slow = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            slow.add(response);
+            executor.submit(() -> {
+                filter.doFilter(request("GET", "/api/tasks"), response, (req, res) -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                return null;
+            });
+        }
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/api/tasks/1"), rejected, new MockFilterChain());
+        assertThat(rejected.getStatus()).isEqualTo(503);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+
+        // 別グループ・対象外のパスは影響を受けない
+        for (MockHttpServletRequest request : List.of(
+                request("GET", "/api/tags"), request("POST", "/api/tasks"), request("POST", "/api/auth/login"))) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request, response, chain);
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(chain.getRequest()).isSameAs(request);
+        }
+
+        release.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(slow).allSatisfy(response -> assertThat(response.getStatus()).isEqualTo(200));
+        assertThat(meterRegistry.get("bulkhead.rejected").tag("group", "task-read").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("bulkhead.active").tag("group", "task-read").gauge().value()).isZero();
+    }
+
+    @Test
+    void requestRunsUnderGroupDeadline() throws Exception {
+        BulkheadFilter filter = new BulkheadFilter(new BulkheadRegistry(properties(), meterRegistry));
+        long[] remaining = new long[1];
+        FilterChain chain = (req, res) -> remaining[0] = Deadline.remainingMillis();
+
+        filter.doFilter(request("GET", "/api/tags"), new MockHttpServletResponse(), chain);
+
+        assertThat(remaining[0]).isBetween(1L, 3_000L);
+        assertThat(Deadline.isSet()).isFalse();
+    }
+
+    @Test
+    void deadlineExceededBeforeTheControllerBecomes504() throws Exception {
+        BulkheadFilter filter = new BulkheadFilter(new BulkheadRegistry(properties(), meterRegistry));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // 認証フィルターでのユーザーの読み込みが期限切れになった場合
+        filter.doFilter(request("GET", "/api/tasks"), response, (req, res) -> {
+            throw Deadline.exceeded("jdbc");
+        });
+
+        assertThat(response.getStatus()).isEqualTo(504);
+    }
+
+    @Test
+    void nestedDeadlineNeverExtendsOuterOne() {
+        try (Deadline.Scope outer = Deadline.start(Duration.ofSeconds(1))) {
+            try (Deadline.Scope inner = Deadline.start(Duration.ofMinutes(1))) {
+                assertThat(Deadline.remainingMillis()).isLessThanOrEqualTo(1_000);
+            }
+            assertThat(Deadline.isSet()).isTrue();
+        }
+        assertThat(Deadline.isSet()).isFalse();
+        assertThat(Deadline.remainingMillis()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void statementsGetRemainingTimeAsQueryTimeout() throws Exception {
+        Connection target = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(target.prepareStatement(anyString())).thenReturn(statement);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(target);
+        DeadlineDataSource deadlineDataSource = new DeadlineDataSource(dataSource);
+
+        try (Deadline.Scope ignored = Deadline.start(Duration.ofMillis(2_500))) {
+            deadlineDataSource.getConnection().prepareStatement("select 1");
+        }
+        verify(statement).setQueryTimeout(3);
+
+        // 期限がなければ何も設定しない
+        PreparedStatement unlimited = mock(PreparedStatement.class);
+        when(target.prepareStatement(anyString())).thenReturn(unlimited);
+        deadlineDataSource.getConnection().prepareStatement("select 1");
+        verify(unlimited, never()).setQueryTimeout(anyInt());
+    }
+
+    @Test
+    void exhaustedDeadlineFailsBeforeTouchingTheDatabase() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        DeadlineDataSource deadlineDataSource = new DeadlineDataSource(dataSource);
+
+        try (Deadline.Scope ignored = Deadline.start(Duration.ZERO)) {
+            assertThatThrownBy(deadlineDataSource::getConnection).isInstanceOf(SQLTimeoutException.class);
+        }
+        verify(dataSource, never()).getConnection();
+    }
+
+    private static MockHttpServletRequest request(String method, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        return request;
+    }
+
+    private static BulkheadProperties properties() {
+        BulkheadProperties properties = new BulkheadProperties();
+        properties.setGroups(Map.of(
+                "task-read", group(2, 3_000),
+                "task-write", group(2, 3_000),
+                "tags", group(2, 3_000),
+                "auth", group(2, 3_000)));
+        properties.setRoutes(List.of(
+                route("/api/auth/**", List.of(), "auth"),
+                route("/api/tags/**", List.of(), "tags"),
+                route("/api/tasks/**", List.of("GET"), "task-read"),
+                route("/api/tasks/**", List.of(), "task-write")));
+        return properties;
+    }
+
+    private static BulkheadProperties.Group group(int maxConcurrent, long timeoutMillis) {
+        BulkheadProperties.Group group = new BulkheadProperties.Group();
+        group.setMaxConcurrent(maxConcurrent);
+        group.setMaxWait(Duration.ofMillis(50));
+        group.setTimeout(Duration.ofMillis(timeoutMillis));
+        return group;
+    }
+
+    private static BulkheadProperties.Route route(String pattern, List<String> methods, String group) {
+        BulkheadProperties.Route route = new BulkheadProperties.Route();
+        route.setPattern(pattern);
+        route.setMethods(methods);
+        route.setGroup(group);
+        return route;
+    }
+}
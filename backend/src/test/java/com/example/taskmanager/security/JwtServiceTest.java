@@ -0,0 +1,23 @@
+package com.example.taskmanager.security;
+
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtServiceTest {
+
+    @Test
+    void tokenCarriesTheIssueTimeInMilliseconds() {
+        JwtService jwtService = new JwtService();
+        long before = System.currentTimeMillis();
+
+        Claims claims = jwtService.extractClaims(
+                jwtService.generateToken(User.withUsername("alice").password("x").build()));
+
+        long issuedAt = claims.get(JwtService.ISSUED_AT_MILLIS, Number.class).longValue();
+        assertThat(issuedAt).isBetween(before, System.currentTimeMillis());
+        assertThat(claims.getIssuedAt().getTime()).isEqualTo(issuedAt / 1000 * 1000);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.taskmanager.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstUpToCapacityThenReportsWaitTime() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(5, 10 * SECOND, 4, 100);
+        long now = 1_000 * SECOND;
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("alice", now)).isZero();
+        }
+        // 10 秒で 5 トークン = 2 秒に 1 トークン
+        assertThat(limiter.tryAcquire("alice", now)).isEqualTo(2 * SECOND);
+        assertThat(limiter.tryAcquire("bob", now)).isZero();
+        assertThat(limiter.tryAcquire("alice", now + 2 * SECOND)).isZero();
+    }
+
+    @Test
+    void evictsOnlyFullBuckets() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(5, 10 * SECOND, 4, 100);
+        long now = 1_000 * SECOND;
+        limiter.tryAcquire("alice", now);
+        limiter.tryAcquire("bob", now);
+        limiter.tryAcquire("bob", now + 3 * SECOND);
+
+        limiter.evictIdle(now + 3 * SECOND);
+
+        assertThat(limiter.size()).isEqualTo(1);
+    }
+
+    @Test
+    void keysBeyondTheBoundShareAnOverflowBucket() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 10 * SECOND, 1, 4);
+        long now = 1_000 * SECOND;
+        int rejected = 0;
+        for (int i = 0; i < 100; i++) {
+            if (limiter.tryAcquire("ip:" + i, now) > 0) {
+                rejected++;
+            }
+        }
+
+        assertThat(limiter.size()).isLessThanOrEqualTo(4);
+        assertThat(rejected).isGreaterThan(90);
+    }
+
+    @Test
+    void fullStripeIsScannedAtMostOncePerInterval() {
+        long milli = SECOND / 1_000;
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, milli, 1, 4);
+        long now = 1_000 * SECOND;
+        acquired(limiter, "old:", now);
+
+        // 古いバケットはもう満杯に戻っているが、直前に走査したので追い出さず共有のバケットへ回す
+        assertThat(acquired(limiter, "new:", now + 10 * milli)).isLessThanOrEqualTo(2);
+        assertThat(acquired(limiter, "late:", now + 2 * SECOND)).isGreaterThanOrEqualTo(4);
+        assertThat(limiter.size()).isLessThanOrEqualTo(4);
+    }
+
+    private static int acquired(TokenBucketRateLimiter limiter, String prefix, long now) {
+        int acquired = 0;
+        for (int i = 0; i < 100; i++) {
+            if (limiter.tryAcquire(prefix + i, now) == 0) {
+                acquired++;
+            }
+        }
+        return acquired;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.taskmanager.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenDenylistTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Test
+    void reportsOnlyRevokedTokensEvenPastTheExpectedCount() {
+        TokenDenylist denylist = new TokenDenylist(HOUR, DAY, 100, 0.01);
+        long expiresAt = 10 * HOUR + 123;
+        List<UUID> revoked = new ArrayList<>();
+        // 想定件数の 50 倍入れても、正確な集合で偽陽性は落ちる
+        for (int i = 0; i < 5_000; i++) {
+            UUID id = UUID.randomUUID();
+            revoked.add(id);
+            denylist.revoke(id, expiresAt);
+        }
+        denylist.revoke(revoked.get(0), expiresAt);
+
+        assertThat(revoked).allMatch(id -> denylist.isRevoked(id, expiresAt, "alice", 0));
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(denylist.isRevoked(UUID.randomUUID(), expiresAt, "alice", 0)).isFalse();
+        }
+        assertThat(denylist.size()).isEqualTo(5_000);
+    }
+
+    @Test
+    void dropsWindowsOnceTheirTokensHaveExpired() {
+        TokenDenylist denylist = new TokenDenylist(HOUR, DAY, 100, 0.01);
+        UUID early = UUID.randomUUID();
+        UUID late = UUID.randomUUID();
+        denylist.revoke(early, 2 * HOUR + 10);
+        denylist.revoke(late, 5 * HOUR + 10);
+
+        denylist.purgeExpired(3 * HOUR);
+
+        assertThat(denylist.windowCount()).isEqualTo(1);
+        assertThat(denylist.isRevoked(early, 2 * HOUR + 10, "alice", 0)).isFalse();
+        assertThat(denylist.isRevoked(late, 5 * HOUR + 10, "alice", 0)).isTrue();
+    }
+
+    @Test
+    void revokesEveryTokenIssuedUpToTheCutoff() {
+        TokenDenylist denylist = new TokenDenylist(HOUR, DAY, 100, 0.01);
+        denylist.revokeIssuedBefore("alice", 1_000_500);
+
+        assertThat(denylist.isRevoked(UUID.randomUUID(), DAY, "alice", 999_999)).isTrue();
+        assertThat(denylist.isRevoked(null, DAY, "alice", 1_000_500)).isTrue();
+        // 同じ秒のうちにログインし直して発行されたトークンは有効
+        assertThat(denylist.isRevoked(null, DAY, "alice", 1_000_501)).isFalse();
+        assertThat(denylist.isRevoked(null, DAY, "bob", 999_999)).isFalse();
+
+        // 最後に発行されうるトークンも期限切れになったら捨てる
+        denylist.purgeExpired(1_000_500 + DAY + 1);
+        assertThat(denylist.isRevoked(null, DAY, "alice", 999_999)).isFalse();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.taskmanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FractionalIndexTest {
+
+    @Test
+    void keysSortBetweenTheirNeighbours() {
+        assertThat(FractionalIndex.between(null, null)).isEqualTo("V");
+        assertThat(FractionalIndex.between("A", "C")).isEqualTo("B");
+        assertThat(FractionalIndex.between("A", "B")).isEqualTo("AV");
+        assertThat(FractionalIndex.between("A", "B1")).isEqualTo("B");
+        assertThat(FractionalIndex.between("0001V", "0001W")).isEqualTo("0001VV");
+        assertThat(FractionalIndex.between("z", null)).isEqualTo("z1");
+        assertThat(FractionalIndex.between(null, "1")).isEqualTo("0z");
+        assertThat(FractionalIndex.between(null, "01")).isEqualTo("00z");
+    }
+
+    @Test
+    void randomInsertionsKeepOrder() {
+        Random random = new Random(1);
+        List<String> keys = new ArrayList<>(List.of(FractionalIndex.between(null, null)));
+        for (int i = 0; i < 5_000; i++) {
+            int slot = random.nextInt(keys.size() + 1);
+            String key = FractionalIndex.between(slot > 0 ? keys.get(slot - 1) : null,
+                    slot < keys.size() ? keys.get(slot) : null);
+            assertThat(FractionalIndex.isValid(key)).isTrue();
+            keys.add(slot, key);
+        }
+        assertThat(keys).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void appendingGrowsKeysSlowly() {
+        String key = "0000001V";
+        for (int i = 0; i < 1_000; i++) {
+            key = FractionalIndex.between(key, null);
+        }
+        assertThat(key.length()).isLessThanOrEqualTo(18);
+    }
+
+    @Test
+    void rejectsInvalidOrUnorderedKeys() {
+        assertThatThrownBy(() -> FractionalIndex.between("B", "A")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FractionalIndex.between("A", "A")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FractionalIndex.between("A0", null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FractionalIndex.between("a-b", null)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
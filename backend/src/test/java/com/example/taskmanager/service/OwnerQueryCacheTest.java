@@ -0,0 +1,84 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dto.TagDTO;
+import com.example.taskmanager.history.HistoryLog;
+import com.example.taskmanager.model.Task;
+import com.example.taskmanager.repository.TagLinkRepository;
+import com.example.taskmanager.repository.TaskHierarchyRepository;
+import com.example.taskmanager.sharding.ShardContext;
+import com.example.taskmanager.support.TestCachedJpaConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * クエリキャッシュを有効にした状態で、一覧が所有者ごとに分かれること。
+ */
+class OwnerQueryCacheTest {
+
+    private static final long ALICE = 1;
+    private static final long BOB = 2;
+
+    private AnnotationConfigApplicationContext context;
+    private TaskService taskService;
+    private TagService tagService;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.register(TestCachedJpaConfig.class, TaskService.class, TaskRebalancer.class, SchedulerLease.class,
+                TaskHierarchyRepository.class, TagService.class, TagLinkRepository.class);
+        context.registerBean(HistoryLog.class, () -> mock(HistoryLog.class));
+        context.registerBean(TagSuggestIndex.class, () -> mock(TagSuggestIndex.class));
+        context.refresh();
+        taskService = context.getBean(TaskService.class);
+        tagService = context.getBean(TagService.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO tasks (title, completed, position, owner_id) VALUES "
+                + "('alice-secret', 0, 'a0', ?), ('bob-task', 0, 'a1', ?)", ALICE, BOB);
+        jdbcTemplate.update("INSERT INTO tags (name, normalized_name, owner_id) VALUES "
+                + "('alice-tag', 'alice-tag', ?), ('bob-tag', 'bob-tag', ?)", ALICE, BOB);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void cachedTaskListIsNotSharedBetweenOwners() {
+        assertThat(tasksOf(ALICE)).containsExactly("alice-secret");
+        assertThat(tasksOf(BOB)).containsExactly("bob-task");
+        assertThat(taskService.getAllTasks()).extracting(Task::getTitle)
+                .containsExactlyInAnyOrder("alice-secret", "bob-task");
+        assertThat(tasksOf(ALICE)).containsExactly("alice-secret");
+    }
+
+    @Test
+    void cachedTagListIsNotSharedBetweenOwners() {
+        assertThat(tagsOf(ALICE)).containsExactly("alice-tag");
+        assertThat(tagsOf(BOB)).containsExactly("bob-tag");
+        assertThat(tagService.getAllTags()).extracting(TagDTO::getName)
+                .containsExactlyInAnyOrder("alice-tag", "bob-tag");
+    }
+
+    private List<String> tasksOf(long owner) {
+        try (ShardContext.Scope ignored = ShardContext.bind(ShardContext.DIRECTORY, owner)) {
+            return taskService.getAllTasks().stream().map(Task::getTitle).toList();
+        }
+    }
+
+    private List<String> tagsOf(long owner) {
+        try (ShardContext.Scope ignored = ShardContext.bind(ShardContext.DIRECTORY, owner)) {
+            return tagService.getAllTags().stream().map(TagDTO::getName).toList();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.ClusterCacheInvalidator;
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.history.HistoryLog;
+import com.example.taskmanager.repository.TaskRepository;
+import com.example.taskmanager.repository.TaskSeriesRepository;
+import com.example.taskmanager.sharding.ShardDirectory;
+import com.example.taskmanager.sharding.ShardTemplate;
+import com.example.taskmanager.support.TestJpaConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecurringTaskServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2026, 1, 1);
+
+    private AnnotationConfigApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private RecurringTaskService service;
+    private long seriesId;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext(TestJpaConfig.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        service = new RecurringTaskService(context.getBean(TaskSeriesRepository.class),
+                context.getBean(TaskRepository.class), mock(TaskService.class), 100);
+
+        jdbcTemplate.update("INSERT INTO task_series (title, frequency, interval_count, start_date, owner_id) "
+                + "VALUES ('standup', 'DAILY', 1, ?, 1)", START);
+        seriesId = jdbcTemplate.queryForObject("SELECT id FROM task_series", Long.class);
+        // 1日目の回を完了させて実体化したもの。完了から 60 日たっている
+        jdbcTemplate.update("INSERT INTO tasks (title, completed, completed_at, due_date, series_id, occurrence_date, "
+                + "position, owner_id) VALUES ('standup', 1, NOW(6) - INTERVAL 60 DAY, ?, ?, ?, 'a0', 1)",
+                START, seriesId, START);
+        jdbcTemplate.update("INSERT INTO task_closure (ancestor_id, descendant_id, depth) SELECT id, id, 0 FROM tasks");
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void archivedOccurrenceIsNotExpandedAgain() {
+        newArchiver().run();
+
+        assertThat(jdbcTemplate.queryForList("SELECT occurrence_date FROM tasks_archive WHERE series_id = ?",
+                LocalDate.class, seriesId)).containsExactly(START);
+        List<TaskDTO> tasks = service.getTasksBetween(START, START.plusDays(1));
+        assertThat(tasks).extracting(dto -> dto.occurrenceDate).containsExactly(START.plusDays(1).toString());
+        assertThat(tasks.get(0).id).isNull();
+
+        // 切り替え（実体化）で同じ回が未完了のタスクとして作り直されない
+        assertThat(service.materialize(seriesId, START)).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tasks", Long.class)).isZero();
+    }
+
+    private TaskArchiver newArchiver() {
+        ShardDirectory directory = mock(ShardDirectory.class);
+        when(directory.shardCount()).thenReturn(1);
+        TaskArchiver archiver = new TaskArchiver(context.getBean(NamedParameterJdbcTemplate.class),
+                context.getBean(TransactionTemplate.class), new SchedulerLease(jdbcTemplate),
+                context.getBean(ClusterCacheInvalidator.class), mock(HistoryLog.class), new ShardTemplate(directory));
+        ReflectionTestUtils.setField(archiver, "maxAge", Duration.ofDays(30));
+        ReflectionTestUtils.setField(archiver, "batchSize", 200);
+        ReflectionTestUtils.setField(archiver, "maxBatchesPerRun", 10);
+        return archiver;
+    }
+}
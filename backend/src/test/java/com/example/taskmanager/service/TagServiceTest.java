@@ -0,0 +1,107 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dto.TagBulkResultDTO;
+import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.history.HistoryLog;
+import com.example.taskmanager.repository.TagLinkRepository;
+import com.example.taskmanager.sharding.ShardContext;
+import com.example.taskmanager.support.TestJpaConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class TagServiceTest {
+
+    private AnnotationConfigApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private TagService tagService;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.register(TestJpaConfig.class, TagService.class, TagLinkRepository.class);
+        context.registerBean(HistoryLog.class, () -> mock(HistoryLog.class));
+        context.registerBean(TagSuggestIndex.class, () -> mock(TagSuggestIndex.class));
+        context.refresh();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        tagService = context.getBean(TagService.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void bulkAssignIsLimitedToTheCurrentOwner() {
+        long tag = tag("work", 1);
+        long mine = task("mine", 1);
+        long alreadyTagged = task("already tagged", 1);
+        task("others", 2);
+        jdbcTemplate.update("INSERT INTO task_tags (task_id, tag_id) VALUES (?, ?)", alreadyTagged, tag);
+
+        TagBulkResultDTO result;
+        try (ShardContext.Scope ignored = ShardContext.bind(ShardContext.DIRECTORY, 1L)) {
+            result = tagService.assignTag(tag, new TaskFilterDTO());
+        }
+
+        assertThat(result.linksAdded).isEqualTo(1);
+        assertThat(linkedTasks(tag)).containsExactly(mine, alreadyTagged);
+    }
+
+    @Test
+    void tagOfAnotherOwnerIsNotFound() {
+        long tag = tag("work", 2);
+        task("mine", 1);
+
+        try (ShardContext.Scope ignored = ShardContext.bind(ShardContext.DIRECTORY, 1L)) {
+            assertThat(tagService.assignTag(tag, new TaskFilterDTO())).isNull();
+            assertThat(tagService.mergeTag(tag, tag("home", 1))).isNull();
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM task_tags", Long.class)).isZero();
+    }
+
+    @Test
+    void mergeReportsTheChangedRows() {
+        long source = tag("Work", 1);
+        long target = tag("work", 1);
+        long both = task("both", 1);
+        long sourceOnly = task("source only", 1);
+        jdbcTemplate.update("INSERT INTO task_tags (task_id, tag_id) VALUES (?, ?), (?, ?), (?, ?)",
+                both, source, both, target, sourceOnly, source);
+
+        TagBulkResultDTO result;
+        try (ShardContext.Scope ignored = ShardContext.bind(ShardContext.DIRECTORY, 1L)) {
+            result = tagService.mergeTag(source, target);
+        }
+
+        assertThat(result.linksAdded).isEqualTo(1);
+        assertThat(result.linksRemoved).isEqualTo(2);
+        assertThat(result.archivedLinksRemoved).isZero();
+        assertThat(result.tagsDeleted).isEqualTo(1);
+        assertThat(linkedTasks(target)).containsExactly(both, sourceOnly);
+    }
+
+    private long tag(String name, long ownerId) {
+        jdbcTemplate.update("INSERT INTO tags (name, normalized_name, owner_id) VALUES (?, ?, ?)", name, name, ownerId);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM tags", Long.class);
+    }
+
+    private long task(String title, long ownerId) {
+        jdbcTemplate.update("INSERT INTO tasks (title, completed, position, owner_id) VALUES (?, 0, 'a0', ?)",
+                title, ownerId);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM tasks", Long.class);
+    }
+
+    private List<Long> linkedTasks(long tagId) {
+        return jdbcTemplate.queryForList("SELECT task_id FROM task_tags WHERE tag_id = ? ORDER BY task_id",
+                Long.class, tagId);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dto.TagDTO;
+import com.example.taskmanager.model.Tag;
+import com.example.taskmanager.sharding.ShardTemplate;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class TagSuggestIndexTest {
+
+    private static final long OWNER = 1;
+
+    private final TagSuggestIndex index = new TagSuggestIndex(mock(JdbcTemplate.class), mock(ShardTemplate.class));
+
+    @Test
+    void ranksPrefixMatchesByUsageIgnoringCase() {
+        index.load(List.of(
+                usage(1, "Work", 3),
+                usage(2, "workout", 10),
+                usage(3, "Worship", 3),
+                usage(4, "home", 50)));
+
+        assertThat(names(index.suggest(OWNER, "  WOR", 10))).containsExactly("workout", "Work", "Worship");
+        assertThat(names(index.suggest(OWNER, "wor", 2))).containsExactly("workout", "Work");
+        assertThat(index.suggest(OWNER, "x", 10)).isEmpty();
+        assertThat(index.suggest(OWNER, " ", 10)).isEmpty();
+    }
+
+    @Test
+    void onlySuggestsTheOwnersTags() {
+        index.load(List.of(
+                usage(1, "work", 3),
+                new TagSuggestIndex.Usage(2, 12, "workout", "workout", 10),
+                new TagSuggestIndex.Usage(3, 2, "work", "work", 7)));
+        index.put(tag(4, 12, "Workshop"));
+
+        assertThat(names(index.suggest(OWNER, "wor", 10))).containsExactly("work");
+        assertThat(names(index.suggest(12, "wor", 10))).containsExactly("workout", "Workshop");
+        assertThat(index.suggest(3, "wor", 10)).isEmpty();
+    }
+
+    @Test
+    void localChangesAreVisibleUntilNextRebuild() {
+        index.load(List.of(usage(1, "work", 3), usage(2, "home", 5)));
+
+        index.put(tag(3, OWNER, "Workshop"));
+        index.put(tag(2, OWNER, "Workflow"));
+        index.remove(1);
+
+        // 名前を変えても使用数は引き継ぐ
+        assertThat(names(index.suggest(OWNER, "work", 10))).containsExactly("Workflow", "Workshop");
+        assertThat(index.suggest(OWNER, "home", 10)).isEmpty();
+
+        index.load(List.of(usage(2, "Workflow", 5), usage(3, "Workshop", 0)));
+        assertThat(names(index.suggest(OWNER, "work", 10))).containsExactly("Workflow", "Workshop");
+    }
+
+    private static TagSuggestIndex.Usage usage(long id, String name, int usage) {
+        return new TagSuggestIndex.Usage(id, OWNER, Tag.normalize(name), name, usage);
+    }
+
+    private static Tag tag(long id, long ownerId, String name) {
+        Tag tag = new Tag();
+        tag.setId(id);
+        tag.setOwnerId(ownerId);
+        tag.setName(name);
+        return tag;
+    }
+
+    private static List<String> names(List<TagDTO> tags) {
+        return tags.stream().map(TagDTO::getName).toList();
+    }
+}
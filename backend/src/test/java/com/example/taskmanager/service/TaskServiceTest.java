@@ -0,0 +1,131 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.ClusterCacheInvalidator;
+import com.example.taskmanager.history.HistoryLog;
+import com.example.taskmanager.model.Task;
+import com.example.taskmanager.repository.TaskHierarchyRepository;
+import com.example.taskmanager.support.TestJpaConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class TaskServiceTest {
+
+    private AnnotationConfigApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private TaskService taskService;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.register(TestJpaConfig.class, TaskService.class, TaskRebalancer.class, SchedulerLease.class,
+                TaskHierarchyRepository.class);
+        context.registerBean(HistoryLog.class, () -> mock(HistoryLog.class));
+        context.refresh();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        taskService = context.getBean(TaskService.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void moveBetweenCollidingKeysIsRejectedUntilTheBackgroundRebalanceRuns() throws InterruptedException {
+        long a = insert("a", "U");
+        // 同時に末尾へ追加されて同じキーになった2件
+        long b = insert("b", "W");
+        long c = insert("c", "W");
+
+        assertThatThrownBy(() -> taskService.reorderTask(a, b, null))
+                .isInstanceOf(PositionConflictException.class);
+        assertThat(titlesInOrder()).containsExactly("a", "b", "c");
+
+        // 振り直しはリクエストのトランザクションの外で行われる
+        for (int i = 0; i < 100 && position(b).equals(position(c)); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(position(b)).isLessThan(position(c));
+
+        assertThat(taskService.reorderTask(a, b, null)).isPresent();
+        assertThat(titlesInOrder()).containsExactly("b", "a", "c");
+    }
+
+    @Test
+    void moveWaitsForAConcurrentMoveOfTheNeighbour() throws Exception {
+        long x = insert("x", "1");
+        long y = insert("y", "3");
+        long a = insert("a", "9");
+        TransactionTemplate transactionTemplate = context.getBean(TransactionTemplate.class);
+        CountDownLatch moved = new CountDownLatch(1);
+        // 別のトランザクションが y を x の直後へ動かし、少し遅れてコミットする
+        Thread other = new Thread(() -> transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE tasks SET position = '15' WHERE id = ?", y);
+            moved.countDown();
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        other.start();
+        moved.await();
+
+        assertThat(taskService.reorderTask(a, x, null)).isPresent();
+        other.join();
+
+        // 古い y のキーを読んでいれば a は y の後ろになる
+        assertThat(titlesInOrder()).containsExactly("x", "a", "y");
+    }
+
+    @Test
+    void deletingASubtreeAndRebalancingNotifyOnlyTheChangedTasks() {
+        ClusterCacheInvalidator cacheInvalidator = context.getBean(ClusterCacheInvalidator.class);
+        TaskHierarchyRepository hierarchy = context.getBean(TaskHierarchyRepository.class);
+        long a = insert("a", "0000001V");
+        long b = insert("b", "W");
+        long c = insert("c", "X");
+        long child = insert("child", "Y");
+        hierarchy.insertNode(a, null);
+        hierarchy.insertNode(b, null);
+        hierarchy.insertNode(c, null);
+        hierarchy.insertNode(child, c);
+
+        taskService.deleteTask(c);
+        verify(cacheInvalidator).invalidateAll(Task.class, List.of(c, child));
+
+        // a のキーはすでに振り直し後と同じ
+        assertThat(context.getBean(TaskRebalancer.class).rebalance()).isEqualTo(1);
+        verify(cacheInvalidator).invalidateAll(Task.class, List.of(b));
+        verify(cacheInvalidator, never()).invalidate(eq(Task.class), any());
+    }
+
+    private long insert(String title, String position) {
+        jdbcTemplate.update("INSERT INTO tasks (title, completed, position, owner_id) VALUES (?, 0, ?, 1)",
+                title, position);
+        return jdbcTemplate.queryForObject("SELECT id FROM tasks WHERE title = ?", Long.class, title);
+    }
+
+    private List<String> titlesInOrder() {
+        return jdbcTemplate.queryForList("SELECT title FROM tasks ORDER BY position, id", String.class);
+    }
+
+    private String position(long id) {
+        return jdbcTemplate.queryForObject("SELECT position FROM tasks WHERE id = ?", String.class, id);
+    }
+}
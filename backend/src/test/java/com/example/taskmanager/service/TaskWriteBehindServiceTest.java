@@ -0,0 +1,222 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.ClusterCacheInvalidator;
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.history.HistoryLog;
+import com.example.taskmanager.model.Task;
+import com.example.taskmanager.repository.TaskCompletionRepository;
+import com.example.taskmanager.sharding.ShardContext;
+import com.example.taskmanager.sharding.ShardDirectory;
+import com.example.taskmanager.sharding.ShardTemplate;
+import com.example.taskmanager.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TaskWriteBehindServiceTest {
+
+    private final TaskService taskService = mock(TaskService.class);
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final RabbitOperations operations = mock(RabbitOperations.class);
+    private final List<String> queue = new ArrayList<>();
+    private TestDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private long taskId;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create();
+        jdbcTemplate = database.jdbcTemplate();
+        jdbcTemplate.update("INSERT INTO tasks (title, completed, position, owner_id) VALUES ('write report', 0, 'a0', 1)");
+        taskId = jdbcTemplate.queryForObject("SELECT id FROM tasks", Long.class);
+
+        // TaskService と同じく、所有者が設定されていればその人のタスクしか返さない
+        when(taskService.getTaskById(taskId)).thenAnswer(invocation ->
+                ShardContext.canSee(1L) ? Optional.of(load()) : Optional.empty());
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(operations));
+        doAnswer(invocation -> queue.add(invocation.getArgument(2)))
+                .when(operations).convertAndSend(eq(""), eq(TaskWriteBehindService.QUEUE), anyString());
+    }
+
+    @Test
+    void burstOfTogglesBecomesOneSelectAndOneUpdate() {
+        TaskWriteBehindService service = newNode();
+        for (int i = 0; i < 51; i++) {
+            assertThat(service.toggle(taskId)).get().extracting(Task::isCompleted).isEqualTo(i % 2 == 0);
+        }
+        verify(operations, times(51)).waitForConfirmsOrDie(anyLong());
+
+        long updates = updateStatements();
+        service.applyBatch(queue);
+
+        verify(taskService, times(1)).getTaskById(taskId);
+        assertThat(updateStatements() - updates).isEqualTo(1);
+        Map<String, Object> row = row();
+        assertThat(row.get("completed")).isEqualTo(true);
+        assertThat(row.get("completed_at")).isNotNull();
+        assertThat(row.get("position")).isEqualTo("a0");
+    }
+
+    @Test
+    void evenNumberOfTogglesDoesNotTouchTheRow() {
+        TaskWriteBehindService service = newNode();
+        service.toggle(taskId);
+        service.toggle(taskId);
+
+        long updates = updateStatements();
+        service.applyBatch(queue);
+
+        assertThat(updateStatements() - updates).isZero();
+        assertThat(row().get("completed")).isEqualTo(false);
+    }
+
+    @Test
+    void togglesFromTwoNodesDoNotOverwriteEachOther() {
+        // どちらのノードも未完了の状態を見て切り替える
+        TaskWriteBehindService first = newNode();
+        TaskWriteBehindService second = newNode();
+        assertThat(first.toggle(taskId)).get().extracting(Task::isCompleted).isEqualTo(true);
+        first.applyBatch(List.copyOf(queue));
+        queue.clear();
+        when(taskService.getTaskById(taskId)).thenAnswer(invocation -> Optional.of(stale()));
+        assertThat(second.toggle(taskId)).get().extracting(Task::isCompleted).isEqualTo(true);
+
+        second.applyBatch(queue);
+
+        // 2回反転したので元に戻る（値を送っていれば true のまま）
+        Map<String, Object> row = row();
+        assertThat(row.get("completed")).isEqualTo(false);
+        assertThat(row.get("completed_at")).isNull();
+    }
+
+    @Test
+    void redeliveredBatchIsNotAppliedTwice() {
+        TaskWriteBehindService service = newNode();
+        service.toggle(taskId);
+        service.applyBatch(queue);
+
+        // 別のシャードで失敗した、または ack の前に止まったバッチが再配送される
+        long updates = updateStatements();
+        service.applyBatch(queue);
+
+        assertThat(updateStatements() - updates).isZero();
+        assertThat(row().get("completed")).isEqualTo(true);
+    }
+
+    @Test
+    void duplicateInTheSameBatchIsAppliedOnce() {
+        TaskWriteBehindService service = newNode();
+        service.toggle(taskId);
+
+        service.applyBatch(List.of(queue.get(0), queue.get(0)));
+
+        assertThat(row().get("completed")).isEqualTo(true);
+    }
+
+    @Test
+    void appliedRecordsArePurgedAfterTheRetention() {
+        TaskWriteBehindService service = newNode();
+        service.toggle(taskId);
+        service.applyBatch(queue);
+        jdbcTemplate.update("UPDATE task_writes_applied SET applied_at = NOW(6) - INTERVAL 2 DAY");
+
+        service.purgeApplied();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM task_writes_applied", Long.class)).isZero();
+    }
+
+    @Test
+    void messagesInTheOldFormatStillSetTheValue() {
+        newNode().applyBatch(List.of(taskId + ",true,1", taskId + ",false,2,0", taskId + ",true,3,0"));
+
+        assertThat(row().get("completed")).isEqualTo(true);
+    }
+
+    @Test
+    void pendingStateIsVisibleUntilApplied() {
+        TaskWriteBehindService service = newNode();
+        service.toggle(taskId);
+        TaskDTO dto = new TaskDTO();
+        dto.id = taskId;
+
+        assertThat(service.applyPending(dto).completed).isTrue();
+
+        service.applyBatch(queue);
+        dto.completed = false;
+        assertThat(service.applyPending(dto).completed).isFalse();
+    }
+
+    @Test
+    void pendingTaskOfAnotherOwnerIsNotToggled() {
+        TaskWriteBehindService service = newNode();
+        try (ShardContext.Scope ignored = ShardContext.bind(ShardContext.DIRECTORY, 1L)) {
+            service.toggle(taskId);
+        }
+
+        try (ShardContext.Scope ignored = ShardContext.bind(ShardContext.DIRECTORY, 2L)) {
+            assertThat(service.toggle(taskId)).isEmpty();
+        }
+        assertThat(queue).hasSize(1);
+    }
+
+    @Test
+    void unknownTaskIsNotQueued() {
+        assertThat(newNode().toggle(taskId + 1)).isEmpty();
+        assertThat(queue).isEmpty();
+    }
+
+    private TaskWriteBehindService newNode() {
+        ShardDirectory directory = mock(ShardDirectory.class);
+        when(directory.shardCount()).thenReturn(1);
+        return new TaskWriteBehindService(taskService, new TaskCompletionRepository(database.namedJdbcTemplate()),
+                rabbitTemplate, database.transactionTemplate(), mock(ClusterCacheInvalidator.class), mock(HistoryLog.class),
+                new SchedulerLease(jdbcTemplate), new ShardTemplate(directory));
+    }
+
+    private Task load() {
+        Task task = new Task();
+        task.setId(taskId);
+        task.setTitle("write report");
+        task.setPosition("a0");
+        task.setOwnerId(1L);
+        task.setCompleted(Boolean.TRUE.equals(row().get("completed")));
+        return task;
+    }
+
+    private Task stale() {
+        Task task = new Task();
+        task.setId(taskId);
+        task.setTitle("write report");
+        task.setPosition("a0");
+        task.setOwnerId(1L);
+        return task;
+    }
+
+    private Map<String, Object> row() {
+        return jdbcTemplate.queryForMap("SELECT completed, completed_at, position FROM tasks WHERE id = ?", taskId);
+    }
+
+    // サーバー全体の UPDATE 文の実行回数
+    private long updateStatements() {
+        return jdbcTemplate.queryForObject("SHOW GLOBAL STATUS LIKE 'Com_update'", (rs, rowNum) -> rs.getLong(2));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.taskmanager.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JumpConsistentHashTest {
+
+    private static final int USERS = 100_000;
+
+    @Test
+    void spreadsUsersEvenly() {
+        int[] counts = new int[4];
+        for (long user = 1; user <= USERS; user++) {
+            counts[JumpConsistentHash.bucket(user, counts.length)]++;
+        }
+        for (int count : counts) {
+            assertThat(count).isBetween(USERS / 4 * 95 / 100, USERS / 4 * 105 / 100);
+        }
+    }
+
+    @Test
+    void addingAShardOnlyMovesUsersToTheNewShard() {
+        int moved = 0;
+        for (long user = 1; user <= USERS; user++) {
+            int before = JumpConsistentHash.bucket(user, 3);
+            int after = JumpConsistentHash.bucket(user, 4);
+            if (before != after) {
+                assertThat(after).isEqualTo(3);
+                moved++;
+            }
+        }
+        // 約 1/4
+        assertThat(moved).isBetween(USERS / 4 * 95 / 100, USERS / 4 * 105 / 100);
+    }
+
+    @Test
+    void singleShardAlwaysMapsToZero() {
+        assertThat(JumpConsistentHash.bucket(42, 1)).isZero();
+        assertThat(JumpConsistentHash.bucket(Long.MAX_VALUE, 1)).isZero();
+        assertThatThrownBy(() -> JumpConsistentHash.bucket(1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void bindingIsRestoredWhenScopeCloses() {
+        try (ShardContext.Scope outer = ShardContext.bind(2, 7L)) {
+            try (ShardContext.Scope inner = ShardContext.bind(1, null)) {
+                assertThat(ShardContext.currentShard()).isEqualTo(1);
+                assertThat(ShardContext.canSee(8L)).isTrue();
+            }
+            assertThat(ShardContext.currentShard()).isEqualTo(2);
+            assertThat(ShardContext.canSee(7L)).isTrue();
+            assertThat(ShardContext.canSee(8L)).isFalse();
+            assertThat(new OwnerIdResolver().get()).isEqualTo(7L);
+        }
+        assertThat(ShardContext.currentShard()).isEqualTo(ShardContext.DIRECTORY);
+        assertThat(new OwnerIdResolver().get()).isEqualTo(-1L);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.taskmanager.sharding;
+
+import com.example.taskmanager.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardDirectoryTest {
+
+    private static final int USERS = 200;
+
+    private DataSource directory;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase database = TestDatabase.create();
+        directory = database.dataSource();
+        jdbcTemplate = database.jdbcTemplate();
+        for (int i = 1; i <= USERS; i++) {
+            jdbcTemplate.update("INSERT INTO users (username, password) VALUES (?, 'x')", "user" + i);
+        }
+    }
+
+    @Test
+    void enablingShardingKeepsExistingUsersOnShardZero() {
+        ShardDirectory.pinExistingUsers(directory, 3);
+
+        List<Long> users = jdbcTemplate.queryForList("SELECT id FROM users", Long.class);
+        Map<Long, Integer> pinned = pins();
+        for (long user : users) {
+            assertThat(pinned.getOrDefault(user, JumpConsistentHash.bucket(user, 3))).isZero();
+        }
+        // ハッシュが 0 のままのユーザーは記録しない
+        assertThat(pinned).hasSizeLessThan(users.size());
+        assertThat(jdbcTemplate.queryForObject("SELECT shard_count FROM shard_layout", Integer.class)).isEqualTo(3);
+    }
+
+    @Test
+    void addingAShardKeepsUsersWhereTheyWereAndIsDoneOnce() {
+        ShardDirectory.pinExistingUsers(directory, 2);
+        jdbcTemplate.update("INSERT INTO users (username, password) VALUES ('late', 'x')");
+        Map<Long, Integer> before = assignments(2);
+
+        ShardDirectory.pinExistingUsers(directory, 3);
+        int pinned = pins().size();
+        ShardDirectory.pinExistingUsers(directory, 3);
+
+        assertThat(assignments(3)).isEqualTo(before);
+        assertThat(pins()).hasSize(pinned);
+    }
+
+    @Test
+    void reducingTheShardCountRefusesToStart() {
+        ShardDirectory.pinExistingUsers(directory, 3);
+
+        assertThatThrownBy(() -> ShardDirectory.pinExistingUsers(directory, 2))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(jdbcTemplate.queryForObject("SELECT shard_count FROM shard_layout", Integer.class)).isEqualTo(3);
+    }
+
+    // user_shards の記録があればそれ、なければ shardCount でのハッシュ
+    private Map<Long, Integer> assignments(int shardCount) {
+        Map<Long, Integer> pinned = pins();
+        Map<Long, Integer> result = new HashMap<>();
+        for (long user : jdbcTemplate.queryForList("SELECT id FROM users", Long.class)) {
+            result.put(user, pinned.getOrDefault(user, JumpConsistentHash.bucket(user, shardCount)));
+        }
+        return result;
+    }
+
+    private Map<Long, Integer> pins() {
+        Map<Long, Integer> pinned = new HashMap<>();
+        jdbcTemplate.query("SELECT user_id, shard FROM user_shards",
+                rs -> { pinned.put(rs.getLong("user_id"), rs.getInt("shard")); });
+        return pinned;
+    }
+}
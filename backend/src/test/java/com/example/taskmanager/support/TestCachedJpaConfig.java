@@ -0,0 +1,26 @@
+package com.example.taskmanager.support;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+/**
+ * {@link TestJpaConfig} に、アプリと同じ二次キャッシュとクエリキャッシュ（ehcache.xml）を加えた構成。
+ */
+@Configuration
+public class TestCachedJpaConfig extends TestJpaConfig {
+
+    @Override
+    protected Map<String, Object> jpaProperties(ConfigurableListableBeanFactory beanFactory) {
+        Map<String, Object> properties = super.jpaProperties(beanFactory);
+        properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+        properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+        properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+        properties.put("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider");
+        // classpath: の URI は Spring Boot が解決するので、ここではファイルの URL を渡す
+        properties.put("hibernate.javax.cache.uri", TestCachedJpaConfig.class.getResource("/ehcache.xml").toString());
+        return properties;
+    }
+}
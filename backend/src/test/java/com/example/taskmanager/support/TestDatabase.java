@@ -0,0 +1,78 @@
+package com.example.taskmanager.support;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SQL を確かめるテスト用の組み込み MariaDB。プロセスは JVM で1つだけ起動し、{@link #create()} のたびに
+ * Flyway のマイグレーションを当てた新しいデータベースを作る。
+ */
+public final class TestDatabase {
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+    private static DB db;
+    private static int port;
+
+    private final DataSource dataSource;
+
+    private TestDatabase(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public static TestDatabase create() {
+        String name = "taskdb_" + COUNTER.incrementAndGet();
+        // DB#createDB は mariadb クライアントを起動するので、JDBC で作る
+        new JdbcTemplate(dataSource("")).execute("CREATE DATABASE " + name);
+        DriverManagerDataSource dataSource = dataSource(name);
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        return new TestDatabase(dataSource);
+    }
+
+    private static DriverManagerDataSource dataSource(String name) {
+        try {
+            server();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to start the embedded database", e);
+        }
+        return new DriverManagerDataSource(
+                "jdbc:mysql://localhost:" + port + "/" + name + "?serverTimezone=UTC", "root", "");
+    }
+
+    private static synchronized DB server() throws Exception {
+        if (db == null) {
+            DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+            config.setPort(0);
+            // root で動かすテスト環境のため
+            config.addArg("--user=root");
+            db = DB.newEmbeddedDB(config.build());
+            db.start();
+            port = db.getConfiguration().getPort();
+        }
+        return db;
+    }
+
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    public JdbcTemplate jdbcTemplate() {
+        return new JdbcTemplate(dataSource);
+    }
+
+    public NamedParameterJdbcTemplate namedJdbcTemplate() {
+        return new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    public TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+}
@@ -1,6 +1,6 @@
 // src/AuthContext.tsx
 import React, { createContext, useState, useEffect } from 'react';
-import { validateToken } from './api';
+import { revokeToken, validateToken } from './api';
 
 type AuthContextType = {
   authToken: string | null;
@@ -41,6 +41,9 @@ export const AuthProvider = ({ children }: { children: React.ReactNode }) => {
   };
 
   const logout = () => {
+    if (localStorage.getItem('jwt')) {
+      revokeToken().catch(() => { });
+    }
     localStorage.removeItem('jwt');
     setAuthToken(null);
     setIsAuthenticated(false);
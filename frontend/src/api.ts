@@ -24,6 +24,10 @@ export const login = (username: string, password: string) =>
 export const validateToken = () =>
   axios.get(`${AUTH_API}/validate`, getAuthHeader());
 
+// サーバー側でトークンを失効させる
+export const revokeToken = () =>
+  axios.post(`${AUTH_API}/logout`, null, getAuthHeader());
+
 // タスク関連API
 export const getTasks = (): Promise<AxiosResponse<Task[]>> =>
   axios.get(TASK_API, getAuthHeader());